@@ -1,12 +1,15 @@
 package com.socctrader.config;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.instance.HazelcastInstanceFactory;
 import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MapIndexConfig;
 import com.hazelcast.config.EvictionPolicy;
 import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.config.NearCacheConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -27,6 +30,28 @@ import javax.inject.Inject;
 @AutoConfigureAfter(value = { MetricsConfiguration.class, DatabaseConfiguration.class })
 public class CacheConfiguration {
 
+    /** Name of the map storing the responses of requests sent with an Idempotency-Key header. */
+    public static final String IDEMPOTENCY_MAP_NAME = "idempotency-keys";
+
+    /** Name of the map caching the facets of searches. */
+    public static final String SEARCH_FACETS_MAP_NAME = "search-facets";
+
+    private static final int SEARCH_FACETS_MAX_SIZE = 1000;
+
+    /** Name of the map caching pages of search results. */
+    public static final String SEARCH_RESULTS_MAP_NAME = "search-results";
+
+    private static final int SEARCH_RESULTS_MAX_SIZE = 10000;
+
+    /** Name of the map holding the funds of the journaled withdrawals not applied yet. */
+    public static final String FUNDS_RESERVATIONS_MAP_NAME = "funds-reservations";
+
+    /** Package of the entities, whose class names are the names of their 2nd level cache regions. */
+    private static final String DOMAIN_PACKAGE = "com.socctrader.domain.";
+
+    /** Suffix of the names of the natural id cache regions. */
+    private static final String NATURAL_ID_SUFFIX = "##NaturalId";
+
     private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
 
     private static HazelcastInstance hazelcastInstance;
@@ -91,7 +116,18 @@ public class CacheConfiguration {
         
         
         config.getMapConfigs().put("default", initializeDefaultMapConfig());
-        config.getMapConfigs().put("com.socctrader.domain.*", initializeDomainMapConfig(properties));
+        config.getMapConfigs().put(DOMAIN_PACKAGE + "*", initializeDomainMapConfig(properties));
+        // Exact names, as Hazelcast picks any of the wildcard configs matching a name
+        properties.getCache().getEntities().forEach((entity, entityCache) -> {
+            String regionName = DOMAIN_PACKAGE + entity;
+            config.getMapConfigs().put(regionName, initializeEntityMapConfig(regionName, entityCache, properties));
+            config.getMapConfigs().put(regionName + NATURAL_ID_SUFFIX,
+                initializeEntityMapConfig(regionName + NATURAL_ID_SUFFIX, entityCache, properties));
+        });
+        config.getMapConfigs().put(IDEMPOTENCY_MAP_NAME, initializeIdempotencyMapConfig(properties));
+        config.getMapConfigs().put(SEARCH_FACETS_MAP_NAME, initializeSearchFacetsMapConfig(properties));
+        config.getMapConfigs().put(SEARCH_RESULTS_MAP_NAME, initializeSearchResultsMapConfig(properties));
+        config.getMapConfigs().put(FUNDS_RESERVATIONS_MAP_NAME, initializeFundsReservationsMapConfig(properties));
 
         hazelcastInstance = HazelcastInstanceFactory.newHazelcastInstance(config);
 
@@ -143,6 +179,96 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    private MapConfig initializeEntityMapConfig(String name, Properties.Cache.EntityCache entityCache,
+                                                Properties properties) {
+        MapConfig mapConfig = new MapConfig(name);
+
+        mapConfig.setTimeToLiveSeconds(entityCache.getTimeToLiveSeconds() != null ?
+            entityCache.getTimeToLiveSeconds() : properties.getCache().getTimeToLiveSeconds());
+        mapConfig.setEvictionPolicy(entityCache.getEvictionPolicy());
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(entityCache.getMaxSize(), MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        mapConfig.setBackupCount(entityCache.getBackupCount() != null ?
+            entityCache.getBackupCount() : properties.getCache().getHazelcast().getBackupCount());
+        mapConfig.setInMemoryFormat(entityCache.getInMemoryFormat());
+
+        /*
+            A near cache keeps the entries read by this member, so that reading them again
+            does not cross the network to their owner. It is invalidated asynchronously when
+            an entry changes: only use it for read-mostly entities, which tolerate reading an
+            entity a few milliseconds stale, as NONSTRICT_READ_WRITE regions already do.
+         */
+        Properties.Cache.EntityCache.NearCache nearCache = entityCache.getNearCache();
+        if (nearCache.isEnabled()) {
+            NearCacheConfig nearCacheConfig = new NearCacheConfig();
+            nearCacheConfig.setInvalidateOnChange(true);
+            nearCacheConfig.setMaxSize(nearCache.getMaxSize());
+            nearCacheConfig.setTimeToLiveSeconds(nearCache.getTimeToLiveSeconds());
+            nearCacheConfig.setMaxIdleSeconds(nearCache.getMaxIdleSeconds());
+            nearCacheConfig.setEvictionPolicy(nearCache.getEvictionPolicy().name());
+            nearCacheConfig.setInMemoryFormat(nearCache.getInMemoryFormat());
+            mapConfig.setNearCacheConfig(nearCacheConfig);
+        }
+        return mapConfig;
+    }
+
+    private MapConfig initializeIdempotencyMapConfig(Properties properties) {
+        MapConfig mapConfig = new MapConfig(IDEMPOTENCY_MAP_NAME);
+
+        mapConfig.setTimeToLiveSeconds(properties.getCache().getIdempotencyTimeToLiveSeconds());
+
+        /*
+            A claimed key must survive the loss of the member owning it, or a duplicate request sent
+            to another member would run again: the claim waits for at least one synchronous backup.
+         */
+        mapConfig.setBackupCount(Math.max(1, properties.getCache().getHazelcast().getBackupCount()));
+
+        // Entries are only read and written whole, there is no need to keep them serialized
+        mapConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+        return mapConfig;
+    }
+
+    private MapConfig initializeSearchFacetsMapConfig(Properties properties) {
+        MapConfig mapConfig = new MapConfig(SEARCH_FACETS_MAP_NAME);
+
+        // Facets are only a few seconds stale at most, and are computed again when lost
+        mapConfig.setTimeToLiveSeconds(properties.getCache().getSearchFacetsTimeToLiveSeconds());
+        mapConfig.setBackupCount(0);
+
+        // Only the most popular queries are kept
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(SEARCH_FACETS_MAX_SIZE, MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        mapConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+        return mapConfig;
+    }
+
+    private MapConfig initializeSearchResultsMapConfig(Properties properties) {
+        MapConfig mapConfig = new MapConfig(SEARCH_RESULTS_MAP_NAME);
+
+        /*
+            Results are invalidated by bumping the generation of their index, which is part of
+            the key: the time to live only reclaims the entries of the old generations.
+         */
+        mapConfig.setTimeToLiveSeconds(properties.getCache().getSearchResultsTimeToLiveSeconds());
+        mapConfig.setBackupCount(0);
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig(SEARCH_RESULTS_MAX_SIZE, MaxSizeConfig.MaxSizePolicy.PER_NODE));
+        mapConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+        return mapConfig;
+    }
+
+    private MapConfig initializeFundsReservationsMapConfig(Properties properties) {
+        MapConfig mapConfig = new MapConfig(FUNDS_RESERVATIONS_MAP_NAME);
+
+        // A lost reservation would let an acknowledged withdrawal be overdrawn, like a lost idempotency claim
+        mapConfig.setBackupCount(Math.max(1, properties.getCache().getHazelcast().getBackupCount()));
+        mapConfig.setInMemoryFormat(InMemoryFormat.OBJECT);
+
+        // The reservations are summed per user, and released per node when it restarts
+        mapConfig.addMapIndexConfig(new MapIndexConfig("login", false));
+        mapConfig.addMapIndexConfig(new MapIndexConfig("node", false));
+        return mapConfig;
+    }
+
     /**
     * @return the unique instance.
     */
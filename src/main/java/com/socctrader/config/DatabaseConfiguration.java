@@ -1,5 +1,6 @@
 package com.socctrader.config;
 
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
 import com.socctrader.config.liquibase.AsyncSpringLiquibase;
 
 import com.codahale.metrics.MetricRegistry;
@@ -27,7 +28,9 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.inject.Inject;
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 @EnableJpaRepositories("com.socctrader.repository")
@@ -41,6 +44,9 @@ public class DatabaseConfiguration {
     @Inject
     private Environment env;
 
+    @Inject
+    private Properties properties;
+
     @Autowired(required = false)
     private MetricRegistry metricRegistry;
 
@@ -68,7 +74,31 @@ public class DatabaseConfiguration {
         if (metricRegistry != null) {
             hikariDataSource.setMetricRegistry(metricRegistry);
         }
-        return hikariDataSource;
+        Properties.Datasource datasource = properties.getDatasource();
+        if (datasource.getReplicas().isEmpty()) {
+            return hikariDataSource;
+        }
+        log.debug("Configuring {} read replicas", datasource.getReplicas().size());
+        hikariDataSource.setPoolName("primary");
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (Properties.Datasource.Replica replica : datasource.getReplicas()) {
+            HikariDataSource replicaDataSource = (HikariDataSource) DataSourceBuilder
+                .create(dataSourceProperties.getClassLoader())
+                .type(HikariDataSource.class)
+                .driverClassName(dataSourceProperties.getDriverClassName())
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .build();
+            replicaDataSource.setPoolName("replica-" + (replicas.size() + 1));
+            replicaDataSource.setReadOnly(true);
+            if (metricRegistry != null) {
+                replicaDataSource.setMetricRegistry(metricRegistry);
+            }
+            replicas.add(replicaDataSource);
+        }
+        return new ReplicaRoutingDataSource(hikariDataSource, replicas, datasource.getReplicaLagQuery(),
+            datasource.getMaxReplicaLagSeconds(), metricRegistry);
     }
     @Bean
     public SpringLiquibase liquibase(DataSource dataSource, DataSourceProperties dataSourceProperties,
@@ -1,8 +1,15 @@
 package com.socctrader.config;
 
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  *
  * <p>
@@ -30,6 +37,20 @@ public class Properties {
 
     private final Ribbon ribbon = new Ribbon();
 
+    private final Journal journal = new Journal();
+
+    private final Sequencer sequencer = new Sequencer();
+
+    private final Rollup rollup = new Rollup();
+
+    private final Fx fx = new Fx();
+
+    private final SearchOutbox searchOutbox = new SearchOutbox();
+
+    private final Reindex reindex = new Reindex();
+
+    private final Datasource datasource = new Datasource();
+
     public Async getAsync() {
         return async;
     }
@@ -66,6 +87,34 @@ public class Properties {
         return ribbon;
     }
 
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public Sequencer getSequencer() {
+        return sequencer;
+    }
+
+    public Rollup getRollup() {
+        return rollup;
+    }
+
+    public Fx getFx() {
+        return fx;
+    }
+
+    public SearchOutbox getSearchOutbox() {
+        return searchOutbox;
+    }
+
+    public Reindex getReindex() {
+        return reindex;
+    }
+
+    public Datasource getDatasource() {
+        return datasource;
+    }
+
     public static class Async {
 
         private int corePoolSize = 2;
@@ -74,6 +123,8 @@ public class Properties {
 
         private int queueCapacity = 10000;
 
+        private int schedulerPoolSize = 4;
+
         public int getCorePoolSize() {
             return corePoolSize;
         }
@@ -97,6 +148,14 @@ public class Properties {
         public void setQueueCapacity(int queueCapacity) {
             this.queueCapacity = queueCapacity;
         }
+
+        public int getSchedulerPoolSize() {
+            return schedulerPoolSize;
+        }
+
+        public void setSchedulerPoolSize(int schedulerPoolSize) {
+            this.schedulerPoolSize = schedulerPoolSize;
+        }
     }
 
     public static class Http {
@@ -124,7 +183,12 @@ public class Properties {
     public static class Cache {
 
         private int timeToLiveSeconds = 3600;
+        private int idempotencyTimeToLiveSeconds = 86400;
+        private int idempotencyLeaseSeconds = 60;
+        private int searchFacetsTimeToLiveSeconds = 30;
+        private int searchResultsTimeToLiveSeconds = 600;
         private final Hazelcast hazelcast = new Hazelcast();
+        private final Map<String, EntityCache> entities = new LinkedHashMap<>();
 
 
         public int getTimeToLiveSeconds() {
@@ -134,10 +198,49 @@ public class Properties {
         public void setTimeToLiveSeconds(int timeToLiveSeconds) {
             this.timeToLiveSeconds = timeToLiveSeconds;
         }
+
+        public int getIdempotencyTimeToLiveSeconds() {
+            return idempotencyTimeToLiveSeconds;
+        }
+
+        public void setIdempotencyTimeToLiveSeconds(int idempotencyTimeToLiveSeconds) {
+            this.idempotencyTimeToLiveSeconds = idempotencyTimeToLiveSeconds;
+        }
+
+        public int getIdempotencyLeaseSeconds() {
+            return idempotencyLeaseSeconds;
+        }
+
+        public void setIdempotencyLeaseSeconds(int idempotencyLeaseSeconds) {
+            this.idempotencyLeaseSeconds = idempotencyLeaseSeconds;
+        }
+
+        public int getSearchFacetsTimeToLiveSeconds() {
+            return searchFacetsTimeToLiveSeconds;
+        }
+
+        public void setSearchFacetsTimeToLiveSeconds(int searchFacetsTimeToLiveSeconds) {
+            this.searchFacetsTimeToLiveSeconds = searchFacetsTimeToLiveSeconds;
+        }
+
+        public int getSearchResultsTimeToLiveSeconds() {
+            return searchResultsTimeToLiveSeconds;
+        }
+
+        public void setSearchResultsTimeToLiveSeconds(int searchResultsTimeToLiveSeconds) {
+            this.searchResultsTimeToLiveSeconds = searchResultsTimeToLiveSeconds;
+        }
         public Hazelcast getHazelcast() {
             return hazelcast;
         }
 
+        /**
+         * @return the configurations of the 2nd level cache regions of some entities, by entity simple name
+         */
+        public Map<String, EntityCache> getEntities() {
+            return entities;
+        }
+
         public static class Hazelcast {
 
             private int backupCount = 1;
@@ -150,6 +253,127 @@ public class Properties {
                 this.backupCount = backupCount;
             }
         }
+
+        public static class EntityCache {
+
+            private Integer timeToLiveSeconds;
+            private int maxSize = 0;
+            private EvictionPolicy evictionPolicy = EvictionPolicy.NONE;
+            private Integer backupCount;
+            private InMemoryFormat inMemoryFormat = InMemoryFormat.BINARY;
+            private final NearCache nearCache = new NearCache();
+
+            /**
+             * @return the time to live of the entries, or null for <code>jhipster.cache.timeToLiveSeconds</code>
+             */
+            public Integer getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Integer timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            /**
+             * @return the maximum number of entries per member, 0 for no limit
+             */
+            public int getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(int maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public EvictionPolicy getEvictionPolicy() {
+                return evictionPolicy;
+            }
+
+            public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+                this.evictionPolicy = evictionPolicy;
+            }
+
+            /**
+             * @return the number of synchronous backups of the entries, or null for <code>jhipster.cache.hazelcast.backupCount</code>
+             */
+            public Integer getBackupCount() {
+                return backupCount;
+            }
+
+            public void setBackupCount(Integer backupCount) {
+                this.backupCount = backupCount;
+            }
+
+            public InMemoryFormat getInMemoryFormat() {
+                return inMemoryFormat;
+            }
+
+            public void setInMemoryFormat(InMemoryFormat inMemoryFormat) {
+                this.inMemoryFormat = inMemoryFormat;
+            }
+
+            public NearCache getNearCache() {
+                return nearCache;
+            }
+
+            public static class NearCache {
+
+                private boolean enabled = false;
+                private int maxSize = 10000;
+                private int timeToLiveSeconds = 0;
+                private int maxIdleSeconds = 0;
+                private EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+                private InMemoryFormat inMemoryFormat = InMemoryFormat.OBJECT;
+
+                public boolean isEnabled() {
+                    return enabled;
+                }
+
+                public void setEnabled(boolean enabled) {
+                    this.enabled = enabled;
+                }
+
+                public int getMaxSize() {
+                    return maxSize;
+                }
+
+                public void setMaxSize(int maxSize) {
+                    this.maxSize = maxSize;
+                }
+
+                public int getTimeToLiveSeconds() {
+                    return timeToLiveSeconds;
+                }
+
+                public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+                    this.timeToLiveSeconds = timeToLiveSeconds;
+                }
+
+                public int getMaxIdleSeconds() {
+                    return maxIdleSeconds;
+                }
+
+                public void setMaxIdleSeconds(int maxIdleSeconds) {
+                    this.maxIdleSeconds = maxIdleSeconds;
+                }
+
+                public EvictionPolicy getEvictionPolicy() {
+                    return evictionPolicy;
+                }
+
+                public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+                    this.evictionPolicy = evictionPolicy;
+                }
+
+                public InMemoryFormat getInMemoryFormat() {
+                    return inMemoryFormat;
+                }
+
+                public void setInMemoryFormat(InMemoryFormat inMemoryFormat) {
+                    this.inMemoryFormat = inMemoryFormat;
+                }
+            }
+        }
     }
 
     public static class Mail {
@@ -511,4 +735,244 @@ public class Properties {
             this.displayOnActiveProfiles = displayOnActiveProfiles;
         }
     }
+
+    public static class Journal {
+
+        private boolean enabled = false;
+
+        private String directory = "target/journal";
+
+        private int segmentSize = 64 * 1024 * 1024;
+
+        private int groupCommitSize = 256;
+
+        private long groupCommitMillis = 2;
+
+        private int applyBatchSize = 500;
+
+        private String nodeName;
+
+        private int maxApplyAttempts = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public int getGroupCommitSize() {
+            return groupCommitSize;
+        }
+
+        public void setGroupCommitSize(int groupCommitSize) {
+            this.groupCommitSize = groupCommitSize;
+        }
+
+        public long getGroupCommitMillis() {
+            return groupCommitMillis;
+        }
+
+        public void setGroupCommitMillis(long groupCommitMillis) {
+            this.groupCommitMillis = groupCommitMillis;
+        }
+
+        public int getApplyBatchSize() {
+            return applyBatchSize;
+        }
+
+        public void setApplyBatchSize(int applyBatchSize) {
+            this.applyBatchSize = applyBatchSize;
+        }
+
+        public String getNodeName() {
+            return nodeName;
+        }
+
+        public void setNodeName(String nodeName) {
+            this.nodeName = nodeName;
+        }
+
+        public int getMaxApplyAttempts() {
+            return maxApplyAttempts;
+        }
+
+        public void setMaxApplyAttempts(int maxApplyAttempts) {
+            this.maxApplyAttempts = maxApplyAttempts;
+        }
+    }
+
+    public static class Sequencer {
+
+        private int stripes = 256;
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+    }
+
+    public static class Rollup {
+
+        private int lagSeconds = 60;
+
+        private int parallelism = 4;
+
+        public int getLagSeconds() {
+            return lagSeconds;
+        }
+
+        public void setLagSeconds(int lagSeconds) {
+            this.lagSeconds = lagSeconds;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    public static class Fx {
+
+        private String ratesLocation = "classpath:config/fx/rates.properties";
+
+        public String getRatesLocation() {
+            return ratesLocation;
+        }
+
+        public void setRatesLocation(String ratesLocation) {
+            this.ratesLocation = ratesLocation;
+        }
+    }
+
+    public static class SearchOutbox {
+
+        private int batchSize = 500;
+
+        private int maxAttempts = 10;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+    }
+
+    public static class Reindex {
+
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private int partitionSize = 1000;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getPartitionSize() {
+            return partitionSize;
+        }
+
+        public void setPartitionSize(int partitionSize) {
+            this.partitionSize = partitionSize;
+        }
+    }
+
+    public static class Datasource {
+
+        private final List<Replica> replicas = new ArrayList<>();
+
+        private String replicaLagQuery;
+
+        private long maxReplicaLagSeconds = 10;
+
+        public List<Replica> getReplicas() {
+            return replicas;
+        }
+
+        public String getReplicaLagQuery() {
+            return replicaLagQuery;
+        }
+
+        public void setReplicaLagQuery(String replicaLagQuery) {
+            this.replicaLagQuery = replicaLagQuery;
+        }
+
+        public long getMaxReplicaLagSeconds() {
+            return maxReplicaLagSeconds;
+        }
+
+        public void setMaxReplicaLagSeconds(long maxReplicaLagSeconds) {
+            this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+        }
+
+        public static class Replica {
+
+            private String url;
+
+            private String username;
+
+            private String password;
+
+            public String getUrl() {
+                return url;
+            }
+
+            public void setUrl(String url) {
+                this.url = url;
+            }
+
+            public String getUsername() {
+                return username;
+            }
+
+            public void setUsername(String username) {
+                this.username = username;
+            }
+
+            public String getPassword() {
+                return password;
+            }
+
+            public void setPassword(String password) {
+                this.password = password;
+            }
+        }
+    }
 }
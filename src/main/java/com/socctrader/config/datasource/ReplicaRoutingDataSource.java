@@ -0,0 +1,237 @@
+package com.socctrader.config.datasource;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * DataSource sending the read-only transactions to a pool of replicas, and everything else to the primary.
+ * <p>
+ * The connections are lazy: the physical connection is only taken when the first statement runs, once the
+ * transaction has declared whether it is read-only. A read-only transaction gets a connection of the healthy
+ * replica with the fewest outstanding connections; if no replica is healthy, or if the chosen one cannot give a
+ * connection, it falls back to the primary. The replicas are checked by {@link #checkReplicas()}: a replica whose
+ * lag, given by the lag query, is over the maximum lag, or which does not answer, is unhealthy until the next check.
+ * <p>
+ * Each target is a Hikari pool named after it, reporting its own pool metrics, plus the
+ * <code>datasource.&lt;target&gt;.connections</code> meter and <code>datasource.&lt;target&gt;.outstanding</code>
+ * gauge of the routing, and the <code>datasource.&lt;replica&gt;.lag</code> gauge of the replicas.
+ * <p>
+ * Work that must see the last commits, such as rebuilding a cache after a commit, runs with
+ * {@link #usePrimary(Supplier)}.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private final Router router;
+
+    /**
+     * @param primary the pool of the primary
+     * @param replicas the pools of the replicas
+     * @param lagQuery the query returning the lag of a replica in seconds, or null to only check that it answers
+     * @param maxLagSeconds the maximum lag of a healthy replica
+     * @param metricRegistry the registry of the metrics, or null
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, String lagQuery,
+                                    long maxLagSeconds, MetricRegistry metricRegistry) {
+        this(new Router(primary, replicas, lagQuery, maxLagSeconds, metricRegistry));
+    }
+
+    private ReplicaRoutingDataSource(Router router) {
+        super(router);
+        this.router = router;
+    }
+
+    /**
+     * Run some work on the primary, even in a read-only transaction.
+     *
+     * @param work the work, which must start its transactions itself
+     * @return the result of the work
+     */
+    public static <T> T usePrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY.remove();
+            }
+        }
+    }
+
+    /**
+     * Check the lag of the replicas.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void checkReplicas() {
+        router.checkReplicas();
+    }
+
+    @Override
+    public void close() {
+        router.primary.dataSource.close();
+        router.replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static class Router extends AbstractDataSource {
+
+        private final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+        private final Target primary;
+
+        private final List<Target> replicas;
+
+        private final String lagQuery;
+
+        private final long maxLagSeconds;
+
+        Router(HikariDataSource primary, List<HikariDataSource> replicas, String lagQuery, long maxLagSeconds,
+               MetricRegistry metricRegistry) {
+            this.primary = new Target(primary, metricRegistry);
+            List<Target> targets = new ArrayList<>(replicas.size());
+            for (HikariDataSource replica : replicas) {
+                Target target = new Target(replica, metricRegistry);
+                if (metricRegistry != null) {
+                    metricRegistry.register(MetricRegistry.name("datasource", target.name, "lag"),
+                        (Gauge<Long>) () -> target.lagSeconds);
+                }
+                targets.add(target);
+            }
+            this.replicas = Collections.unmodifiableList(targets);
+            this.lagQuery = lagQuery;
+            this.maxLagSeconds = maxLagSeconds;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (PRIMARY.get() == null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                Target replica = leastOutstanding();
+                if (replica != null) {
+                    try {
+                        return replica.getConnection();
+                    } catch (SQLException e) {
+                        log.warn("Replica {} cannot give a connection, falling back to the primary: {}",
+                            replica.name, e.getMessage());
+                        replica.healthy = false;
+                    }
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("The credentials are those of the pools");
+        }
+
+        private Target leastOutstanding() {
+            Target least = null;
+            for (Target replica : replicas) {
+                if (replica.healthy && (least == null || replica.outstanding.get() < least.outstanding.get())) {
+                    least = replica;
+                }
+            }
+            return least;
+        }
+
+        void checkReplicas() {
+            for (Target replica : replicas) {
+                boolean healthy;
+                try (Connection connection = replica.dataSource.getConnection()) {
+                    if (lagQuery == null) {
+                        replica.lagSeconds = 0;
+                        healthy = connection.isValid(1);
+                    } else {
+                        try (Statement statement = connection.createStatement();
+                             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                            // A null lag, before the replica has replayed anything, reads as 0
+                            replica.lagSeconds = resultSet.next() ? resultSet.getLong(1) : 0;
+                        }
+                        healthy = replica.lagSeconds <= maxLagSeconds;
+                    }
+                } catch (SQLException e) {
+                    log.warn("Could not check replica {}: {}", replica.name, e.getMessage());
+                    healthy = false;
+                }
+                if (healthy != replica.healthy) {
+                    log.info("Replica {} is now {}, with a lag of {} s", replica.name, healthy ? "healthy" : "unhealthy",
+                        replica.lagSeconds);
+                }
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    /**
+     * A pool, and the connections it has given and which are not closed yet.
+     */
+    private static class Target {
+
+        private final String name;
+
+        private final HikariDataSource dataSource;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final Meter connections;
+
+        private volatile boolean healthy = true;
+
+        private volatile long lagSeconds;
+
+        Target(HikariDataSource dataSource, MetricRegistry metricRegistry) {
+            this.name = dataSource.getPoolName();
+            this.dataSource = dataSource;
+            if (metricRegistry != null) {
+                this.connections = metricRegistry.meter(MetricRegistry.name("datasource", name, "connections"));
+                metricRegistry.register(MetricRegistry.name("datasource", name, "outstanding"),
+                    (Gauge<Integer>) outstanding::get);
+            } else {
+                this.connections = new Meter();
+            }
+        }
+
+        Connection getConnection() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            outstanding.incrementAndGet();
+            connections.mark();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        outstanding.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+        }
+    }
+}
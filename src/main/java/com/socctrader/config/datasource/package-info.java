@@ -0,0 +1,4 @@
+/**
+ * DataSource configuration.
+ */
+package com.socctrader.config.datasource;
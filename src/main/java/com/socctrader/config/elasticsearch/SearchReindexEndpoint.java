@@ -0,0 +1,27 @@
+package com.socctrader.config.elasticsearch;
+
+import com.socctrader.service.SearchReindexService;
+import com.socctrader.web.rest.dto.SearchReindexDTO;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+/**
+ * Management endpoint reporting the progress of the search reindex, at /management/reindex.
+ */
+@Component
+public class SearchReindexEndpoint extends AbstractEndpoint<SearchReindexDTO> {
+
+    @Inject
+    private SearchReindexService searchReindexService;
+
+    public SearchReindexEndpoint() {
+        super("reindex", true);
+    }
+
+    @Override
+    public SearchReindexDTO invoke() {
+        return searchReindexService.getStatus();
+    }
+}
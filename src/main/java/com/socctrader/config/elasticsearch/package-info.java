@@ -0,0 +1,4 @@
+/**
+ * Elasticsearch management.
+ */
+package com.socctrader.config.elasticsearch;
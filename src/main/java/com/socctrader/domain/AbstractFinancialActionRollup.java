@@ -0,0 +1,150 @@
+package com.socctrader.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsSerializer;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Base class of the FinancialAction rollups: the number and the total amount of the FinancialActions
+ * of one user, currency and action over a period.
+ */
+@MappedSuperclass
+public abstract class AbstractFinancialActionRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Size(max = 50)
+    @Column(name = "user_login", length = 50, nullable = false)
+    private String userLogin;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "currency", nullable = false)
+    private Currency currency;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false)
+    private Action action;
+
+    /**
+     * The first day of the period.
+     */
+    @NotNull
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @NotNull
+    @Column(name = "action_count", nullable = false)
+    private Long actionCount;
+
+    /**
+     * The total amount in minor units of the currency, exposed in JSON as a decimal number.
+     */
+    @NotNull
+    @Column(name = "amount", nullable = false)
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private Long amount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserLogin() {
+        return userLogin;
+    }
+
+    public void setUserLogin(String userLogin) {
+        this.userLogin = userLogin;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public Long getActionCount() {
+        return actionCount;
+    }
+
+    public void setActionCount(Long actionCount) {
+        this.actionCount = actionCount;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AbstractFinancialActionRollup rollup = (AbstractFinancialActionRollup) o;
+        if(rollup.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, rollup.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "id=" + id +
+            ", userLogin='" + userLogin + "'" +
+            ", currency='" + currency + "'" +
+            ", action='" + action + "'" +
+            ", periodStart='" + periodStart + "'" +
+            ", actionCount='" + actionCount + "'" +
+            ", amount='" + amount + "'" +
+            '}';
+    }
+}
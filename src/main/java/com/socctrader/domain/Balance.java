@@ -0,0 +1,109 @@
+package com.socctrader.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsSerializer;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+import com.socctrader.domain.enumeration.Currency;
+
+/**
+ * A Balance, the running total of a user's FinancialActions in one currency.
+ * <p>
+ * Rows are maintained incrementally by the BalanceService, in the same transaction
+ * as the FinancialAction change, so reading a balance never scans the action history.
+ */
+@Entity
+@Table(name = "balance",
+    uniqueConstraints = @UniqueConstraint(name = "ux_balance_user_currency", columnNames = {"user_login", "currency"}))
+public class Balance implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Size(max = 50)
+    @Column(name = "user_login", length = 50, nullable = false)
+    private String userLogin;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "currency", nullable = false)
+    private Currency currency;
+
+    /**
+     * The balance in minor units of the currency, exposed in JSON as a decimal number.
+     */
+    @NotNull
+    @Column(name = "amount", nullable = false)
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private Long amount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserLogin() {
+        return userLogin;
+    }
+
+    public void setUserLogin(String userLogin) {
+        this.userLogin = userLogin;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Balance balance = (Balance) o;
+        if(balance.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, balance.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "Balance{" +
+            "id=" + id +
+            ", userLogin='" + userLogin + "'" +
+            ", currency='" + currency + "'" +
+            ", amount='" + amount + "'" +
+            '}';
+    }
+}
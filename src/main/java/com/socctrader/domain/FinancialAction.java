@@ -1,11 +1,24 @@
 package com.socctrader.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.socctrader.config.Constants;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsDeserializer;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsSerializer;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
 
 import javax.persistence.*;
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.Objects;
 
 import com.socctrader.domain.enumeration.Action;
@@ -19,12 +32,24 @@ import com.socctrader.domain.enumeration.Currency;
 @Table(name = "financial_action")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Document(indexName = "financialaction")
+@Mapping(mappingPath = "/config/elasticsearch/financialaction.json")
 public class FinancialAction implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Ids come from a pooled sequence rather than an identity column, so that Hibernate
+     * can allocate them without a round-trip per row and batch the inserts over JDBC.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "financialActionSequenceGenerator")
+    @GenericGenerator(name = "financialActionSequenceGenerator",
+        strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+        parameters = {
+            @Parameter(name = "sequence_name", value = "financial_action_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled")
+        })
     private Long id;
 
     @Column(name = "action_id")
@@ -34,15 +59,38 @@ public class FinancialAction implements Serializable {
     @Column(name = "action")
     private Action action;
 
+    /**
+     * The amount in minor units of the currency, exposed in JSON as a decimal number.
+     */
     @Column(name = "amount")
-    private Double amount;
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    @JsonDeserialize(using = MinorUnitsDeserializer.class)
+    private Long amount;
 
     @Enumerated(EnumType.STRING)
     @Column(name = "currency")
     private Currency currency;
 
-    @ManyToOne
-    private User user;
+    /**
+     * The day the financialAction is booked on, in UTC. Defaults to the day it is inserted.
+     */
+    @Column(name = "action_date")
+    private LocalDate actionDate;
+
+    /**
+     * When the financialAction was inserted, by the clock of the node inserting it. The rollups follow it.
+     */
+    @Column(name = "created_date", updatable = false)
+    @JsonIgnore
+    private ZonedDateTime createdDate;
+
+    /**
+     * The login of the user owning the financialAction, set when it is created. Balances and rollups
+     * are keyed by it, whoever updates or deletes the financialAction later on. It is the only owner
+     * of the financialAction: the users are managed by the gateway, not by this service.
+     */
+    @Column(name = "user_login", length = 50, nullable = false, updatable = false)
+    private String userLogin;
 
     public Long getId() {
         return id;
@@ -68,14 +116,33 @@ public class FinancialAction implements Serializable {
         this.action = action;
     }
 
-    public Double getAmount() {
+    public Long getAmount() {
         return amount;
     }
 
-    public void setAmount(Double amount) {
+    public void setAmount(Long amount) {
         this.amount = amount;
     }
 
+    /**
+     * @return the amount in minor units, indexed as a long so that the search sums are exact
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Long getAmountMinorUnits() {
+        return amount;
+    }
+
+    /**
+     * @return the amount and currency as Money, or null if one of them is not set
+     */
+    @JsonIgnore
+    public Money getMoney() {
+        if (amount == null || currency == null) {
+            return null;
+        }
+        return Money.ofMinorUnits(amount, currency);
+    }
+
     public Currency getCurrency() {
         return currency;
     }
@@ -84,12 +151,39 @@ public class FinancialAction implements Serializable {
         this.currency = currency;
     }
 
-    public User getUser() {
-        return user;
+    public LocalDate getActionDate() {
+        return actionDate;
+    }
+
+    public void setActionDate(LocalDate actionDate) {
+        this.actionDate = actionDate;
+    }
+
+    public ZonedDateTime getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(ZonedDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public String getUserLogin() {
+        return userLogin;
     }
 
-    public void setUser(User user) {
-        this.user = user;
+    public void setUserLogin(String userLogin) {
+        this.userLogin = userLogin;
+    }
+
+    @PrePersist
+    public void prePersist() {
+        if (actionDate == null) {
+            actionDate = LocalDate.now(ZoneOffset.UTC);
+        }
+        if (userLogin == null) {
+            userLogin = Constants.SYSTEM_ACCOUNT;
+        }
+        createdDate = ZonedDateTime.now();
     }
 
     @Override
@@ -120,6 +214,8 @@ public class FinancialAction implements Serializable {
             ", action='" + action + "'" +
             ", amount='" + amount + "'" +
             ", currency='" + currency + "'" +
+            ", actionDate='" + actionDate + "'" +
+            ", userLogin='" + userLogin + "'" +
             '}';
     }
 }
@@ -0,0 +1,17 @@
+package com.socctrader.domain;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * A FinancialActionDailyRollup, the FinancialActions of one user, currency and action on one day.
+ */
+@Entity
+@Table(name = "financial_action_daily_rollup",
+    uniqueConstraints = @UniqueConstraint(name = "ux_financial_action_daily_rollup",
+        columnNames = {"period_start", "user_login", "currency", "action"}))
+public class FinancialActionDailyRollup extends AbstractFinancialActionRollup {
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,19 @@
+package com.socctrader.domain;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * A FinancialActionMonthlyRollup, the FinancialActions of one user, currency and action in one month.
+ * <p>
+ * The period starts on the first day of the month.
+ */
+@Entity
+@Table(name = "financial_action_monthly_rollup",
+    uniqueConstraints = @UniqueConstraint(name = "ux_financial_action_monthly_rollup",
+        columnNames = {"period_start", "user_login", "currency", "action"}))
+public class FinancialActionMonthlyRollup extends AbstractFinancialActionRollup {
+
+    private static final long serialVersionUID = 1L;
+}
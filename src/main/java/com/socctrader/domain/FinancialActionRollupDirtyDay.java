@@ -0,0 +1,80 @@
+package com.socctrader.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A FinancialActionRollupDirtyDay, a day whose rollups must be recomputed because a FinancialAction
+ * of that day was updated or deleted.
+ * <p>
+ * It is written in the same transaction as the change, so a committed change cannot be missed by the
+ * rollups, and deleted once the day is recomputed. A day can be marked several times.
+ */
+@Entity
+@Table(name = "rollup_dirty_day")
+public class FinancialActionRollupDirtyDay implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Column(name = "action_date", nullable = false)
+    private LocalDate actionDate;
+
+    public FinancialActionRollupDirtyDay() {
+    }
+
+    public FinancialActionRollupDirtyDay(LocalDate actionDate) {
+        this.actionDate = actionDate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getActionDate() {
+        return actionDate;
+    }
+
+    public void setActionDate(LocalDate actionDate) {
+        this.actionDate = actionDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FinancialActionRollupDirtyDay dirtyDay = (FinancialActionRollupDirtyDay) o;
+        if (dirtyDay.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, dirtyDay.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "FinancialActionRollupDirtyDay{" +
+            "id=" + id +
+            ", actionDate='" + actionDate + "'" +
+            '}';
+    }
+}
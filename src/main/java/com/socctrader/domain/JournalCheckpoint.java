@@ -0,0 +1,79 @@
+package com.socctrader.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A JournalCheckpoint, the position of the last record of a stream applied to the database:
+ * the sequence of a journal record, or the id of a FinancialAction for the rollups.
+ * <p>
+ * It is updated in the same transaction as the applied records, so replaying the stream
+ * from the checkpoint never applies a record twice.
+ */
+@Entity
+@Table(name = "journal_checkpoint")
+public class JournalCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @NotNull
+    @Size(max = 50)
+    @Column(name = "name", length = 50)
+    private String name;
+
+    @NotNull
+    @Column(name = "position", nullable = false)
+    private Long position;
+
+    public JournalCheckpoint() {
+    }
+
+    public JournalCheckpoint(String name, Long position) {
+        this.name = name;
+        this.position = position;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        JournalCheckpoint journalCheckpoint = (JournalCheckpoint) o;
+        return Objects.equals(name, journalCheckpoint.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(name);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalCheckpoint{" +
+            "name='" + name + "'" +
+            ", position='" + position + "'" +
+            '}';
+    }
+}
@@ -2,6 +2,8 @@ package com.socctrader.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.elasticsearch.annotations.Document;
 
 import javax.persistence.*;
@@ -15,6 +17,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "league")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@NaturalIdCache
 @Document(indexName = "league")
 public class League implements Serializable {
 
@@ -24,6 +27,7 @@ public class League implements Serializable {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    @NaturalId(mutable = true)
     @Column(name = "league_id")
     private Long leagueId;
 
@@ -2,6 +2,8 @@ package com.socctrader.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.elasticsearch.annotations.Document;
 
 import javax.persistence.*;
@@ -14,6 +16,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "team")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@NaturalIdCache
 @Document(indexName = "team")
 public class Team implements Serializable {
 
@@ -23,6 +26,7 @@ public class Team implements Serializable {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
+    @NaturalId(mutable = true)
     @Column(name = "team_id")
     private Long teamId;
 
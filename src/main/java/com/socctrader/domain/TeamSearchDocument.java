@@ -0,0 +1,167 @@
+package com.socctrader.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A TeamSearchDocument: a Team flattened with the names of its league, location, country and region.
+ * <p>
+ * It only lives in the search index, so that teams can be searched by any level of their hierarchy with a
+ * single query. Its id is the id of the team. The names are analyzed for the searches, and also indexed as
+ * single terms in their <code>raw</code> sub-field for the facets, see the mapping. The raw sub-fields are only
+ * filled for the documents indexed with the mapping: reindex the teams once to facet the existing ones.
+ */
+@Document(indexName = "teamsearch")
+@Mapping(mappingPath = "/config/elasticsearch/teamsearch.json")
+public class TeamSearchDocument implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Long id;
+
+    private Long teamId;
+
+    private String teamName;
+
+    private Long leagueId;
+
+    private String leagueName;
+
+    private Long locationId;
+
+    private String city;
+
+    private Long countryId;
+
+    private String countryName;
+
+    private Long regionId;
+
+    private String regionName;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    public Long getLeagueId() {
+        return leagueId;
+    }
+
+    public void setLeagueId(Long leagueId) {
+        this.leagueId = leagueId;
+    }
+
+    public String getLeagueName() {
+        return leagueName;
+    }
+
+    public void setLeagueName(String leagueName) {
+        this.leagueName = leagueName;
+    }
+
+    public Long getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(Long locationId) {
+        this.locationId = locationId;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public Long getCountryId() {
+        return countryId;
+    }
+
+    public void setCountryId(Long countryId) {
+        this.countryId = countryId;
+    }
+
+    public String getCountryName() {
+        return countryName;
+    }
+
+    public void setCountryName(String countryName) {
+        this.countryName = countryName;
+    }
+
+    public Long getRegionId() {
+        return regionId;
+    }
+
+    public void setRegionId(Long regionId) {
+        this.regionId = regionId;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public void setRegionName(String regionName) {
+        this.regionName = regionName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TeamSearchDocument teamSearchDocument = (TeamSearchDocument) o;
+        if(teamSearchDocument.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, teamSearchDocument.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "TeamSearchDocument{" +
+            "id=" + id +
+            ", teamId='" + teamId + "'" +
+            ", teamName='" + teamName + "'" +
+            ", leagueName='" + leagueName + "'" +
+            ", city='" + city + "'" +
+            ", countryName='" + countryName + "'" +
+            ", regionName='" + regionName + "'" +
+            '}';
+    }
+}
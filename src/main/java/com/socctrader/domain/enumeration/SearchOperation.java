@@ -0,0 +1,8 @@
+package com.socctrader.domain.enumeration;
+
+/**
+ * The SearchOperation enumeration, what a {@link com.socctrader.domain.SearchOutboxEvent} does to the search index.
+ */
+public enum SearchOperation {
+    INDEX,DELETE
+}
@@ -0,0 +1,43 @@
+package com.socctrader.domain.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.socctrader.domain.Money;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Jackson (de)serializers exposing an amount of minor units as a decimal number, for example 1234 as 12.34.
+ * <p>
+ * Amounts with more than {@value Money#SCALE} fraction digits are rejected rather than rounded.
+ */
+public final class MinorUnitsJsonConverters {
+
+    private MinorUnitsJsonConverters() {}
+
+    public static class MinorUnitsSerializer extends JsonSerializer<Long> {
+
+        @Override
+        public void serialize(Long minorUnits, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(Money.toBigDecimal(minorUnits));
+        }
+    }
+
+    public static class MinorUnitsDeserializer extends JsonDeserializer<Long> {
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            BigDecimal amount = parser.getDecimalValue();
+            try {
+                return Money.toMinorUnits(amount);
+            } catch (ArithmeticException e) {
+                throw context.weirdNumberException(amount, Long.class, "not a valid amount of money");
+            }
+        }
+    }
+}
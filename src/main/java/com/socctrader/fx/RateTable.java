@@ -0,0 +1,139 @@
+package com.socctrader.fx;
+
+import com.socctrader.domain.enumeration.Currency;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable snapshot of the exchange rates between all currencies.
+ * <p>
+ * Rates are fixed-point longs with {@value #RATE_DECIMALS} decimals, stored in a flat array indexed by
+ * currency ordinals, so that a conversion is a few integer operations without any allocation.
+ * A new table is built for every snapshot of the feed and published by swapping the reference,
+ * readers never need a lock.
+ */
+public final class RateTable {
+
+    public static final int RATE_DECIMALS = 6;
+
+    public static final long RATE_SCALE = 1_000_000L;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final long[] rates;
+
+    private final Instant asOf;
+
+    private RateTable(long[] rates, Instant asOf) {
+        this.rates = rates;
+        this.asOf = asOf;
+    }
+
+    /**
+     * Build a table from the value of one unit of a base currency in every currency.
+     *
+     * @param base the base currency
+     * @param valuesOfBase the number of units of each currency for one unit of the base currency
+     * @param asOf the time of the snapshot
+     * @return the rate table
+     */
+    public static RateTable of(Currency base, Map<Currency, BigDecimal> valuesOfBase, Instant asOf) {
+        long[] values = new long[CURRENCIES.length];
+        for (Currency currency : CURRENCIES) {
+            BigDecimal value = currency == base ? BigDecimal.ONE : valuesOfBase.get(currency);
+            if (value == null || value.signum() <= 0) {
+                throw new IllegalArgumentException("Missing or invalid rate for " + currency);
+            }
+            values[currency.ordinal()] = value.movePointRight(RATE_DECIMALS).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        }
+        long[] rates = new long[CURRENCIES.length * CURRENCIES.length];
+        for (Currency from : CURRENCIES) {
+            for (Currency to : CURRENCIES) {
+                long fromValue = values[from.ordinal()];
+                rates[from.ordinal() * CURRENCIES.length + to.ordinal()] =
+                    (Math.multiplyExact(values[to.ordinal()], RATE_SCALE) + fromValue / 2) / fromValue;
+            }
+        }
+        return new RateTable(rates, asOf);
+    }
+
+    /**
+     * Parse a snapshot in properties format: a <code>base</code> currency, an <code>asOf</code> ISO-8601 instant,
+     * and the value of one unit of the base currency for each currency code.
+     *
+     * @param in the snapshot
+     * @return the rate table
+     * @throws IOException if the snapshot cannot be read
+     */
+    public static RateTable parse(InputStream in) throws IOException {
+        Properties snapshot = new Properties();
+        snapshot.load(in);
+        Currency base = Currency.valueOf(snapshot.getProperty("base", Currency.EUR.name()));
+        String asOf = snapshot.getProperty("asOf");
+        Map<Currency, BigDecimal> valuesOfBase = new EnumMap<>(Currency.class);
+        for (Currency currency : CURRENCIES) {
+            String value = snapshot.getProperty(currency.name());
+            if (value != null) {
+                valuesOfBase.put(currency, new BigDecimal(value.trim()));
+            }
+        }
+        return of(base, valuesOfBase, asOf == null ? Instant.now() : Instant.parse(asOf.trim()));
+    }
+
+    /**
+     * @return the rate from a currency to another, with {@value #RATE_DECIMALS} decimals
+     */
+    public long getRate(Currency from, Currency to) {
+        return rates[from.ordinal() * CURRENCIES.length + to.ordinal()];
+    }
+
+    /**
+     * Convert an amount of minor units, rounding half away from zero.
+     *
+     * @param amount the amount, in minor units of the source currency
+     * @param from the source currency
+     * @param to the target currency
+     * @return the amount in minor units of the target currency
+     * @throws ArithmeticException if the result overflows
+     */
+    public long convert(long amount, Currency from, Currency to) {
+        if (from == to) {
+            return amount;
+        }
+        long rate = rates[from.ordinal() * CURRENCIES.length + to.ordinal()];
+        // Split the rate so that the intermediate products stay far from overflowing
+        long whole = Math.multiplyExact(amount, rate / RATE_SCALE);
+        long fraction = Math.multiplyExact(amount, rate % RATE_SCALE);
+        long rounded = fraction / RATE_SCALE;
+        long remainder = fraction % RATE_SCALE;
+        if (Math.abs(remainder) * 2 >= RATE_SCALE) {
+            rounded += Long.signum(remainder);
+        }
+        return Math.addExact(whole, rounded);
+    }
+
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RateTable{asOf=").append(asOf);
+        for (Currency from : CURRENCIES) {
+            for (Currency to : CURRENCIES) {
+                if (from != to) {
+                    builder.append(", ").append(from).append('/').append(to).append('=')
+                        .append(BigDecimal.valueOf(getRate(from, to), RATE_DECIMALS));
+                }
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Foreign exchange rate tables and fixed-point currency conversion.
+ */
+package com.socctrader.fx;
@@ -0,0 +1,444 @@
+package com.socctrader.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of opaque records, stored in memory-mapped segment files.
+ * <p>
+ * Each record is written as <code>[payload length][CRC32][sequence][payload]</code>, where the checksum
+ * covers the sequence and the payload, so a torn write at the end of a segment is detected and
+ * discarded when the journal is reopened.
+ * <p>
+ * Appends are group committed: a single writer thread takes up to <code>groupCommitSize</code> pending
+ * records, or what arrived within <code>groupCommitMillis</code>, writes them and forces the segment to
+ * disk once for the whole group. The future returned by {@link #append(byte[])} completes after that
+ * force, and only forced records are visible to {@link #read(long, int)}. When a group fails to be
+ * written or forced, its records are erased and the sequences reused, so they are never applied.
+ */
+public class Journal implements Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(Journal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int groupCommitSize;
+
+    private final long groupCommitMillis;
+
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final BlockingQueue<PendingAppend> pending = new LinkedBlockingQueue<>();
+
+    private volatile Segment current;
+
+    private long nextSequence = 1;
+
+    private volatile long committedSequence;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    // Read cursor, so that sequential reads resume where the previous one stopped
+    private long cursorSequence = -1;
+
+    private Segment cursorSegment;
+
+    private int cursorPosition;
+
+    public Journal(Path directory, int segmentSize, int groupCommitSize, long groupCommitMillis) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.groupCommitSize = groupCommitSize;
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    /**
+     * Open the journal, recovering the segments already on disk, and start the writer thread.
+     *
+     * @throws IOException if the segments cannot be read
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort((a, b) -> Long.compare(firstSequenceOf(a), firstSequenceOf(b)));
+        for (Path file : files) {
+            Segment segment = Segment.map(file, firstSequenceOf(file), segmentSize);
+            segment.recover();
+            if (!segments.isEmpty() && segment.firstSequence != nextSequence) {
+                log.error("Journal segment {} does not follow sequence {}, ignoring it", file, nextSequence - 1);
+                segment.close();
+                continue;
+            }
+            segments.put(segment.firstSequence, segment);
+            nextSequence = segment.lastSequence + 1;
+            current = segment;
+        }
+        committedSequence = nextSequence - 1;
+        if (current == null) {
+            current = newSegment();
+        }
+        log.info("Opened journal {} at sequence {}", directory, committedSequence);
+        running = true;
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Append a record to the journal.
+     *
+     * @param payload the record content
+     * @return a future completed with the sequence of the record, once it is durable
+     */
+    public CompletableFuture<Long> append(byte[] payload) {
+        if (!running) {
+            throw new IllegalStateException("Journal " + directory + " is not open");
+        }
+        if (payload.length + HEADER_SIZE > segmentSize - 4) {
+            throw new IllegalArgumentException("Journal record of " + payload.length + " bytes exceeds the segment size");
+        }
+        PendingAppend append = new PendingAppend(payload);
+        pending.add(append);
+        return append.future;
+    }
+
+    /**
+     * @return the sequence of the last durable record, 0 if the journal is empty
+     */
+    public long getCommittedSequence() {
+        return committedSequence;
+    }
+
+    /**
+     * Read durable records, in sequence order.
+     *
+     * @param afterSequence only read the records following this sequence
+     * @param max the maximum number of records to read
+     * @return the records, empty if there is no durable record after the given sequence
+     */
+    public synchronized List<JournalRecord> read(long afterSequence, int max) {
+        List<JournalRecord> records = new ArrayList<>();
+        long committed = committedSequence;
+        if (afterSequence >= committed) {
+            return records;
+        }
+        Segment segment;
+        int position;
+        if (afterSequence == cursorSequence && cursorSegment != null) {
+            segment = cursorSegment;
+            position = cursorPosition;
+        } else {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(afterSequence + 1);
+            if (entry == null) {
+                entry = segments.firstEntry();
+            }
+            segment = entry.getValue();
+            position = 0;
+        }
+        long sequence = afterSequence;
+        while (records.size() < max && sequence < committed) {
+            ByteBuffer buffer = segment.buffer.duplicate();
+            buffer.position(position);
+            int length = buffer.remaining() >= HEADER_SIZE ? buffer.getInt() : 0;
+            if (length == 0) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(segment.firstSequence);
+                if (next == null) {
+                    break;
+                }
+                segment = next.getValue();
+                position = 0;
+                continue;
+            }
+            buffer.getInt();
+            long recordSequence = buffer.getLong();
+            position += HEADER_SIZE + length;
+            if (recordSequence > afterSequence && recordSequence <= committed) {
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                records.add(new JournalRecord(recordSequence, payload));
+                sequence = recordSequence;
+            }
+        }
+        cursorSequence = sequence;
+        cursorSegment = segment;
+        cursorPosition = position;
+        return records;
+    }
+
+    /**
+     * Delete the segments whose records all have a sequence lower than or equal to the given one.
+     * The segment being written is never deleted.
+     *
+     * @param uptoSequence the sequence up to which records are not needed anymore
+     */
+    public synchronized void release(long uptoSequence) {
+        for (Segment segment : segments.values()) {
+            if (segment == current || segment.lastSequence > uptoSequence) {
+                break;
+            }
+            segments.remove(segment.firstSequence);
+            if (segment == cursorSegment) {
+                cursorSegment = null;
+            }
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.file);
+                log.debug("Deleted journal segment {}", segment.file);
+            } catch (IOException e) {
+                log.warn("Could not delete journal segment {}: {}", segment.file, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        segments.values().forEach(Segment::close);
+        log.info("Closed journal {} at sequence {}", directory, committedSequence);
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>(groupCommitSize);
+        CRC32 crc = new CRC32();
+        while (running) {
+            try {
+                PendingAppend first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+                while (group.size() < groupCommitSize) {
+                    PendingAppend next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group, crc);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                log.error("Journal group commit of {} records failed", group.size(), e);
+                group.forEach(append -> append.future.completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+        List<PendingAppend> remaining = new ArrayList<>();
+        pending.drainTo(remaining);
+        remaining.forEach(append -> append.future.completeExceptionally(new IllegalStateException("Journal closed")));
+    }
+
+    private void commit(List<PendingAppend> group, CRC32 crc) throws IOException {
+        Segment first = current;
+        int firstPosition = first.buffer.position();
+        long firstLastSequence = first.lastSequence;
+        long firstSequence = nextSequence;
+        List<Segment> written = new ArrayList<>(2);
+        written.add(current);
+        long[] sequences = new long[group.size()];
+        // The positions of the records of the group written to the first segment
+        List<Integer> starts = new ArrayList<>(group.size());
+        try {
+            for (int i = 0; i < group.size(); i++) {
+                byte[] payload = group.get(i).payload;
+                // Keep 4 bytes free at the end of a segment for the zero length marking its end
+                if (current.buffer.position() + HEADER_SIZE + payload.length > segmentSize - 4) {
+                    current = newSegment();
+                    written.add(current);
+                }
+                long sequence = nextSequence++;
+                crc.reset();
+                crc.update(longToBytes(sequence));
+                crc.update(payload);
+                MappedByteBuffer buffer = current.buffer;
+                int start = buffer.position();
+                if (current == first) {
+                    starts.add(start);
+                }
+                // The length is written last, so a reader never sees a partially written record
+                buffer.position(start + 4);
+                buffer.putInt((int) crc.getValue());
+                buffer.putLong(sequence);
+                buffer.put(payload);
+                buffer.putInt(start, payload.length);
+                current.lastSequence = sequence;
+                sequences[i] = sequence;
+            }
+            for (Segment segment : written) {
+                segment.buffer.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            rollback(written, starts, firstPosition, firstLastSequence, firstSequence);
+            throw e;
+        }
+        committedSequence = sequences[sequences.length - 1];
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).future.complete(sequences[i]);
+        }
+    }
+
+    /**
+     * Undo a group that failed before being committed, so that its records are never read nor recovered,
+     * and the next group reuses its sequences: the appends of the group all fail.
+     */
+    private void rollback(List<Segment> written, List<Integer> starts, int firstPosition, long firstLastSequence,
+                          long firstSequence) {
+        Segment first = written.get(0);
+        // A record left behind could pass the recovery checks once the next group overwrites part of it
+        for (int start : starts) {
+            first.buffer.putInt(start, 0);
+        }
+        first.buffer.position(firstPosition);
+        first.lastSequence = firstLastSequence;
+        synchronized (this) {
+            for (Segment segment : written.subList(1, written.size())) {
+                segments.remove(segment.firstSequence);
+                if (segment == cursorSegment) {
+                    cursorSegment = null;
+                }
+                segment.close();
+                try {
+                    Files.deleteIfExists(segment.file);
+                } catch (IOException e) {
+                    log.warn("Could not delete journal segment {}: {}", segment.file, e.getMessage());
+                }
+            }
+        }
+        current = first;
+        nextSequence = firstSequence;
+    }
+
+    private Segment newSegment() throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX));
+        Segment segment = Segment.map(file, nextSequence, segmentSize);
+        segments.put(segment.firstSequence, segment);
+        log.debug("Created journal segment {}", file);
+        return segment;
+    }
+
+    private static long firstSequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] longToBytes(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+
+    private static final class PendingAppend {
+
+        private final byte[] payload;
+
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingAppend(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private final long firstSequence;
+
+        private volatile long lastSequence;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer, long firstSequence) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.firstSequence = firstSequence;
+            this.lastSequence = firstSequence - 1;
+        }
+
+        private static Segment map(Path file, long firstSequence, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(file, channel, buffer, firstSequence);
+        }
+
+        /**
+         * Scan the records of the segment, stopping at the first one that is incomplete or corrupted,
+         * and position the buffer after the last valid one.
+         */
+        private void recover() {
+            CRC32 crc = new CRC32();
+            ByteBuffer scan = buffer.duplicate();
+            int position = 0;
+            long expected = firstSequence;
+            while (scan.remaining() >= HEADER_SIZE) {
+                scan.position(position);
+                int length = scan.getInt();
+                if (length <= 0 || length > scan.remaining() - (HEADER_SIZE - 4)) {
+                    break;
+                }
+                int checksum = scan.getInt();
+                long sequence = scan.getLong();
+                byte[] payload = new byte[length];
+                scan.get(payload);
+                crc.reset();
+                crc.update(longToBytes(sequence));
+                crc.update(payload);
+                if (sequence != expected || (int) crc.getValue() != checksum) {
+                    break;
+                }
+                position += HEADER_SIZE + length;
+                lastSequence = sequence;
+                expected++;
+            }
+            // Erase a torn record, so that it is not mistaken for a valid one later
+            if (position + 4 <= buffer.capacity()) {
+                buffer.putInt(position, 0);
+            }
+            buffer.position(position);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LoggerFactory.getLogger(Journal.class).warn("Could not close journal segment {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
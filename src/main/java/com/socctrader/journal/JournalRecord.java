@@ -0,0 +1,24 @@
+package com.socctrader.journal;
+
+/**
+ * A record read back from a {@link Journal}.
+ */
+public final class JournalRecord {
+
+    private final long sequence;
+
+    private final byte[] payload;
+
+    public JournalRecord(long sequence, byte[] payload) {
+        this.sequence = sequence;
+        this.payload = payload;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Append-only, checksummed journal with group commit.
+ */
+package com.socctrader.journal;
@@ -0,0 +1,42 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.Balance;
+import com.socctrader.domain.enumeration.Currency;
+
+import org.springframework.data.jpa.repository.*;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the Balance entity.
+ */
+@SuppressWarnings("unused")
+public interface BalanceRepository extends JpaRepository<Balance,Long> {
+
+    List<Balance> findByUserLogin(String userLogin);
+
+    Balance findOneByUserLoginAndCurrency(String userLogin, Currency currency);
+
+    @Query("select distinct balance.userLogin from Balance balance")
+    List<String> findDistinctUserLogins();
+
+    /**
+     * Reads the amount of a balance as a scalar, so that it reflects the updates made
+     * by {@link #addToAmount} even when the Balance entity is already in the persistence context.
+     *
+     * @return the amount, or null if the balance does not exist yet
+     */
+    @Query("select balance.amount from Balance balance where balance.userLogin = ?1 and balance.currency = ?2")
+    Long findAmountByUserLoginAndCurrency(String userLogin, Currency currency);
+
+    /**
+     * Adds a delta to a balance in a single UPDATE statement, so concurrent
+     * transactions never lose each other's increments.
+     *
+     * @return the number of updated rows, 0 if the balance does not exist yet
+     */
+    @Modifying
+    @Query("update Balance balance set balance.amount = balance.amount + ?3 where balance.userLogin = ?1 and balance.currency = ?2")
+    int addToAmount(String userLogin, Currency currency, Long delta);
+
+}
@@ -2,8 +2,11 @@ package com.socctrader.repository;
 
 import com.socctrader.domain.Country;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +15,21 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface CountryRepository extends JpaRepository<Country,Long> {
 
+    List<Country> findByIdGreaterThan(Long id, Pageable pageable);
+
+    String SELECT_WITH_HIERARCHY = "select country from Country country " +
+        "left join fetch country.region region ";
+
+    @Query(SELECT_WITH_HIERARCHY + "order by country.id")
+    List<Country> findAllWithHierarchy();
+
+    @Query(SELECT_WITH_HIERARCHY + "where country.id > :id order by country.id")
+    List<Country> findWithHierarchyByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_WITH_HIERARCHY + "where country.id = :id")
+    Country findOneWithHierarchy(@Param("id") Long id);
+
+    @Query(SELECT_WITH_HIERARCHY + "where country.id in :ids")
+    List<Country> findWithHierarchyByIdIn(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,11 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.FinancialActionDailyRollup;
+
+/**
+ * Spring Data JPA repository for the FinancialActionDailyRollup entity.
+ */
+@SuppressWarnings("unused")
+public interface FinancialActionDailyRollupRepository extends FinancialActionRollupRepository<FinancialActionDailyRollup> {
+
+}
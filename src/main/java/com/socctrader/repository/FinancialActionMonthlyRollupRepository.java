@@ -0,0 +1,11 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.FinancialActionMonthlyRollup;
+
+/**
+ * Spring Data JPA repository for the FinancialActionMonthlyRollup entity.
+ */
+@SuppressWarnings("unused")
+public interface FinancialActionMonthlyRollupRepository extends FinancialActionRollupRepository<FinancialActionMonthlyRollup> {
+
+}
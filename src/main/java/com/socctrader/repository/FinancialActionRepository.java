@@ -2,8 +2,11 @@ package com.socctrader.repository;
 
 import com.socctrader.domain.FinancialAction;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 /**
@@ -12,7 +15,53 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface FinancialActionRepository extends JpaRepository<FinancialAction,Long> {
 
-    @Query("select financialAction from FinancialAction financialAction where financialAction.user.login = ?#{principal.username}")
+    @Query("select financialAction from FinancialAction financialAction where financialAction.userLogin = ?#{principal.username}")
     List<FinancialAction> findByUserIsCurrentUser();
 
+    /**
+     * @return the login of the owner of a financialAction, or null if it does not exist
+     */
+    @Query("select financialAction.userLogin from FinancialAction financialAction where financialAction.id = ?1")
+    String findUserLoginById(Long id);
+
+    @Query("select distinct financialAction.userLogin from FinancialAction financialAction")
+    List<String> findDistinctUserLogins();
+
+    /**
+     * Sums the signed amounts (deposits positive, withdrawals negative) of the financialActions
+     * of a user, grouped by currency.
+     *
+     * @return rows of [currency, sum]
+     */
+    @Query("select financialAction.currency, " +
+        "sum(case when financialAction.action = com.socctrader.domain.enumeration.Action.WITHDRAW " +
+        "then -financialAction.amount else financialAction.amount end) " +
+        "from FinancialAction financialAction where financialAction.userLogin = ?1 " +
+        "group by financialAction.currency")
+    List<Object[]> sumAmountsByCurrency(String userLogin);
+
+    List<FinancialAction> findByIdGreaterThan(Long id, Pageable pageable);
+
+    @Query("select min(financialAction.createdDate) from FinancialAction financialAction where financialAction.createdDate > ?1")
+    ZonedDateTime findMinCreatedDateAfter(ZonedDateTime createdDate);
+
+    @Query("select distinct financialAction.actionDate from FinancialAction financialAction " +
+        "where financialAction.createdDate > ?1 and financialAction.actionDate is not null")
+    List<LocalDate> findDistinctActionDatesCreatedAfter(ZonedDateTime createdDate);
+
+    /**
+     * Counts and sums the amounts of a creation time range and an action date range, grouped by user login,
+     * currency, action and action date.
+     *
+     * @return rows of [login, currency, action, actionDate, count, sum]
+     */
+    @Query("select financialAction.userLogin, financialAction.currency, financialAction.action, financialAction.actionDate, " +
+        "count(financialAction), sum(financialAction.amount) " +
+        "from FinancialAction financialAction " +
+        "where financialAction.createdDate > ?1 and financialAction.createdDate <= ?2 " +
+        "and financialAction.actionDate between ?3 and ?4 " +
+        "and financialAction.currency is not null and financialAction.action is not null " +
+        "group by financialAction.userLogin, financialAction.currency, financialAction.action, financialAction.actionDate")
+    List<Object[]> summarize(ZonedDateTime createdAfter, ZonedDateTime createdUntil, LocalDate fromDate, LocalDate toDate);
+
 }
@@ -0,0 +1,21 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.FinancialActionRollupDirtyDay;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the FinancialActionRollupDirtyDay entity.
+ */
+public interface FinancialActionRollupDirtyDayRepository extends JpaRepository<FinancialActionRollupDirtyDay,Long> {
+
+    @Query("select dirtyDay from FinancialActionRollupDirtyDay dirtyDay order by dirtyDay.id")
+    List<FinancialActionRollupDirtyDay> findOldest(Pageable pageable);
+
+    @Modifying
+    @Query("delete from FinancialActionRollupDirtyDay dirtyDay where dirtyDay.id in ?1")
+    int deleteByIdIn(List<Long> ids);
+}
@@ -0,0 +1,40 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.AbstractFinancialActionRollup;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository shared by the FinancialAction rollup entities.
+ */
+@NoRepositoryBean
+public interface FinancialActionRollupRepository<T extends AbstractFinancialActionRollup> extends JpaRepository<T, Long> {
+
+    /**
+     * Adds a number of actions and an amount to a rollup in a single UPDATE statement.
+     *
+     * @return the number of updated rows, 0 if the rollup does not exist yet
+     */
+    @Modifying
+    @Query("update #{#entityName} rollup set rollup.actionCount = rollup.actionCount + ?5, rollup.amount = rollup.amount + ?6 " +
+        "where rollup.periodStart = ?1 and rollup.userLogin = ?2 and rollup.currency = ?3 and rollup.action = ?4")
+    int addTo(LocalDate periodStart, String userLogin, Currency currency, Action action, Long actionCount, Long amount);
+
+    @Modifying
+    @Query("delete from #{#entityName} rollup where rollup.periodStart between ?1 and ?2")
+    int deleteByPeriodStartBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Get the rollups of a period range, the null filters matching everything.
+     */
+    @Query("select rollup from #{#entityName} rollup where rollup.periodStart between ?1 and ?2 " +
+        "and (?3 is null or rollup.userLogin = ?3) and (?4 is null or rollup.currency = ?4) and (?5 is null or rollup.action = ?5) " +
+        "order by rollup.periodStart, rollup.userLogin, rollup.currency, rollup.action")
+    List<T> findAllInPeriod(LocalDate from, LocalDate to, String userLogin, Currency currency, Action action);
+}
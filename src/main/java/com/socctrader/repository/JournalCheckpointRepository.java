@@ -0,0 +1,20 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.JournalCheckpoint;
+
+import org.springframework.data.jpa.repository.*;
+
+import javax.persistence.LockModeType;
+
+/**
+ * Spring Data JPA repository for the JournalCheckpoint entity.
+ */
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint,String> {
+
+    /**
+     * Get a checkpoint and lock its row until the end of the transaction, to serialize the writers of a stream.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select checkpoint from JournalCheckpoint checkpoint where checkpoint.name = ?1")
+    JournalCheckpoint findOneForUpdate(String name);
+}
@@ -2,8 +2,11 @@ package com.socctrader.repository;
 
 import com.socctrader.domain.League;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +15,23 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface LeagueRepository extends JpaRepository<League,Long> {
 
+    List<League> findByIdGreaterThan(Long id, Pageable pageable);
+
+    String SELECT_WITH_HIERARCHY = "select league from League league " +
+        "left join fetch league.location location " +
+        "left join fetch location.country country " +
+        "left join fetch country.region region ";
+
+    @Query(SELECT_WITH_HIERARCHY + "order by league.id")
+    List<League> findAllWithHierarchy();
+
+    @Query(SELECT_WITH_HIERARCHY + "where league.id > :id order by league.id")
+    List<League> findWithHierarchyByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_WITH_HIERARCHY + "where league.id = :id")
+    League findOneWithHierarchy(@Param("id") Long id);
+
+    @Query(SELECT_WITH_HIERARCHY + "where league.id in :ids")
+    List<League> findWithHierarchyByIdIn(@Param("ids") Collection<Long> ids);
+
 }
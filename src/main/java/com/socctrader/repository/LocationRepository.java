@@ -2,8 +2,11 @@ package com.socctrader.repository;
 
 import com.socctrader.domain.Location;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +15,22 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface LocationRepository extends JpaRepository<Location,Long> {
 
+    List<Location> findByIdGreaterThan(Long id, Pageable pageable);
+
+    String SELECT_WITH_HIERARCHY = "select location from Location location " +
+        "left join fetch location.country country " +
+        "left join fetch country.region region ";
+
+    @Query(SELECT_WITH_HIERARCHY + "order by location.id")
+    List<Location> findAllWithHierarchy();
+
+    @Query(SELECT_WITH_HIERARCHY + "where location.id > :id order by location.id")
+    List<Location> findWithHierarchyByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_WITH_HIERARCHY + "where location.id = :id")
+    Location findOneWithHierarchy(@Param("id") Long id);
+
+    @Query(SELECT_WITH_HIERARCHY + "where location.id in :ids")
+    List<Location> findWithHierarchyByIdIn(@Param("ids") Collection<Long> ids);
+
 }
@@ -2,8 +2,10 @@ package com.socctrader.repository;
 
 import com.socctrader.domain.Region;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +14,8 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface RegionRepository extends JpaRepository<Region,Long> {
 
+    List<Region> findByIdGreaterThan(Long id, Pageable pageable);
+
+    List<Region> findByIdIn(Collection<Long> ids);
+
 }
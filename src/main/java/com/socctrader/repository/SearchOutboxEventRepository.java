@@ -0,0 +1,32 @@
+package com.socctrader.repository;
+
+import com.socctrader.domain.SearchOutboxEvent;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the SearchOutboxEvent entity.
+ */
+public interface SearchOutboxEventRepository extends JpaRepository<SearchOutboxEvent,Long> {
+
+    @Query("select event from SearchOutboxEvent event where event.attempts < ?1 " +
+        "and (event.retryDate is null or event.retryDate <= ?2) order by event.id")
+    List<SearchOutboxEvent> findPending(int maxAttempts, ZonedDateTime now, Pageable pageable);
+
+    @Query("select count(event) from SearchOutboxEvent event where event.attempts < ?1")
+    long countPending(int maxAttempts);
+
+    @Query("select min(event.createdDate) from SearchOutboxEvent event where event.attempts < ?1")
+    ZonedDateTime findOldestPendingCreatedDate(int maxAttempts);
+
+    @Query("select count(event) from SearchOutboxEvent event where event.attempts >= ?1")
+    long countAbandoned(int maxAttempts);
+
+    @Modifying
+    @Query("delete from SearchOutboxEvent event where event.id in ?1")
+    int deleteByIdIn(List<Long> ids);
+}
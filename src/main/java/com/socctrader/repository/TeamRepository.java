@@ -1,9 +1,17 @@
 package com.socctrader.repository;
 
 import com.socctrader.domain.Team;
+import com.socctrader.service.dto.TeamDTO;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,4 +20,51 @@ import java.util.List;
 @SuppressWarnings("unused")
 public interface TeamRepository extends JpaRepository<Team,Long> {
 
+    List<Team> findByIdGreaterThan(Long id, Pageable pageable);
+
+    String SELECT_WITH_HIERARCHY = "select team from Team team " +
+        "left join fetch team.league league " +
+        "left join fetch league.location location " +
+        "left join fetch location.country country " +
+        "left join fetch country.region region ";
+
+    @Query(SELECT_WITH_HIERARCHY + "order by team.id")
+    List<Team> findAllWithHierarchy();
+
+    @Query(value = SELECT_WITH_HIERARCHY, countQuery = "select count(team) from Team team")
+    Page<Team> findAllWithHierarchy(Pageable pageable);
+
+    @Query(SELECT_WITH_HIERARCHY + "where team.id > :id order by team.id")
+    List<Team> findWithHierarchyByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_WITH_HIERARCHY + "where team.id = :id")
+    Team findOneWithHierarchy(@Param("id") Long id);
+
+    /*
+     * The *DTO methods select the columns of the TeamDTOs directly, without loading any entity in the persistence
+     * context: there is nothing to map, to snapshot for dirty checking, or to flush.
+     */
+    String SELECT_DTO = "select new com.socctrader.service.dto.TeamDTO(team.id, team.teamId, team.teamName, league.id) " +
+        "from Team team left join team.league league ";
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(SELECT_DTO + "order by team.id")
+    List<TeamDTO> findAllDTOs();
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(value = SELECT_DTO, countQuery = "select count(team) from Team team")
+    Page<TeamDTO> findAllDTOs(Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(SELECT_DTO + "where team.id = :id")
+    TeamDTO findOneDTO(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    @Query(SELECT_DTO + "where team.id in :ids")
+    List<TeamDTO> findDTOsByIdIn(@Param("ids") Collection<Long> ids);
+
 }
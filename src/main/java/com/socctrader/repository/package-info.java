@@ -1,4 +1,8 @@
 /**
  * Spring Data JPA repositories.
+ * <p>
+ * The <code>*WithHierarchy</code> methods of the Country, Location, League and Team repositories select from their
+ * <code>SELECT_WITH_HIERARCHY</code> query, which fetches all the parents of the entities in the same query, instead
+ * of one query per entity and level when they are serialized.
  */
 package com.socctrader.repository;
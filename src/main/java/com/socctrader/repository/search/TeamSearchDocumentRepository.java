@@ -0,0 +1,10 @@
+package com.socctrader.repository.search;
+
+import com.socctrader.domain.TeamSearchDocument;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+
+/**
+ * Spring Data ElasticSearch repository for the TeamSearchDocument, the flattened team hierarchy.
+ */
+public interface TeamSearchDocumentRepository extends ElasticsearchRepository<TeamSearchDocument, Long> {
+}
@@ -0,0 +1,264 @@
+package com.socctrader.service;
+
+import com.socctrader.config.Constants;
+import com.socctrader.domain.Balance;
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.domain.Money;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.fx.RateTable;
+import com.socctrader.repository.BalanceRepository;
+import com.socctrader.repository.FinancialActionRepository;
+import com.socctrader.security.SecurityUtils;
+import com.socctrader.web.rest.dto.ExposureDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Service maintaining the per user, per currency Balance of FinancialActions.
+ * <p>
+ * Balances are keyed by the owner of the financialAction, see {@link FinancialAction#getUserLogin()}.
+ * They are updated incrementally in the caller's transaction, and can be recomputed from the whole
+ * action history with {@link #rebuild()}.
+ */
+@Service
+@Transactional
+public class BalanceService {
+
+    private final Logger log = LoggerFactory.getLogger(BalanceService.class);
+
+    @Inject
+    private BalanceRepository balanceRepository;
+
+    @Inject
+    private FinancialActionRepository financialActionRepository;
+
+    @Inject
+    private FxService fxService;
+
+    @Inject
+    private UserSequencer userSequencer;
+
+    @Inject
+    private FundsReservationService fundsReservationService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Adds a new financialAction to the balance of its owner.
+     *
+     * @param financialAction the created financialAction
+     */
+    public void record(FinancialAction financialAction) {
+        apply(financialAction.getUserLogin(), financialAction.getCurrency(), signedAmount(financialAction));
+    }
+
+    /**
+     * Removes a financialAction from the balance of its owner. Must be called before
+     * the financialAction is updated or deleted, with its persisted state.
+     *
+     * @param financialAction the financialAction as currently stored
+     */
+    public void reverse(FinancialAction financialAction) {
+        apply(financialAction.getUserLogin(), financialAction.getCurrency(), Math.negateExact(signedAmount(financialAction)));
+    }
+
+    /**
+     * Checks that the balance of its owner covers a new financialAction. Only withdrawals can overdraw a balance.
+     * The funds reserved by the journaled withdrawals not applied yet are not available.
+     * <p>
+     * The check is only meaningful while the mutations of the owner are serialized, see {@link UserSequencer}.
+     *
+     * @param financialAction the financialAction about to be recorded
+     * @throws InsufficientFundsException if the withdrawal exceeds the balance
+     */
+    @Transactional(readOnly = true, noRollbackFor = InsufficientFundsException.class)
+    public void checkFunds(FinancialAction financialAction) {
+        checkFunds(financialAction, Collections.emptySet());
+    }
+
+    /**
+     * Checks that the balance of its owner covers a new financialAction, like {@link #checkFunds(FinancialAction)}.
+     *
+     * @param financialAction the financialAction about to be recorded
+     * @param excludedReservations the keys of the reservations still counted though their withdrawals are recorded,
+     * see {@link FundsReservationService}
+     * @throws InsufficientFundsException if the withdrawal exceeds the balance
+     */
+    @Transactional(readOnly = true, noRollbackFor = InsufficientFundsException.class)
+    public void checkFunds(FinancialAction financialAction, Set<String> excludedReservations) {
+        String login = financialAction.getUserLogin();
+        if (financialAction.getAction() != Action.WITHDRAW || financialAction.getAmount() == null
+            || financialAction.getCurrency() == null || financialAction.getAmount() <= 0) {
+            return;
+        }
+        long available = getAvailable(login, financialAction.getCurrency(), excludedReservations);
+        if (available < financialAction.getAmount()) {
+            throw new InsufficientFundsException(login, financialAction.getCurrency(),
+                available, financialAction.getAmount());
+        }
+    }
+
+    /**
+     * Checks that reversing a financialAction did not overdraw the balance of its owner, which happens
+     * when a deposit already spent is updated or deleted. Must be called after the reversal, and after
+     * recording the updated financialAction if any.
+     *
+     * @param financialAction the reversed financialAction
+     * @throws InsufficientFundsException if the balance is overdrawn
+     */
+    @Transactional(readOnly = true, noRollbackFor = InsufficientFundsException.class)
+    public void checkReversal(FinancialAction financialAction) {
+        if (financialAction.getAction() != Action.DEPOSIT || financialAction.getAmount() == null
+            || financialAction.getCurrency() == null || financialAction.getAmount() <= 0) {
+            return;
+        }
+        String login = financialAction.getUserLogin();
+        long available = getAvailable(login, financialAction.getCurrency(), Collections.emptySet());
+        if (available < 0) {
+            throw new InsufficientFundsException(login, financialAction.getCurrency(),
+                Money.add(available, financialAction.getAmount()), financialAction.getAmount());
+        }
+    }
+
+    private long getAvailable(String login, Currency currency, Set<String> excludedReservations) {
+        Long amount = balanceRepository.findAmountByUserLoginAndCurrency(login, currency);
+        return Money.subtract(amount == null ? 0 : amount,
+            fundsReservationService.getReserved(login, currency, excludedReservations));
+    }
+
+    /**
+     * Get the balances of the current user.
+     *
+     * @return the list of balances, one per currency
+     */
+    @Transactional(readOnly = true)
+    public List<Balance> findCurrentUserBalances() {
+        return balanceRepository.findByUserLogin(getCurrentLogin());
+    }
+
+    /**
+     * Get the total of the balances of the current user, converted into one currency.
+     *
+     * @param currency the currency of the total
+     * @return the total, with the time of the FX rates used
+     */
+    @Transactional(readOnly = true)
+    public ExposureDTO findCurrentUserExposure(Currency currency) {
+        RateTable rates = fxService.getRateTable();
+        long total = 0;
+        for (Balance balance : balanceRepository.findByUserLogin(getCurrentLogin())) {
+            total = Money.add(total, rates.convert(balance.getAmount(), balance.getCurrency(), currency));
+        }
+        return new ExposureDTO(currency, total, ZonedDateTime.ofInstant(rates.getAsOf(), ZoneOffset.UTC));
+    }
+
+    /**
+     * Recomputes all balances from the FinancialAction history and repairs the stored
+     * ones that drifted.
+     * <p>
+     * Users are rebuilt one at a time, see {@link #rebuild(String)}. No transaction is opened
+     * around the whole rebuild, so that each user is committed before its mutations resume.
+     *
+     * @return the number of repaired balances
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int rebuild() {
+        Set<String> logins = new TreeSet<>(financialActionRepository.findDistinctUserLogins());
+        logins.addAll(balanceRepository.findDistinctUserLogins());
+        log.debug("Rebuilding the balances of {} users", logins.size());
+        int repaired = 0;
+        for (String login : logins) {
+            repaired += rebuild(login);
+        }
+        return repaired;
+    }
+
+    /**
+     * Recomputes the balances of a user from its FinancialAction history and repairs the stored
+     * ones that drifted.
+     * <p>
+     * The mutations of the user are held back by the {@link UserSequencer} until the repaired
+     * balances are committed, so that none of them is lost or counted twice.
+     *
+     * @param login the login of the user
+     * @return the number of repaired balances
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int rebuild(String login) {
+        return userSequencer.execute(login, () -> transactionTemplate.execute(status -> {
+            Map<Currency, Long> expected = new EnumMap<>(Currency.class);
+            for (Object[] row : financialActionRepository.sumAmountsByCurrency(login)) {
+                if (row[0] != null && row[1] != null) {
+                    expected.put((Currency) row[0], ((Number) row[1]).longValue());
+                }
+            }
+            List<Balance> repaired = new ArrayList<>();
+            for (Balance balance : balanceRepository.findByUserLogin(login)) {
+                Long sum = expected.remove(balance.getCurrency());
+                long amount = sum == null ? 0 : sum;
+                if (balance.getAmount() == null || balance.getAmount() != amount) {
+                    log.warn("Balance {} drifted, expected amount {}", balance, amount);
+                    balance.setAmount(amount);
+                    repaired.add(balance);
+                }
+            }
+            for (Map.Entry<Currency, Long> missing : expected.entrySet()) {
+                Balance balance = newBalance(login, missing.getKey(), missing.getValue());
+                log.warn("Balance {} was missing", balance);
+                repaired.add(balance);
+            }
+            balanceRepository.save(repaired);
+            return repaired.size();
+        }));
+    }
+
+    private void apply(String login, Currency currency, long delta) {
+        if (currency == null || delta == 0) {
+            return;
+        }
+        if (balanceRepository.addToAmount(login, currency, delta) == 0) {
+            balanceRepository.save(newBalance(login, currency, delta));
+        }
+    }
+
+    private static long signedAmount(FinancialAction financialAction) {
+        if (financialAction.getAmount() == null) {
+            return 0;
+        }
+        long amount = financialAction.getAmount();
+        return financialAction.getAction() == Action.WITHDRAW ? Math.negateExact(amount) : amount;
+    }
+
+    private static Balance newBalance(String login, Currency currency, long amount) {
+        Balance balance = new Balance();
+        balance.setUserLogin(login);
+        balance.setCurrency(currency);
+        balance.setAmount(amount);
+        return balance;
+    }
+
+    static String getCurrentLogin() {
+        String login = SecurityUtils.getCurrentUserLogin();
+        return login != null ? login : Constants.SYSTEM_ACCOUNT;
+    }
+}
@@ -0,0 +1,132 @@
+package com.socctrader.service;
+
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.web.rest.dto.BulkItemResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service inserting FinancialActions in bulk.
+ * <p>
+ * Items are inserted in chunks of {@value #CHUNK_SIZE}, matching hibernate.jdbc.batch_size,
+ * each chunk in its own transaction so that a failing chunk does not roll back the others.
+ * The inserted items are queued for indexing in the {@link SearchOutboxService}, in the transaction of their chunk.
+ * A chunk is serialized with the other mutations of the user, and withdrawals exceeding the balance are rejected.
+ */
+@Service
+public class FinancialActionBulkService {
+
+    private final Logger log = LoggerFactory.getLogger(FinancialActionBulkService.class);
+
+    private static final int CHUNK_SIZE = 50;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private BalanceService balanceService;
+
+    @Inject
+    private UserSequencer userSequencer;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Save a batch of new financialActions, and queue them for indexing.
+     *
+     * @param financialActions the financialActions to create
+     * @return one result per financialAction, in the same order
+     */
+    public List<BulkItemResultDTO> createAll(List<FinancialAction> financialActions) {
+        List<BulkItemResultDTO> results = new ArrayList<>(financialActions.size());
+        List<Integer> pending = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < financialActions.size(); i++) {
+            BulkItemResultDTO result = new BulkItemResultDTO(i);
+            results.add(result);
+            FinancialAction financialAction = financialActions.get(i);
+            if (financialAction == null || financialAction.getId() != null) {
+                result.setStatus(HttpStatus.BAD_REQUEST.value());
+                result.setError("error.idexists");
+                continue;
+            }
+            pending.add(i);
+            if (pending.size() == CHUNK_SIZE) {
+                saveChunk(financialActions, pending, results);
+                pending.clear();
+            }
+        }
+        if (!pending.isEmpty()) {
+            saveChunk(financialActions, pending, results);
+        }
+        return results;
+    }
+
+    private void saveChunk(List<FinancialAction> financialActions, List<Integer> chunk,
+                           List<BulkItemResultDTO> results) {
+        String login = BalanceService.getCurrentLogin();
+        List<Integer> inserted = new ArrayList<>(chunk.size());
+        try {
+            userSequencer.execute(login, () -> transactionTemplate.execute(status -> {
+                for (Integer i : chunk) {
+                    FinancialAction financialAction = financialActions.get(i);
+                    financialAction.setUserLogin(login);
+                    try {
+                        balanceService.checkFunds(financialAction);
+                    } catch (InsufficientFundsException e) {
+                        results.get(i).setStatus(HttpStatus.BAD_REQUEST.value());
+                        results.get(i).setError("error.insufficientFunds");
+                        continue;
+                    }
+                    em.persist(financialAction);
+                    balanceService.record(financialAction);
+                    inserted.add(i);
+                }
+                em.flush();
+                searchOutboxService.indexAll(FinancialAction.class, inserted.stream()
+                    .map(i -> financialActions.get(i).getId())
+                    .collect(Collectors.toList()));
+                em.clear();
+                return null;
+            }));
+            for (Integer i : inserted) {
+                FinancialAction financialAction = financialActions.get(i);
+                results.get(i).setId(financialAction.getId());
+                results.get(i).setStatus(HttpStatus.CREATED.value());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk insert of {} financialActions failed: {}", chunk.size(), e.getMessage());
+            for (Integer i : chunk) {
+                if (results.get(i).getError() != null) {
+                    continue;
+                }
+                // The rolled back ids were assigned by the generator, they are not valid anymore
+                financialActions.get(i).setId(null);
+                results.get(i).setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                results.get(i).setError("error.internalServerError");
+            }
+        }
+    }
+}
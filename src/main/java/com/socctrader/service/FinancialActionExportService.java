@@ -0,0 +1,190 @@
+package com.socctrader.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.domain.Money;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import org.hibernate.CacheMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service streaming FinancialActions out of the database.
+ * <p>
+ * Rows are read as scalar projections through a forward-only cursor with a bounded fetch size,
+ * and written to the output as they arrive: no entity nor association is loaded, and memory
+ * use does not depend on the number of exported rows.
+ */
+@Service
+@Transactional(readOnly = true)
+public class FinancialActionExportService {
+
+    private final Logger log = LoggerFactory.getLogger(FinancialActionExportService.class);
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String CSV_HEADER = "id,actionId,action,amount,currency,actionDate\n";
+
+    /** The exported columns, in the order of {@link #CSV_HEADER}. */
+    private static final String SELECT = "select financialAction.id, financialAction.actionId, financialAction.action, " +
+        "financialAction.amount, financialAction.currency, financialAction.actionDate from FinancialAction financialAction";
+
+    private static final int ID = 0;
+    private static final int ACTION_ID = 1;
+    private static final int ACTION = 2;
+    private static final int AMOUNT = 3;
+    private static final int CURRENCY = 4;
+    private static final int ACTION_DATE = 5;
+
+    /**
+     * Supported export formats.
+     */
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes the financialActions matching the filters to the output, ordered by id.
+     * Every filter is optional.
+     *
+     * @param format the output format
+     * @param login only export the financialActions of this user
+     * @param action only export the financialActions of this action
+     * @param currency only export the financialActions in this currency
+     * @param fromId the lowest exported id, inclusive
+     * @param toId the highest exported id, inclusive
+     * @param out the stream to write to, not closed by this method
+     * @return the number of exported financialActions
+     * @throws IOException if the output cannot be written
+     */
+    public long export(Format format, String login, Action action, Currency currency, Long fromId, Long toId,
+                       OutputStream out) throws IOException {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder hql = new StringBuilder(SELECT).append(" where 1 = 1");
+        if (login != null) {
+            hql.append(" and financialAction.userLogin = :login");
+            parameters.put("login", login);
+        }
+        if (action != null) {
+            hql.append(" and financialAction.action = :action");
+            parameters.put("action", action);
+        }
+        if (currency != null) {
+            hql.append(" and financialAction.currency = :currency");
+            parameters.put("currency", currency);
+        }
+        if (fromId != null) {
+            hql.append(" and financialAction.id >= :fromId");
+            parameters.put("fromId", fromId);
+        }
+        if (toId != null) {
+            hql.append(" and financialAction.id <= :toId");
+            parameters.put("toId", toId);
+        }
+        hql.append(" order by financialAction.id");
+
+        Session session = em.unwrap(Session.class);
+        Query query = session.createQuery(hql.toString())
+            .setFetchSize(FETCH_SIZE)
+            .setReadOnly(true)
+            .setCacheMode(CacheMode.IGNORE);
+        parameters.forEach(query::setParameter);
+
+        long count = 0;
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            if (format == Format.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                writer.write(CSV_HEADER);
+                while (results.next()) {
+                    writeCsv(results.get(), writer);
+                    if (++count % FETCH_SIZE == 0) {
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+            } else {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+                generator.setRootValueSeparator(null);
+                while (results.next()) {
+                    writeJson(results.get(), generator);
+                    if (++count % FETCH_SIZE == 0) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+            }
+        } finally {
+            results.close();
+        }
+        log.debug("Exported {} FinancialActions as {}", count, format);
+        return count;
+    }
+
+    private static void writeJson(Object[] row, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", (Long) row[ID]);
+        if (row[ACTION_ID] != null) {
+            generator.writeNumberField("actionId", (Long) row[ACTION_ID]);
+        }
+        if (row[ACTION] != null) {
+            generator.writeStringField("action", ((Action) row[ACTION]).name());
+        }
+        if (row[AMOUNT] != null) {
+            generator.writeFieldName("amount");
+            generator.writeNumber(Money.toBigDecimal((Long) row[AMOUNT]));
+        }
+        if (row[CURRENCY] != null) {
+            generator.writeStringField("currency", ((Currency) row[CURRENCY]).name());
+        }
+        if (row[ACTION_DATE] != null) {
+            generator.writeStringField("actionDate", row[ACTION_DATE].toString());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeCsv(Object[] row, Writer writer) throws IOException {
+        writer.write(String.valueOf(row[ID]));
+        writer.write(',');
+        writeCsvValue(row[ACTION_ID], writer);
+        writer.write(',');
+        writeCsvValue(row[ACTION], writer);
+        writer.write(',');
+        if (row[AMOUNT] != null) {
+            writer.write(Money.toBigDecimal((Long) row[AMOUNT]).toPlainString());
+        }
+        writer.write(',');
+        writeCsvValue(row[CURRENCY], writer);
+        writer.write(',');
+        writeCsvValue(row[ACTION_DATE], writer);
+        writer.write('\n');
+    }
+
+    private static void writeCsvValue(Object value, Writer writer) throws IOException {
+        if (value != null) {
+            writer.write(value.toString());
+        }
+    }
+}
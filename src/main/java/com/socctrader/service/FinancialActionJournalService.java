@@ -0,0 +1,437 @@
+package com.socctrader.service;
+
+import com.socctrader.config.Properties;
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.domain.JournalCheckpoint;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.journal.Journal;
+import com.socctrader.journal.JournalRecord;
+import com.socctrader.repository.JournalCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for the journaled write path of FinancialActions, enabled with <code>jhipster.journal.enabled</code>.
+ * <p>
+ * A submitted financialAction is acknowledged as soon as it is durable in the local {@link Journal}. A scheduled
+ * applier then drains the journal into the financial_action table and the search outbox, in large batches.
+ * The position of the last applied record is stored in a {@link JournalCheckpoint} of the node, named after
+ * <code>jhipster.journal.node-name</code> (the host name by default), in the same transaction as the batch,
+ * so records are applied exactly once, including when the journal is replayed at startup.
+ * <p>
+ * A withdrawal is checked against the balance of its owner when it is submitted, under the {@link UserSequencer}
+ * of the user, and its funds stay reserved through the {@link FundsReservationService} until it is applied, so an
+ * acknowledged withdrawal cannot be overdrawn by the mutations acknowledged after it. The reservations of the
+ * records not applied yet are restored when the node starts.
+ * <p>
+ * A batch holds the {@link UserSequencer} of its users, and its withdrawals are checked again against their
+ * balances, which only fails for a withdrawal whose reservation was lost. A batch that fails is applied again one
+ * record at a time: a record which cannot be decoded or overdraws its balance, or which failed
+ * <code>jhipster.journal.max-apply-attempts</code> times, is moved to the dead-letter journal of the node and skipped.
+ */
+@Service
+public class FinancialActionJournalService {
+
+    private final Logger log = LoggerFactory.getLogger(FinancialActionJournalService.class);
+
+    private static final String CHECKPOINT_PREFIX = "financial_action:";
+
+    private static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+
+    private static final int DEAD_LETTER_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final long MIN_BACKOFF_MILLIS = 500;
+
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private static final int HAS_ACTION_ID = 1;
+    private static final int HAS_ACTION = 2;
+    private static final int HAS_AMOUNT = 4;
+    private static final int HAS_CURRENCY = 8;
+    private static final int HAS_ACTION_DATE = 16;
+    private static final int HAS_RESERVATION = 32;
+
+    @Inject
+    private Properties properties;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private JournalCheckpointRepository journalCheckpointRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private BalanceService balanceService;
+
+    @Inject
+    private UserSequencer userSequencer;
+
+    @Inject
+    private FundsReservationService fundsReservationService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Journal journal;
+
+    private Journal deadLetters;
+
+    private String checkpointName;
+
+    // Consecutive failures of the first pending record, and when to apply it again
+    private int failedAttempts;
+
+    private long backoffMillis;
+
+    private long retryAt;
+
+    @PostConstruct
+    public void init() throws IOException {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Properties.Journal config = properties.getJournal();
+        if (config.isEnabled()) {
+            Path directory = Paths.get(config.getDirectory());
+            journal = new Journal(directory, config.getSegmentSize(),
+                config.getGroupCommitSize(), config.getGroupCommitMillis());
+            journal.open();
+            deadLetters = new Journal(directory.resolve(DEAD_LETTER_DIRECTORY), DEAD_LETTER_SEGMENT_SIZE,
+                config.getGroupCommitSize(), config.getGroupCommitMillis());
+            deadLetters.open();
+            String nodeName = config.getNodeName() != null ? config.getNodeName() : InetAddress.getLocalHost().getHostName();
+            checkpointName = CHECKPOINT_PREFIX + nodeName;
+            if (checkpointName.length() > 50) {
+                throw new IllegalStateException("The journal checkpoint name " + checkpointName
+                    + " exceeds 50 characters, set a shorter jhipster.journal.node-name");
+            }
+            log.info("Applying the FinancialAction journal {} with the checkpoint {}", directory, checkpointName);
+            restoreReservations();
+        }
+    }
+
+    /**
+     * Reserve again the funds of the records not applied yet, and release the reservations of the records
+     * applied or lost before the node stopped.
+     */
+    private void restoreReservations() {
+        JournalCheckpoint checkpoint = journalCheckpointRepository.findOne(checkpointName);
+        long position = checkpoint == null ? 0 : checkpoint.getPosition();
+        Set<String> reserved = new HashSet<>();
+        List<JournalRecord> records;
+        while (!(records = journal.read(position, properties.getJournal().getApplyBatchSize())).isEmpty()) {
+            for (JournalRecord record : records) {
+                try {
+                    Submitted submitted = decode(record.getPayload());
+                    if (submitted.reservation != null) {
+                        fundsReservationService.reserve(submitted.reservation, checkpointName, submitted.financialAction);
+                        reserved.add(submitted.reservation);
+                    }
+                } catch (MalformedRecordException e) {
+                    log.warn("Could not restore the reservation of the journaled FinancialAction {}: {}",
+                        record.getSequence(), e.getMessage());
+                }
+            }
+            position = records.get(records.size() - 1).getSequence();
+        }
+        fundsReservationService.releaseAllBut(checkpointName, reserved);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (journal != null) {
+            journal.close();
+            deadLetters.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Append a new financialAction of the current user to the journal, after checking and reserving its funds.
+     *
+     * @param financialAction the financialAction to create
+     * @return a future completed with the journal sequence of the financialAction, once it is durable
+     * @throws InsufficientFundsException if the financialAction is a withdrawal exceeding the balance
+     */
+    public CompletableFuture<Long> submit(FinancialAction financialAction) {
+        if (journal == null) {
+            throw new IllegalStateException("The financialAction journal is not enabled");
+        }
+        String login = BalanceService.getCurrentLogin();
+        financialAction.setUserLogin(login);
+        // Booked on the day it is acknowledged, not on the day it is applied
+        financialAction.prePersist();
+        String reservation = UUID.randomUUID().toString();
+        return userSequencer.execute(login, () -> {
+            // In a read-write transaction, so that the balance is read from the primary
+            transactionTemplate.execute(status -> {
+                balanceService.checkFunds(financialAction);
+                return null;
+            });
+            fundsReservationService.reserve(reservation, checkpointName, financialAction);
+            CompletableFuture<Long> sequence;
+            try {
+                sequence = journal.append(encode(financialAction, reservation));
+            } catch (RuntimeException e) {
+                fundsReservationService.release(Collections.singleton(reservation));
+                throw e;
+            }
+            sequence.whenComplete((appended, e) -> {
+                if (e != null) {
+                    fundsReservationService.release(Collections.singleton(reservation));
+                }
+            });
+            return sequence;
+        });
+    }
+
+    /**
+     * Apply the journaled financialActions to the database and the search index.
+     * <p>
+     * Runs until the journal is drained, one batch per transaction, or until a record fails.
+     */
+    @Scheduled(fixedDelay = 100)
+    public void apply() {
+        if (journal == null || System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        int batchSize = properties.getJournal().getApplyBatchSize();
+        while (true) {
+            JournalCheckpoint checkpoint = journalCheckpointRepository.findOne(checkpointName);
+            long position = checkpoint == null ? 0 : checkpoint.getPosition();
+            List<JournalRecord> records = journal.read(position, batchSize);
+            if (records.isEmpty()) {
+                journal.release(position);
+                return;
+            }
+            try {
+                applyBatch(records);
+            } catch (RuntimeException e) {
+                log.warn("Applying the journaled FinancialActions after sequence {} failed, applying them one at a time: {}",
+                    position, e.getMessage());
+                if (!applyOneByOne(records)) {
+                    return;
+                }
+            }
+            failedAttempts = 0;
+            backoffMillis = 0;
+            log.debug("Applied journaled FinancialActions up to sequence {}", records.get(records.size() - 1).getSequence());
+        }
+    }
+
+    private void applyBatch(List<JournalRecord> records) {
+        List<FinancialAction> financialActions = new ArrayList<>(records.size());
+        Set<String> logins = new HashSet<>();
+        // The reservations of the batch are released once it commits, they are not counted meanwhile
+        Set<String> reservations = new HashSet<>();
+        for (JournalRecord record : records) {
+            Submitted submitted = decode(record.getPayload());
+            financialActions.add(submitted.financialAction);
+            logins.add(submitted.financialAction.getUserLogin());
+            if (submitted.reservation != null) {
+                reservations.add(submitted.reservation);
+            }
+        }
+        long last = records.get(records.size() - 1).getSequence();
+        userSequencer.executeAll(logins, () -> {
+            applyBatch(records, financialActions, reservations, last);
+            fundsReservationService.release(reservations);
+            return null;
+        });
+    }
+
+    private void applyBatch(List<JournalRecord> records, List<FinancialAction> financialActions,
+                            Set<String> reservations, long last) {
+        transactionTemplate.execute(status -> {
+            List<Long> applied = new ArrayList<>(records.size());
+            List<JournalRecord> rejected = new ArrayList<>();
+            for (int i = 0; i < records.size(); i++) {
+                FinancialAction financialAction = financialActions.get(i);
+                try {
+                    balanceService.checkFunds(financialAction, reservations);
+                } catch (InsufficientFundsException e) {
+                    log.error("Dead-lettering the journaled FinancialAction {}: {}", records.get(i).getSequence(), e.getMessage());
+                    rejected.add(records.get(i));
+                    continue;
+                }
+                em.persist(financialAction);
+                balanceService.record(financialAction);
+                applied.add(financialAction.getId());
+            }
+            journalCheckpointRepository.save(new JournalCheckpoint(checkpointName, last));
+            em.flush();
+            searchOutboxService.indexAll(FinancialAction.class, applied);
+            deadLetter(rejected);
+            em.clear();
+            return null;
+        });
+    }
+
+    /**
+     * @return false if a record failed and is to be retried later, true if all the records were applied or skipped
+     */
+    private boolean applyOneByOne(List<JournalRecord> records) {
+        for (JournalRecord record : records) {
+            try {
+                applyBatch(Collections.singletonList(record));
+            } catch (RuntimeException e) {
+                if (!(e instanceof MalformedRecordException) && ++failedAttempts < properties.getJournal().getMaxApplyAttempts()) {
+                    log.warn("Applying the journaled FinancialAction {} failed, attempt {}: {}",
+                        record.getSequence(), failedAttempts, e.getMessage());
+                    backOff();
+                    return false;
+                }
+                log.error("Dead-lettering the journaled FinancialAction {}: {}", record.getSequence(), e.toString());
+                failedAttempts = 0;
+                transactionTemplate.execute(status -> {
+                    journalCheckpointRepository.save(new JournalCheckpoint(checkpointName, record.getSequence()));
+                    em.flush();
+                    deadLetter(Collections.singletonList(record));
+                    return null;
+                });
+                releaseReservationOf(record);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Append records to the dead-letter journal, before the transaction skipping them commits.
+     */
+    private void deadLetter(List<JournalRecord> records) {
+        CompletableFuture.allOf(records.stream()
+            .map(record -> deadLetters.append(record.getPayload()))
+            .toArray(CompletableFuture[]::new))
+            .join();
+    }
+
+    private void releaseReservationOf(JournalRecord record) {
+        try {
+            String reservation = decode(record.getPayload()).reservation;
+            if (reservation != null) {
+                fundsReservationService.release(Collections.singleton(reservation));
+            }
+        } catch (MalformedRecordException e) {
+            // Its reservation, if any, is released when the node restarts
+        }
+    }
+
+    private void backOff() {
+        backoffMillis = Math.min(Math.max(backoffMillis * 2, MIN_BACKOFF_MILLIS), MAX_BACKOFF_MILLIS);
+        retryAt = System.currentTimeMillis() + backoffMillis;
+    }
+
+    private static byte[] encode(FinancialAction financialAction, String reservation) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            int flags = (financialAction.getActionId() != null ? HAS_ACTION_ID : 0)
+                | (financialAction.getAction() != null ? HAS_ACTION : 0)
+                | (financialAction.getAmount() != null ? HAS_AMOUNT : 0)
+                | (financialAction.getCurrency() != null ? HAS_CURRENCY : 0)
+                | (financialAction.getActionDate() != null ? HAS_ACTION_DATE : 0)
+                | HAS_RESERVATION;
+            out.writeByte(flags);
+            if (financialAction.getActionId() != null) {
+                out.writeLong(financialAction.getActionId());
+            }
+            if (financialAction.getAction() != null) {
+                out.writeByte(financialAction.getAction().ordinal());
+            }
+            if (financialAction.getAmount() != null) {
+                out.writeLong(financialAction.getAmount());
+            }
+            if (financialAction.getCurrency() != null) {
+                out.writeByte(financialAction.getCurrency().ordinal());
+            }
+            if (financialAction.getActionDate() != null) {
+                out.writeLong(financialAction.getActionDate().toEpochDay());
+            }
+            out.writeUTF(financialAction.getUserLogin());
+            UUID uuid = UUID.fromString(reservation);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Submitted decode(byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            int flags = in.readUnsignedByte();
+            FinancialAction financialAction = new FinancialAction();
+            if ((flags & HAS_ACTION_ID) != 0) {
+                financialAction.setActionId(in.readLong());
+            }
+            if ((flags & HAS_ACTION) != 0) {
+                financialAction.setAction(Action.values()[in.readUnsignedByte()]);
+            }
+            if ((flags & HAS_AMOUNT) != 0) {
+                financialAction.setAmount(in.readLong());
+            }
+            if ((flags & HAS_CURRENCY) != 0) {
+                financialAction.setCurrency(Currency.values()[in.readUnsignedByte()]);
+            }
+            if ((flags & HAS_ACTION_DATE) != 0) {
+                financialAction.setActionDate(LocalDate.ofEpochDay(in.readLong()));
+            }
+            financialAction.setUserLogin(in.readUTF());
+            // The records journaled before the reservations have none
+            String reservation = (flags & HAS_RESERVATION) != 0 ? new UUID(in.readLong(), in.readLong()).toString() : null;
+            return new Submitted(financialAction, reservation);
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new MalformedRecordException(e);
+        }
+    }
+
+    /**
+     * A journaled financialAction, with the key of its funds reservation.
+     */
+    private static final class Submitted {
+
+        private final FinancialAction financialAction;
+
+        private final String reservation;
+
+        private Submitted(FinancialAction financialAction, String reservation) {
+            this.financialAction = financialAction;
+            this.reservation = reservation;
+        }
+    }
+
+    /**
+     * Thrown when a journal record cannot be decoded, which no retry can fix.
+     */
+    private static class MalformedRecordException extends RuntimeException {
+
+        MalformedRecordException(Throwable cause) {
+            super("Malformed FinancialAction journal record", cause);
+        }
+    }
+}
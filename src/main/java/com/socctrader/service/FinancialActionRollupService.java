@@ -0,0 +1,322 @@
+package com.socctrader.service;
+
+import com.socctrader.config.Properties;
+import com.socctrader.domain.AbstractFinancialActionRollup;
+import com.socctrader.domain.FinancialActionDailyRollup;
+import com.socctrader.domain.FinancialActionMonthlyRollup;
+import com.socctrader.domain.FinancialActionRollupDirtyDay;
+import com.socctrader.domain.JournalCheckpoint;
+import com.socctrader.domain.Money;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.fx.RateTable;
+import com.socctrader.repository.FinancialActionDailyRollupRepository;
+import com.socctrader.repository.FinancialActionMonthlyRollupRepository;
+import com.socctrader.repository.FinancialActionRollupDirtyDayRepository;
+import com.socctrader.repository.FinancialActionRepository;
+import com.socctrader.repository.FinancialActionRollupRepository;
+import com.socctrader.repository.JournalCheckpointRepository;
+import com.socctrader.web.rest.dto.FinancialActionSummaryDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Service maintaining the daily and monthly rollups of FinancialActions, so that the summaries
+ * never scan the financial_action table.
+ * <p>
+ * A scheduled job rolls up the FinancialActions created since the creation time watermark stored in the
+ * {@value #WATERMARK_NAME} checkpoint. Ids cannot be used as a watermark: they come from a pooled sequence,
+ * so they do not commit in order. The watermark instead stays <code>jhipster.rollup.lag-seconds</code> behind
+ * the current time, longer than a transaction inserting FinancialActions lasts and than the clocks of the nodes
+ * drift apart, so the FinancialActions it passes are all committed.
+ * <p>
+ * Updated and deleted FinancialActions mark their days dirty in a {@link FinancialActionRollupDirtyDay}, in the
+ * transaction changing them, and dirty days are recomputed by the next run. Every night, the days of the FinancialActions
+ * created the day before are recomputed as a safety net, and any month can be rebuilt on demand with
+ * {@link #rebuildMonth(YearMonth)}.
+ */
+@Service
+public class FinancialActionRollupService {
+
+    public static final String WATERMARK_NAME = "financial_action_rollup";
+
+    private final Logger log = LoggerFactory.getLogger(FinancialActionRollupService.class);
+
+    /** The longest creation time range rolled up in one transaction. */
+    private static final Duration REFRESH_WINDOW = Duration.ofMinutes(5);
+
+    private static final int DIRTY_DAYS_BATCH_SIZE = 1000;
+
+    private static final ZonedDateTime EPOCH = ZonedDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC);
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    public enum Granularity {
+        DAY, MONTH
+    }
+
+    @Inject
+    private FinancialActionRepository financialActionRepository;
+
+    @Inject
+    private FinancialActionDailyRollupRepository financialActionDailyRollupRepository;
+
+    @Inject
+    private FinancialActionMonthlyRollupRepository financialActionMonthlyRollupRepository;
+
+    @Inject
+    private FinancialActionRollupDirtyDayRepository financialActionRollupDirtyDayRepository;
+
+    @Inject
+    private JournalCheckpointRepository journalCheckpointRepository;
+
+    @Inject
+    private Properties properties;
+
+    @Inject
+    private FxService fxService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Roll up the FinancialActions created since the last run, then recompute the dirty days.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void refresh() {
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> refreshBatch()))) {
+            log.debug("Rolled up a batch of FinancialActions, continuing");
+        }
+        List<FinancialActionRollupDirtyDay> dirtyDays;
+        do {
+            // Only the marks read before the days are recomputed are deleted, the later ones wait for the next run
+            dirtyDays = financialActionRollupDirtyDayRepository.findOldest(new PageRequest(0, DIRTY_DAYS_BATCH_SIZE));
+            dirtyDays.stream()
+                .map(FinancialActionRollupDirtyDay::getActionDate)
+                .distinct()
+                .forEach(day -> rebuild(day, day));
+            List<Long> ids = dirtyDays.stream().map(FinancialActionRollupDirtyDay::getId).collect(Collectors.toList());
+            if (!ids.isEmpty()) {
+                transactionTemplate.execute(status -> financialActionRollupDirtyDayRepository.deleteByIdIn(ids));
+            }
+        } while (dirtyDays.size() == DIRTY_DAYS_BATCH_SIZE);
+    }
+
+    /**
+     * Recompute the days of the FinancialActions created since the day before, in UTC, to roll up the ones
+     * which committed behind the watermark.
+     */
+    @Scheduled(cron = "0 30 0 * * *", zone = "UTC")
+    public void rebuildRecentlyCreated() {
+        ZonedDateTime since = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).minusDays(1);
+        List<LocalDate> days = financialActionRepository.findDistinctActionDatesCreatedAfter(since);
+        log.debug("Rebuilding the FinancialAction rollups of {} days created since {}", days.size(), since);
+        days.forEach(day -> rebuild(day, day));
+    }
+
+    /**
+     * Mark the day of a changed or deleted FinancialAction, to be recomputed by the next refresh.
+     * <p>
+     * Must be called in the transaction changing the FinancialAction.
+     *
+     * @param actionDate the action date of the FinancialAction, ignored if null
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markDirty(LocalDate actionDate) {
+        if (actionDate != null) {
+            financialActionRollupDirtyDayRepository.save(new FinancialActionRollupDirtyDay(actionDate));
+        }
+    }
+
+    /**
+     * Recompute the rollups of a month from the FinancialActions. Days are summed in parallel, at most
+     * <code>jhipster.rollup.parallelism</code> at once.
+     *
+     * @param month the month to rebuild
+     * @return the number of daily rollups of the month
+     */
+    public int rebuildMonth(YearMonth month) {
+        log.debug("Rebuilding the FinancialAction rollups of {}", month);
+        return rebuild(month.atDay(1), month.atEndOfMonth());
+    }
+
+    /**
+     * Get the rollups of a period range, optionally converted into one currency.
+     *
+     * @param granularity the period of the rollups
+     * @param from the first day, null for no lower bound
+     * @param to the last day, null for no upper bound
+     * @param login only the rollups of this user, if not null
+     * @param currency only the rollups in this currency, if not null
+     * @param action only the rollups of this action, if not null
+     * @param in the currency to convert the amounts into, null to keep one rollup per currency
+     * @return the rollups, ordered by period, user, currency and action
+     */
+    @Transactional(readOnly = true)
+    public List<FinancialActionSummaryDTO> findSummary(Granularity granularity, LocalDate from, LocalDate to,
+                                                       String login, Currency currency, Action action, Currency in) {
+        LocalDate start = from == null ? MIN_DATE : from;
+        LocalDate end = to == null ? MAX_DATE : to;
+        List<? extends AbstractFinancialActionRollup> rollups = granularity == Granularity.MONTH
+            ? financialActionMonthlyRollupRepository.findAllInPeriod(start.withDayOfMonth(1), end, login, currency, action)
+            : financialActionDailyRollupRepository.findAllInPeriod(start, end, login, currency, action);
+        if (in == null) {
+            return rollups.stream()
+                .map(rollup -> new FinancialActionSummaryDTO(rollup.getPeriodStart(), rollup.getUserLogin(),
+                    rollup.getCurrency(), rollup.getAction(), rollup.getActionCount(), rollup.getAmount()))
+                .collect(Collectors.toList());
+        }
+        RateTable rates = fxService.getRateTable();
+        Map<String, FinancialActionSummaryDTO> converted = new LinkedHashMap<>();
+        for (AbstractFinancialActionRollup rollup : rollups) {
+            FinancialActionSummaryDTO summary = converted.computeIfAbsent(
+                rollup.getPeriodStart() + "\u0000" + rollup.getUserLogin() + "\u0000" + rollup.getAction(),
+                key -> new FinancialActionSummaryDTO(rollup.getPeriodStart(), rollup.getUserLogin(), in, rollup.getAction(), 0L, 0L));
+            summary.setActionCount(summary.getActionCount() + rollup.getActionCount());
+            summary.setAmount(Money.add(summary.getAmount(), rates.convert(rollup.getAmount(), rollup.getCurrency(), in)));
+        }
+        return new ArrayList<>(converted.values());
+    }
+
+    private boolean refreshBatch() {
+        JournalCheckpoint watermark = journalCheckpointRepository.findOneForUpdate(WATERMARK_NAME);
+        ZonedDateTime from = toTime(watermark.getPosition());
+        ZonedDateTime until = ZonedDateTime.now(ZoneOffset.UTC)
+            .minusSeconds(properties.getRollup().getLagSeconds())
+            .truncatedTo(ChronoUnit.MILLIS);
+        if (!until.isAfter(from)) {
+            return false;
+        }
+        // Skips the empty ranges at once
+        ZonedDateTime first = financialActionRepository.findMinCreatedDateAfter(from);
+        if (first == null || first.isAfter(until)) {
+            watermark.setPosition(until.toInstant().toEpochMilli());
+            return false;
+        }
+        ZonedDateTime to = first.plus(REFRESH_WINDOW).truncatedTo(ChronoUnit.MILLIS);
+        if (to.isAfter(until)) {
+            to = until;
+        }
+        for (Object[] row : financialActionRepository.summarize(from, to, MIN_DATE, MAX_DATE)) {
+            addDaily(row);
+            addMonthly(row);
+        }
+        watermark.setPosition(to.toInstant().toEpochMilli());
+        log.debug("Rolled up the FinancialActions created from {} to {}", from, to);
+        return to.isBefore(until);
+    }
+
+    private int rebuild(LocalDate from, LocalDate to) {
+        ZonedDateTime watermark = toTime(journalCheckpointRepository.findOne(WATERMARK_NAME).getPosition());
+        // One partition per day, summed outside of the rebuild transaction by a pool of its own: the partitions
+        // block on the datasource, so they are not run by the common pool
+        List<Object[]> rows = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(properties.getRollup().getParallelism());
+        try {
+            List<ForkJoinTask<List<Object[]>>> partitions = LongStream.rangeClosed(0, ChronoUnit.DAYS.between(from, to))
+                .mapToObj(from::plusDays)
+                .map(day -> pool.submit(() -> financialActionRepository.summarize(EPOCH, watermark, day, day)))
+                .collect(Collectors.toList());
+            partitions.forEach(partition -> rows.addAll(partition.join()));
+        } finally {
+            pool.shutdown();
+        }
+        return transactionTemplate.execute(status -> {
+            // Locking the watermark keeps the refresh job out, then the FinancialActions it rolled up meanwhile are caught up
+            ZonedDateTime current = toTime(journalCheckpointRepository.findOneForUpdate(WATERMARK_NAME).getPosition());
+            if (current.isAfter(watermark)) {
+                rows.addAll(financialActionRepository.summarize(watermark, current, from, to));
+            }
+            financialActionDailyRollupRepository.deleteByPeriodStartBetween(from, to);
+            for (Object[] row : rows) {
+                addDaily(row);
+            }
+            for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+                rebuildMonthlyFromDaily(month);
+            }
+            log.debug("Rebuilt the FinancialAction rollups from {} to {}", from, to);
+            return rows.size();
+        });
+    }
+
+    private void rebuildMonthlyFromDaily(YearMonth month) {
+        financialActionMonthlyRollupRepository.deleteByPeriodStartBetween(month.atDay(1), month.atDay(1));
+        Map<String, FinancialActionMonthlyRollup> monthly = new HashMap<>();
+        for (FinancialActionDailyRollup daily : financialActionDailyRollupRepository.findAllInPeriod(
+                month.atDay(1), month.atEndOfMonth(), null, null, null)) {
+            FinancialActionMonthlyRollup rollup = monthly.computeIfAbsent(
+                daily.getUserLogin() + "\u0000" + daily.getCurrency() + "\u0000" + daily.getAction(),
+                key -> newRollup(FinancialActionMonthlyRollup::new, month.atDay(1), daily.getUserLogin(),
+                    daily.getCurrency(), daily.getAction(), 0, 0));
+            rollup.setActionCount(rollup.getActionCount() + daily.getActionCount());
+            rollup.setAmount(Money.add(rollup.getAmount(), daily.getAmount()));
+        }
+        financialActionMonthlyRollupRepository.save(monthly.values());
+    }
+
+    private static ZonedDateTime toTime(long epochMilli) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+    }
+
+    private void addDaily(Object[] row) {
+        add(financialActionDailyRollupRepository, FinancialActionDailyRollup::new, (LocalDate) row[3], row);
+    }
+
+    private void addMonthly(Object[] row) {
+        add(financialActionMonthlyRollupRepository, FinancialActionMonthlyRollup::new, ((LocalDate) row[3]).withDayOfMonth(1), row);
+    }
+
+    /**
+     * @param row a row of {@link FinancialActionRepository#summarize}
+     */
+    private <T extends AbstractFinancialActionRollup> void add(FinancialActionRollupRepository<T> repository,
+                                                               Supplier<T> factory, LocalDate periodStart, Object[] row) {
+        String login = (String) row[0];
+        Currency currency = (Currency) row[1];
+        Action action = (Action) row[2];
+        long count = ((Number) row[4]).longValue();
+        long amount = row[5] == null ? 0 : ((Number) row[5]).longValue();
+        if (repository.addTo(periodStart, login, currency, action, count, amount) == 0) {
+            repository.save(newRollup(factory, periodStart, login, currency, action, count, amount));
+        }
+    }
+
+    private static <T extends AbstractFinancialActionRollup> T newRollup(Supplier<T> factory, LocalDate periodStart, String login,
+                                                                         Currency currency, Action action, long count, long amount) {
+        T rollup = factory.get();
+        rollup.setPeriodStart(periodStart);
+        rollup.setUserLogin(login);
+        rollup.setCurrency(currency);
+        rollup.setAction(action);
+        rollup.setActionCount(count);
+        rollup.setAmount(amount);
+        return rollup;
+    }
+}
@@ -0,0 +1,135 @@
+package com.socctrader.service;
+
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.repository.FinancialActionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.time.LocalDate;
+
+/**
+ * Service for creating, updating and deleting FinancialActions.
+ * <p>
+ * The mutations of one user go through the {@link UserSequencer}, each in its own transaction
+ * committed before the next one starts, so that concurrent withdrawals cannot overdraw a balance.
+ * Mutations of different users run in parallel.
+ * <p>
+ * The days of updated and deleted financialActions are marked for the rollups to recompute, in the same transaction.
+ * The search index is updated through the {@link SearchOutboxService}.
+ */
+@Service
+public class FinancialActionService {
+
+    private final Logger log = LoggerFactory.getLogger(FinancialActionService.class);
+
+    @Inject
+    private FinancialActionRepository financialActionRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private BalanceService balanceService;
+
+    @Inject
+    private UserSequencer userSequencer;
+
+    @Inject
+    private FinancialActionRollupService financialActionRollupService;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Save a financialAction, and update the balance of its owner accordingly. A new financialAction
+     * is owned by the current user, an updated one keeps its owner.
+     *
+     * @param financialAction the financialAction to save
+     * @return the persisted financialAction
+     * @throws InsufficientFundsException if the financialAction is a withdrawal exceeding the balance, or
+     * replaces a deposit already spent
+     */
+    public FinancialAction save(FinancialAction financialAction) {
+        log.debug("Request to save FinancialAction : {}", financialAction);
+        String login = findOwner(financialAction.getId());
+        financialAction.setUserLogin(login);
+        return userSequencer.execute(login, () -> transactionTemplate.execute(status -> {
+            FinancialAction previous = financialAction.getId() != null
+                ? financialActionRepository.findOne(financialAction.getId()) : null;
+            // Saving merges the new state into previous, the reversed one is kept apart
+            FinancialAction reversed = previous != null ? balanceStateOf(previous) : null;
+            LocalDate previousDate = previous != null ? previous.getActionDate() : null;
+            if (previous != null) {
+                balanceService.reverse(previous);
+                financialActionRollupService.markDirty(previousDate);
+                if (financialAction.getActionDate() == null) {
+                    financialAction.setActionDate(previous.getActionDate());
+                }
+            }
+            balanceService.checkFunds(financialAction);
+            FinancialAction result = financialActionRepository.save(financialAction);
+            balanceService.record(result);
+            if (reversed != null) {
+                balanceService.checkReversal(reversed);
+            }
+            searchOutboxService.index(FinancialAction.class, result.getId());
+            if (previousDate != null && !previousDate.equals(result.getActionDate())) {
+                financialActionRollupService.markDirty(result.getActionDate());
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Delete a financialAction, and update the balance of its owner accordingly.
+     *
+     * @param id the id of the financialAction to delete
+     * @throws InsufficientFundsException if the financialAction is a deposit already spent
+     */
+    public void delete(Long id) {
+        log.debug("Request to delete FinancialAction : {}", id);
+        userSequencer.execute(findOwner(id), () -> transactionTemplate.execute(status -> {
+            FinancialAction previous = financialActionRepository.findOne(id);
+            if (previous != null) {
+                balanceService.reverse(previous);
+                balanceService.checkReversal(previous);
+                financialActionRollupService.markDirty(previous.getActionDate());
+            }
+            financialActionRepository.delete(id);
+            searchOutboxService.delete(FinancialAction.class, id);
+            return null;
+        }));
+    }
+
+    /**
+     * The owner of a financialAction never changes, so it can be read before the mutations of the owner are serialized.
+     *
+     * @param id the id of the financialAction, or null for a new one
+     * @return the login of the owner of the financialAction, the current user for a new one
+     */
+    private String findOwner(Long id) {
+        String login = id != null ? financialActionRepository.findUserLoginById(id) : null;
+        return login != null ? login : BalanceService.getCurrentLogin();
+    }
+
+    private static FinancialAction balanceStateOf(FinancialAction financialAction) {
+        FinancialAction state = new FinancialAction();
+        state.setUserLogin(financialAction.getUserLogin());
+        state.setAction(financialAction.getAction());
+        state.setAmount(financialAction.getAmount());
+        state.setCurrency(financialAction.getCurrency());
+        return state;
+    }
+}
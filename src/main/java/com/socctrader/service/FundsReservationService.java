@@ -0,0 +1,133 @@
+package com.socctrader.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.query.Predicates;
+import com.socctrader.config.CacheConfiguration;
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.domain.Money;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service holding the funds of the journaled withdrawals which are acknowledged but not applied yet.
+ * <p>
+ * The reservations are shared by the cluster, and subtracted from the balances by {@link BalanceService#checkFunds},
+ * so that no other mutation of the user, on any node, can spend the funds of an acknowledged withdrawal.
+ * Like the balances, they are only read and written while the mutations of the user are serialized by the
+ * {@link UserSequencer}.
+ */
+@Service
+public class FundsReservationService {
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    private IMap<String, FundsReservation> reservations;
+
+    @PostConstruct
+    public void init() {
+        reservations = hazelcastInstance.getMap(CacheConfiguration.FUNDS_RESERVATIONS_MAP_NAME);
+    }
+
+    /**
+     * Reserve the funds of a withdrawal, other financialActions reserve nothing.
+     *
+     * @param key the key of the reservation, unique in the cluster
+     * @param node the node applying the withdrawal
+     * @param financialAction the withdrawal
+     */
+    public void reserve(String key, String node, FinancialAction financialAction) {
+        if (financialAction.getAction() == Action.WITHDRAW && financialAction.getAmount() != null
+            && financialAction.getCurrency() != null && financialAction.getAmount() > 0) {
+            reservations.set(key, new FundsReservation(financialAction.getUserLogin(), financialAction.getCurrency(),
+                financialAction.getAmount(), node));
+        }
+    }
+
+    public void release(Collection<String> keys) {
+        keys.forEach(reservations::delete);
+    }
+
+    /**
+     * Release the reservations of a node which are not in the given set, after the node restarted.
+     *
+     * @param node the node
+     * @param kept the keys of the reservations to keep
+     */
+    public void releaseAllBut(String node, Set<String> kept) {
+        for (String key : reservations.keySet(Predicates.equal("node", node))) {
+            if (!kept.contains(key)) {
+                reservations.delete(key);
+            }
+        }
+    }
+
+    /**
+     * @param login the login of the user
+     * @param currency the currency
+     * @param excluded the keys of the reservations not to count
+     * @return the sum of the amounts reserved by the user in the currency, in minor units
+     */
+    public long getReserved(String login, Currency currency, Set<String> excluded) {
+        long reserved = 0;
+        for (Map.Entry<String, FundsReservation> entry : reservations.entrySet(Predicates.equal("login", login))) {
+            if (entry.getValue().getCurrency() == currency && !excluded.contains(entry.getKey())) {
+                reserved = Money.add(reserved, entry.getValue().getAmount());
+            }
+        }
+        return reserved;
+    }
+
+    public long getReserved(String login, Currency currency) {
+        return getReserved(login, currency, Collections.emptySet());
+    }
+
+    /**
+     * The funds of a withdrawal, indexed by the login of its owner.
+     */
+    public static class FundsReservation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String login;
+
+        private final Currency currency;
+
+        private final long amount;
+
+        private final String node;
+
+        FundsReservation(String login, Currency currency, long amount, String node) {
+            this.login = login;
+            this.currency = currency;
+            this.amount = amount;
+            this.node = node;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        public Currency getCurrency() {
+            return currency;
+        }
+
+        public long getAmount() {
+            return amount;
+        }
+
+        public String getNode() {
+            return node;
+        }
+    }
+}
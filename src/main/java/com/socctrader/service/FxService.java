@@ -0,0 +1,72 @@
+package com.socctrader.service;
+
+import com.socctrader.config.Properties;
+import com.socctrader.fx.RateTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Service publishing the current FX {@link RateTable}.
+ * <p>
+ * Snapshots are read from <code>jhipster.fx.rates-location</code> at startup and every minute. Each snapshot
+ * becomes a new immutable table, swapped in with a single volatile write: callers should read the table once
+ * and use it for a whole computation, so that all its conversions use the same rates.
+ */
+@Service
+public class FxService {
+
+    private final Logger log = LoggerFactory.getLogger(FxService.class);
+
+    @Inject
+    private Properties properties;
+
+    @Inject
+    private ResourceLoader resourceLoader;
+
+    private volatile RateTable rateTable;
+
+    @PostConstruct
+    public void init() throws IOException {
+        rateTable = load();
+        log.info("Loaded FX rates {}", rateTable);
+    }
+
+    /**
+     * Reload the rate snapshot. A snapshot that cannot be read leaves the current table in place.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void refresh() {
+        try {
+            RateTable loaded = load();
+            if (!loaded.getAsOf().equals(rateTable.getAsOf())) {
+                rateTable = loaded;
+                log.info("Refreshed FX rates {}", loaded);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not refresh FX rates, keeping the rates as of {}: {}", rateTable.getAsOf(), e.getMessage());
+        }
+    }
+
+    /**
+     * @return the current rate table
+     */
+    public RateTable getRateTable() {
+        return rateTable;
+    }
+
+    private RateTable load() throws IOException {
+        Resource resource = resourceLoader.getResource(properties.getFx().getRatesLocation());
+        try (InputStream in = resource.getInputStream()) {
+            return RateTable.parse(in);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.socctrader.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.socctrader.config.CacheConfiguration;
+import com.socctrader.config.Properties;
+import com.socctrader.web.rest.util.HeaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Service deduplicating the requests sent with an <code>Idempotency-Key</code> header.
+ * <p>
+ * The first response for a key is stored in the Hazelcast map {@value CacheConfiguration#IDEMPOTENCY_MAP_NAME},
+ * and later requests with the same key get it back without running again. Keys are scoped by user.
+ * <p>
+ * The lookup of a key and its claim are a single <code>putIfAbsent</code> of an in-flight marker. The marker only
+ * lives for <code>jhipster.cache.idempotency-lease-seconds</code>, so that a key claimed by a member which died
+ * before storing the response can be used again, and is replaced by the response, with the full time to live,
+ * once the request completes. Duplicates arriving on this member while the first request runs wait for its
+ * result in memory, without any call to the cluster.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final long WAIT_TIMEOUT_MILLIS = 10000;
+
+    private static final long POLL_INTERVAL_MILLIS = 20;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private Properties properties;
+
+    private IMap<String, StoredResponse> responses;
+
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        responses = hazelcastInstance.getMap(CacheConfiguration.IDEMPOTENCY_MAP_NAME);
+    }
+
+    /**
+     * A request handler whose response can be stored and replayed.
+     *
+     * @param <T> the type of the response body, which must be serializable
+     * @param <E> the exception thrown by the handler
+     */
+    @FunctionalInterface
+    public interface IdempotentAction<T, E extends Exception> {
+        ResponseEntity<T> execute() throws E;
+    }
+
+    /**
+     * Run a request at most once per idempotency key.
+     * <p>
+     * Server errors are not stored, so that the request can be retried with the same key.
+     *
+     * @param entityName the entity name, used in the failure alerts
+     * @param idempotencyKey the value of the Idempotency-Key header, or null to run the request unconditionally
+     * @param request the request body, compared with the one first sent with the key
+     * @param action the request handler
+     * @param <T> the type of the response body
+     * @param <E> the exception thrown by the handler
+     * @return the response of the first request sent with the key,
+     * or status 422 (Unprocessable Entity) if the key was first sent with another request body,
+     * or status 409 (Conflict) if the first request with the key is still running
+     * @throws E if the handler fails
+     */
+    public <T, E extends Exception> ResponseEntity<T> execute(String entityName, String idempotencyKey, Object request,
+                                                              IdempotentAction<T, E> action) throws E {
+        if (idempotencyKey == null) {
+            return action.execute();
+        }
+        String key = BalanceService.getCurrentLogin() + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<StoredResponse> local = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, local);
+        if (running != null) {
+            log.debug("Waiting for the request in flight with idempotency key {}", idempotencyKey);
+            StoredResponse response = await(running);
+            if (response == null) {
+                return conflict(entityName);
+            }
+            return replay(entityName, response, fingerprint);
+        }
+        try {
+            StoredResponse previous = responses.putIfAbsent(key, new StoredResponse(fingerprint),
+                properties.getCache().getIdempotencyLeaseSeconds(), TimeUnit.SECONDS);
+            if (previous != null) {
+                if (previous.isInFlight()) {
+                    previous = awaitOtherMember(key);
+                }
+                finish(key, local, previous);
+                if (previous == null) {
+                    return conflict(entityName);
+                }
+                return replay(entityName, previous, fingerprint);
+            }
+
+            ResponseEntity<T> result = null;
+            try {
+                result = action.execute();
+            } finally {
+                if (result == null || result.getStatusCode().is5xxServerError()) {
+                    responses.remove(key);
+                    finish(key, local, null);
+                }
+            }
+            if (!result.getStatusCode().is5xxServerError()) {
+                StoredResponse stored = new StoredResponse(fingerprint, result);
+                responses.set(key, stored, properties.getCache().getIdempotencyTimeToLiveSeconds(), TimeUnit.SECONDS);
+                finish(key, local, stored);
+            }
+            return result;
+        } finally {
+            inFlight.remove(key, local);
+        }
+    }
+
+    private void finish(String key, CompletableFuture<StoredResponse> local, StoredResponse response) {
+        // Removed before completing, so that the waiting duplicates never see a completed entry
+        inFlight.remove(key, local);
+        local.complete(response);
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private StoredResponse awaitOtherMember(String key) {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+                StoredResponse response = responses.get(key);
+                if (response == null) {
+                    // The first request failed
+                    return null;
+                }
+                if (!response.isInFlight()) {
+                    return response;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> replay(String entityName, StoredResponse response, String fingerprint) {
+        if (!response.fingerprint.equals(fingerprint)) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .headers(HeaderUtil.createFailureAlert(entityName, "idempotencykeyreused",
+                    "The Idempotency-Key was already used with another request"))
+                .body(null);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.headers);
+        headers.add(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>((T) response.body, headers, HttpStatus.valueOf(response.status));
+    }
+
+    private <T> ResponseEntity<T> conflict(String entityName) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .headers(HeaderUtil.createFailureAlert(entityName, "idempotencykeyinflight",
+                "The request with this Idempotency-Key did not complete, retry later"))
+            .body(null);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize the request", e);
+        }
+    }
+
+    /**
+     * A response stored for an idempotency key, or the marker of a request in flight.
+     */
+    static class StoredResponse implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String fingerprint;
+
+        private final int status;
+
+        private final LinkedHashMap<String, List<String>> headers = new LinkedHashMap<>();
+
+        private final Object body;
+
+        StoredResponse(String fingerprint) {
+            this.fingerprint = fingerprint;
+            this.status = 0;
+            this.body = null;
+        }
+
+        StoredResponse(String fingerprint, ResponseEntity<?> response) {
+            this.fingerprint = fingerprint;
+            this.status = response.getStatusCode().value();
+            for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+                headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+            this.body = response.getBody();
+        }
+
+        boolean isInFlight() {
+            return status == 0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.socctrader.service;
+
+import com.socctrader.domain.Money;
+import com.socctrader.domain.enumeration.Currency;
+
+/**
+ * Thrown when a withdrawal would overdraw the balance of a user.
+ */
+public class InsufficientFundsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientFundsException(String login, Currency currency, long available, long requested) {
+        super("Insufficient funds for " + login + ": " + Money.toBigDecimal(available) + " " + currency
+            + " available, " + Money.toBigDecimal(requested) + " requested");
+    }
+}
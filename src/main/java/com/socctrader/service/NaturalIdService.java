@@ -0,0 +1,54 @@
+package com.socctrader.service;
+
+import com.socctrader.domain.Country;
+import com.socctrader.domain.League;
+import com.socctrader.domain.Team;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Service finding Teams, Leagues and Countries by their natural id, the external id used by the upstream feeds.
+ * <p>
+ * The lookups go through the Hibernate natural id API: the resolution of a natural id to an id is cached in the
+ * natural id region of the entity, and the entity in its entity region, so a repeated lookup does not hit the
+ * database.
+ */
+@Service
+@Transactional(readOnly = true)
+public class NaturalIdService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * @param teamId the external id of the team
+     * @return the team, or null if there is none
+     */
+    public Team findTeam(Long teamId) {
+        return find(Team.class, teamId);
+    }
+
+    /**
+     * @param leagueId the external id of the league
+     * @return the league, or null if there is none
+     */
+    public League findLeague(Long leagueId) {
+        return find(League.class, leagueId);
+    }
+
+    /**
+     * @param countryId the external id of the country
+     * @return the country, or null if there is none
+     */
+    public Country findCountry(Long countryId) {
+        return find(Country.class, countryId);
+    }
+
+    private <T> T find(Class<T> type, Long naturalId) {
+        return em.unwrap(Session.class).bySimpleNaturalId(type).load(naturalId);
+    }
+}
@@ -0,0 +1,390 @@
+package com.socctrader.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
+import com.socctrader.domain.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service holding the reference data, the Region, Country, Location, League and Team hierarchy, as an immutable
+ * in-memory snapshot.
+ * <p>
+ * The snapshot is read once from the database, each entity linked to the instance of its parent, and each table
+ * sorted by id, so that a lookup is a binary search on a <code>long[]</code>: reads take no lock and allocate
+ * nothing. The entities of the snapshot are detached and shared, they must never be modified.
+ * <p>
+ * Writes through the resources of these entities call {@link #onChanged()}: once their transaction is committed,
+ * the writing member builds a new snapshot and swaps it in (copy-on-write) before the request returns, so a client
+ * reads its own writes. A message on the Hazelcast topic {@value #TOPIC_NAME} then marks the snapshot of the other
+ * members of the cluster stale, and a scheduled job rebuilds it, off the Hazelcast event thread. Messages arriving
+ * while a snapshot is built are coalesced into the next build.
+ * <p>
+ * Each snapshot also holds the whole hierarchy as a tree, serialized once to JSON and gzip bytes with their ETag,
+ * so that serving it costs no serialization.
+ */
+@Service
+public class ReferenceDataService {
+
+    public static final String TOPIC_NAME = "reference-data";
+
+    private final Logger log = LoggerFactory.getLogger(ReferenceDataService.class);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate afterCommitTransactionTemplate;
+
+    private ITopic<Long> topic;
+
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        // After a commit, the resources of the committed transaction are still bound to the thread
+        afterCommitTransactionTemplate = new TransactionTemplate(transactionManager);
+        afterCommitTransactionTemplate.setReadOnly(true);
+        afterCommitTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        rebuild();
+        topic = hazelcastInstance.getTopic(TOPIC_NAME);
+        topic.addMessageListener(message -> {
+            // This member rebuilt its snapshot before publishing
+            if (!message.getPublishingMember().localMember()) {
+                stale.set(true);
+            }
+        });
+    }
+
+    /**
+     * @return the current snapshot of the reference data
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Rebuild the snapshot of this member, then mark the snapshots of the other members stale,
+     * once the current transaction is committed.
+     */
+    public void onChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuildAndPublish(transactionTemplate);
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                rebuildAndPublish(afterCommitTransactionTemplate);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(ReferenceDataService.this);
+            }
+        });
+    }
+
+    private void rebuildAndPublish(TransactionTemplate template) {
+        rebuild(template);
+        topic.publish(System.currentTimeMillis());
+    }
+
+    /**
+     * Build a new snapshot of this member from the database, and swap it in.
+     */
+    public void rebuild() {
+        rebuild(transactionTemplate);
+    }
+
+    private synchronized void rebuild(TransactionTemplate template) {
+        stale.set(false);
+        long start = System.nanoTime();
+        // Read from the primary, which has the commit that triggered the rebuild
+        snapshot = ReplicaRoutingDataSource.usePrimary(() -> template.execute(status -> {
+            List<Region> regions = em.createQuery("select region from Region region order by region.id", Region.class)
+                .getResultList();
+            List<Country> countries = em.createQuery("select country from Country country order by country.id", Country.class)
+                .getResultList();
+            List<Location> locations = em.createQuery("select location from Location location order by location.id", Location.class)
+                .getResultList();
+            List<League> leagues = em.createQuery("select league from League league order by league.id", League.class)
+                .getResultList();
+            List<Team> teams = em.createQuery("select team from Team team order by team.id", Team.class).getResultList();
+            return new Snapshot(regions, countries, locations, leagues, teams,
+                serializeHierarchy(regions, countries, locations, leagues, teams));
+        }));
+        log.debug("Built the reference data snapshot of {} teams in {} ms", snapshot.getTeams().size(),
+            (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Rebuild the snapshot of this member if a change was published since the last build.
+     */
+    @Scheduled(fixedDelay = 100)
+    public void rebuildIfStale() {
+        if (stale.get()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Serialize the hierarchy as nested regions, countries, locations, leagues and teams, each list sorted by id.
+     * The entities whose parent is not set are listed at the top level, next to the regions.
+     */
+    private Hierarchy serializeHierarchy(List<Region> allRegions, List<Country> allCountries, List<Location> allLocations,
+                                         List<League> allLeagues, List<Team> allTeams) {
+        Map<Long, List<Map<String, Object>>> teamsByLeague = new HashMap<>();
+        List<Map<String, Object>> teams = new ArrayList<>();
+        for (Team team : allTeams) {
+            Map<String, Object> node = node(team.getId(), "teamId", team.getTeamId(), "teamName", team.getTeamName());
+            children(teamsByLeague, teams, team.getLeague() == null ? null : team.getLeague().getId()).add(node);
+        }
+        Map<Long, List<Map<String, Object>>> leaguesByLocation = new HashMap<>();
+        List<Map<String, Object>> leagues = new ArrayList<>();
+        for (League league : allLeagues) {
+            Map<String, Object> node = node(league.getId(), "leagueId", league.getLeagueId(), "leagueName", league.getLeagueName());
+            node.put("teams", teamsByLeague.getOrDefault(league.getId(), Collections.emptyList()));
+            children(leaguesByLocation, leagues, league.getLocation() == null ? null : league.getLocation().getId()).add(node);
+        }
+        Map<Long, List<Map<String, Object>>> locationsByCountry = new HashMap<>();
+        List<Map<String, Object>> locations = new ArrayList<>();
+        for (Location location : allLocations) {
+            Map<String, Object> node = node(location.getId(), "locationId", location.getLocationId(), "city", location.getCity());
+            node.put("leagues", leaguesByLocation.getOrDefault(location.getId(), Collections.emptyList()));
+            children(locationsByCountry, locations, location.getCountry() == null ? null : location.getCountry().getId()).add(node);
+        }
+        Map<Long, List<Map<String, Object>>> countriesByRegion = new HashMap<>();
+        List<Map<String, Object>> countries = new ArrayList<>();
+        for (Country country : allCountries) {
+            Map<String, Object> node = node(country.getId(), "countryId", country.getCountryId(), "countryName", country.getCountryName());
+            node.put("locations", locationsByCountry.getOrDefault(country.getId(), Collections.emptyList()));
+            children(countriesByRegion, countries, country.getRegion() == null ? null : country.getRegion().getId()).add(node);
+        }
+        List<Map<String, Object>> regions = new ArrayList<>();
+        for (Region region : allRegions) {
+            Map<String, Object> node = node(region.getId(), "regionId", region.getRegionId(), "regionName", region.getRegionName());
+            node.put("countries", countriesByRegion.getOrDefault(region.getId(), Collections.emptyList()));
+            regions.add(node);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("regions", regions);
+        root.put("countries", countries);
+        root.put("locations", locations);
+        root.put("leagues", leagues);
+        root.put("teams", teams);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(root);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            return new Hierarchy(json, gzip.toByteArray(), "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the hierarchy", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> node(Long id, String idField, Long businessId, String nameField, String name) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("id", id);
+        node.put(idField, businessId);
+        node.put(nameField, name);
+        return node;
+    }
+
+    /**
+     * @return the children of a parent, or the top level list if the parent is not set
+     */
+    private static List<Map<String, Object>> children(Map<Long, List<Map<String, Object>>> childrenByParent,
+                                                      List<Map<String, Object>> topLevel, Long parentId) {
+        return parentId == null ? topLevel : childrenByParent.computeIfAbsent(parentId, key -> new ArrayList<>());
+    }
+
+    /**
+     * An immutable snapshot of the reference data.
+     */
+    public static final class Snapshot {
+
+        private final Table<Region> regions;
+
+        private final Table<Country> countries;
+
+        private final Table<Location> locations;
+
+        private final Table<League> leagues;
+
+        private final Table<Team> teams;
+
+        private final Hierarchy hierarchy;
+
+        Snapshot(List<Region> regions, List<Country> countries, List<Location> locations, List<League> leagues,
+                 List<Team> teams, Hierarchy hierarchy) {
+            this.regions = new Table<>(regions, Region::getId);
+            this.countries = new Table<>(countries, Country::getId);
+            this.locations = new Table<>(locations, Location::getId);
+            this.leagues = new Table<>(leagues, League::getId);
+            this.teams = new Table<>(teams, Team::getId);
+            this.hierarchy = hierarchy;
+        }
+
+        public Table<Region> getRegions() {
+            return regions;
+        }
+
+        public Table<Country> getCountries() {
+            return countries;
+        }
+
+        public Table<Location> getLocations() {
+            return locations;
+        }
+
+        public Table<League> getLeagues() {
+            return leagues;
+        }
+
+        public Table<Team> getTeams() {
+            return teams;
+        }
+
+        public Hierarchy getHierarchy() {
+            return hierarchy;
+        }
+    }
+
+    /**
+     * The serialized hierarchy. The arrays are shared, they must never be modified.
+     */
+    public static final class Hierarchy {
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private final String etag;
+
+        Hierarchy(byte[] json, byte[] gzip, String etag) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * @return the strong ETag of the hierarchy, quoted
+         */
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    /**
+     * The rows of an entity, sorted by id.
+     */
+    public static final class Table<T> {
+
+        private final long[] ids;
+
+        private final List<T> rows;
+
+        Table(List<T> rows, ToLongFunction<T> id) {
+            this.ids = new long[rows.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = id.applyAsLong(rows.get(i));
+            }
+            this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        }
+
+        /**
+         * @return all the rows
+         */
+        public List<T> getAll() {
+            return rows;
+        }
+
+        /**
+         * @param id the id of the row
+         * @return the row, or null if there is none
+         */
+        public T get(long id) {
+            int index = Arrays.binarySearch(ids, id);
+            return index < 0 ? null : rows.get(index);
+        }
+
+        /**
+         * @param id the id after which the rows start
+         * @param limit the maximum number of rows
+         * @return the rows with an id greater than the given one
+         */
+        public List<T> getAfter(long id, int limit) {
+            int index = Arrays.binarySearch(ids, id);
+            int from = index < 0 ? -index - 1 : index + 1;
+            return rows.subList(from, Math.min(from + limit, ids.length));
+        }
+
+        /**
+         * @param offset the index of the first row
+         * @param limit the maximum number of rows
+         * @return the rows of the page
+         */
+        public List<T> getPage(int offset, int limit) {
+            int from = Math.min(offset, ids.length);
+            return rows.subList(from, Math.min(from + limit, ids.length));
+        }
+
+        public int size() {
+            return ids.length;
+        }
+    }
+}
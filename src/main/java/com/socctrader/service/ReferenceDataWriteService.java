@@ -0,0 +1,60 @@
+package com.socctrader.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import java.util.function.Function;
+
+/**
+ * Service saving and deleting the reference data: countries, leagues, locations, regions and teams.
+ * <p>
+ * Each write changes the row and queues its search indexing in the {@link SearchOutboxService} in one
+ * transaction, and the {@link ReferenceDataService} snapshot is rebuilt once it is committed.
+ */
+@Service
+@Transactional
+public class ReferenceDataWriteService {
+
+    private final Logger log = LoggerFactory.getLogger(ReferenceDataWriteService.class);
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    /**
+     * Save a reference data entity.
+     *
+     * @param repository the repository of the entity
+     * @param type the class of the entity, indexed by the outbox
+     * @param entity the entity to save
+     * @param id the id of a saved entity
+     * @return the persisted entity
+     */
+    public <T> T save(JpaRepository<T, Long> repository, Class<T> type, T entity, Function<T, Long> id) {
+        log.debug("Request to save {} : {}", type.getSimpleName(), entity);
+        T result = repository.save(entity);
+        searchOutboxService.index(type, id.apply(result));
+        referenceDataService.onChanged();
+        return result;
+    }
+
+    /**
+     * Delete a reference data entity.
+     *
+     * @param repository the repository of the entity
+     * @param type the class of the entity, removed from the index by the outbox
+     * @param id the id of the entity
+     */
+    public <T> void delete(JpaRepository<T, Long> repository, Class<T> type, Long id) {
+        log.debug("Request to delete {} : {}", type.getSimpleName(), id);
+        repository.delete(id);
+        searchOutboxService.delete(type, id);
+        referenceDataService.onChanged();
+    }
+}
@@ -0,0 +1,174 @@
+package com.socctrader.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.socctrader.config.CacheConfiguration;
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.domain.Money;
+import com.socctrader.domain.TeamSearchDocument;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.web.rest.dto.FacetBucketDTO;
+import com.socctrader.web.rest.dto.SearchFacetsDTO;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+
+/**
+ * Service computing the facets of a search in Elasticsearch: the number of matching documents per value of
+ * some fields, and optionally the net sum of their amounts, deposits counting positive and withdrawals negative.
+ * <p>
+ * The facets are terms and sum aggregations of a search with no hits, so only the buckets are sent back. They
+ * are cached in the Hazelcast map {@value CacheConfiguration#SEARCH_FACETS_MAP_NAME} for
+ * <code>jhipster.cache.search-facets-time-to-live-seconds</code>, by entity, query and number of buckets.
+ * <p>
+ * The terms are aggregated on the not analyzed <code>raw</code> sub-fields of the mappings, and the amounts are
+ * summed on the <code>amountMinorUnits</code> long field. Both only hold the documents indexed since they were
+ * added: the facets require a reindex of the existing documents.
+ */
+@Service
+public class SearchFacetService {
+
+    public static final int DEFAULT_FACET_SIZE = 10;
+
+    private final Logger log = LoggerFactory.getLogger(SearchFacetService.class);
+
+    private static final String SUM_AGGREGATION = "sum";
+
+    private static final String ACTION_AGGREGATION = "action";
+
+    private static final Facet[] TEAM_FACETS = {
+        new Facet("league", "leagueName.raw", null, null),
+        new Facet("country", "countryName.raw", null, null),
+        new Facet("region", "regionName.raw", null, null)
+    };
+
+    private static final Facet[] FINANCIAL_ACTION_FACETS = {
+        new Facet("currency", "currency.raw", "amountMinorUnits", "action.raw"),
+        new Facet("action", "action.raw", null, null)
+    };
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    private IMap<String, SearchFacetsDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = hazelcastInstance.getMap(CacheConfiguration.SEARCH_FACETS_MAP_NAME);
+    }
+
+    /**
+     * Count the teams matching a query per league, country and region.
+     *
+     * @param query the query of the team search
+     * @param size the maximum number of buckets per facet
+     * @return the facets
+     */
+    public SearchFacetsDTO getTeamFacets(String query, int size) {
+        return getFacets(TeamSearchDocument.class, query, size, TEAM_FACETS);
+    }
+
+    /**
+     * Count the financialActions matching a query per currency, with the net sum of their amounts, and per action.
+     *
+     * @param query the query of the financialAction search
+     * @param size the maximum number of buckets per facet
+     * @return the facets
+     */
+    public SearchFacetsDTO getFinancialActionFacets(String query, int size) {
+        return getFacets(FinancialAction.class, query, size, FINANCIAL_ACTION_FACETS);
+    }
+
+    private SearchFacetsDTO getFacets(Class<?> type, String query, int size, Facet... facets) {
+        String key = type.getSimpleName() + ":" + size + ":" + query.trim().replaceAll("\\s+", " ");
+        SearchFacetsDTO result = cache.get(key);
+        if (result == null) {
+            result = search(type, query, size, facets);
+            cache.set(key, result);
+        } else {
+            log.debug("Facets of {} served from the cache", key);
+        }
+        return result;
+    }
+
+    private SearchFacetsDTO search(Class<?> type, String query, int size, Facet... facets) {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getPersistentEntityFor(type);
+        SearchRequestBuilder request = elasticsearchTemplate.getClient().prepareSearch(persistentEntity.getIndexName())
+            .setTypes(persistentEntity.getIndexType())
+            .setQuery(queryStringQuery(query))
+            .setSize(0);
+        for (Facet facet : facets) {
+            TermsBuilder terms = AggregationBuilders.terms(facet.name).field(facet.field).size(size);
+            if (facet.sumField != null) {
+                // Summed per action, to subtract the withdrawals from the deposits
+                terms.subAggregation(AggregationBuilders.terms(ACTION_AGGREGATION).field(facet.actionField)
+                    .subAggregation(AggregationBuilders.sum(SUM_AGGREGATION).field(facet.sumField)));
+            }
+            request.addAggregation(terms);
+        }
+        SearchResponse response = request.get();
+
+        SearchFacetsDTO result = new SearchFacetsDTO();
+        result.setTotal(response.getHits().getTotalHits());
+        for (Facet facet : facets) {
+            Terms terms = response.getAggregations().get(facet.name);
+            List<FacetBucketDTO> buckets = new ArrayList<>(terms.getBuckets().size());
+            for (Terms.Bucket bucket : terms.getBuckets()) {
+                Long sum = null;
+                if (facet.sumField != null) {
+                    sum = 0L;
+                    Terms actions = bucket.getAggregations().get(ACTION_AGGREGATION);
+                    for (Terms.Bucket action : actions.getBuckets()) {
+                        Sum sumAggregation = action.getAggregations().get(SUM_AGGREGATION);
+                        // A sum of longs, returned as a double: exact up to 2^53 minor units
+                        long amount = (long) sumAggregation.getValue();
+                        sum = Action.WITHDRAW.name().equalsIgnoreCase(action.getKey())
+                            ? Money.subtract(sum, amount) : Money.add(sum, amount);
+                    }
+                }
+                buckets.add(new FacetBucketDTO(bucket.getKey(), bucket.getDocCount(), sum));
+            }
+            result.getFacets().put(facet.name, buckets);
+        }
+        return result;
+    }
+
+    /**
+     * A terms aggregation on a field, optionally summing another field in each bucket, signed by the action.
+     */
+    private static class Facet {
+
+        private final String name;
+
+        private final String field;
+
+        private final String sumField;
+
+        private final String actionField;
+
+        Facet(String name, String field, String sumField, String actionField) {
+            this.name = name;
+            this.field = field;
+            this.sumField = sumField;
+            this.actionField = actionField;
+        }
+    }
+}
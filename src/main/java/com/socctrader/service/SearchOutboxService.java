@@ -0,0 +1,340 @@
+package com.socctrader.service;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ILock;
+import com.socctrader.config.Properties;
+import com.socctrader.domain.SearchOutboxEvent;
+import com.socctrader.domain.TeamSearchDocument;
+import com.socctrader.domain.enumeration.SearchOperation;
+import com.socctrader.repository.SearchOutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.ElasticsearchException;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.metamodel.EntityType;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Service keeping the Elasticsearch indexes in sync with the database through a transactional outbox.
+ * <p>
+ * Saving or deleting an indexed entity only writes a {@link SearchOutboxEvent}, in the same transaction,
+ * so requests never wait on Elasticsearch and a crash cannot lose an index update. A scheduled relay
+ * drains the outbox in id order, with one bulk request per entity type and batch.
+ * <p>
+ * The relay indexes the current row of each entity, or deletes its document when the row is gone, so
+ * the last committed change of an entity always wins whatever the order of its events. Only one relay
+ * runs in the cluster at a time, guarded by the Hazelcast lock {@value #RELAY_LOCK_NAME}.
+ * <p>
+ * The denormalized {@link com.socctrader.domain.TeamSearchDocument}s of the teams below the relayed entities
+ * are re-indexed with each batch; a failure there rolls the whole batch back, to be relayed again. The relay
+ * does not refresh the indexes, the writes become searchable with their refresh interval, and the cached search
+ * results of the written indexes are invalidated once they are.
+ * <p>
+ * A failed document only delays its own event, retried with a growing delay and abandoned after
+ * <code>jhipster.search-outbox.max-attempts</code>; the other events keep being relayed. The whole relay only
+ * backs off when a batch fails, as when Elasticsearch is down. The backlog, the lag of the oldest pending
+ * event and the abandoned events are published as metrics.
+ */
+@Service
+public class SearchOutboxService {
+
+    public static final String RELAY_LOCK_NAME = "search-outbox-relay";
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxService.class);
+
+    private static final long MIN_BACKOFF_MILLIS = 500;
+
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private SearchOutboxEventRepository searchOutboxEventRepository;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private TeamSearchDocumentService teamSearchDocumentService;
+
+    @Inject
+    private SearchResultCacheService searchResultCacheService;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private Properties properties;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, Class<?>> indexedTypes = new HashMap<>();
+
+    private Meter relayed;
+
+    private Meter failed;
+
+    private volatile long backoffMillis;
+
+    private volatile long retryAt;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (EntityType<?> type : em.getMetamodel().getEntities()) {
+            if (type.getJavaType().isAnnotationPresent(Document.class)) {
+                indexedTypes.put(type.getName(), type.getJavaType());
+            }
+        }
+        int maxAttempts = properties.getSearchOutbox().getMaxAttempts();
+        metricRegistry.register("search.outbox.backlog", new CachedGauge<Long>(5, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                return searchOutboxEventRepository.countPending(maxAttempts);
+            }
+        });
+        metricRegistry.register("search.outbox.lag", new CachedGauge<Long>(5, TimeUnit.SECONDS) {
+            @Override
+            protected Long loadValue() {
+                ZonedDateTime oldest = searchOutboxEventRepository.findOldestPendingCreatedDate(maxAttempts);
+                return oldest == null ? 0 : Duration.between(oldest, ZonedDateTime.now()).toMillis();
+            }
+        });
+        metricRegistry.register("search.outbox.abandoned", new CachedGauge<Long>(1, TimeUnit.MINUTES) {
+            @Override
+            protected Long loadValue() {
+                return searchOutboxEventRepository.countAbandoned(maxAttempts);
+            }
+        });
+        relayed = metricRegistry.meter("search.outbox.relayed");
+        failed = metricRegistry.meter("search.outbox.failed");
+    }
+
+    /**
+     * Queue the indexing of a saved entity, in the transaction saving it.
+     *
+     * @param type the class of the entity, annotated with @Document
+     * @param id the id of the entity
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void index(Class<?> type, Long id) {
+        em.persist(new SearchOutboxEvent(getEntityType(type), id, SearchOperation.INDEX));
+    }
+
+    /**
+     * Queue the indexing of saved entities, in the transaction saving them.
+     *
+     * @param type the class of the entities, annotated with @Document
+     * @param ids the ids of the entities
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void indexAll(Class<?> type, Collection<Long> ids) {
+        String entityType = getEntityType(type);
+        for (Long id : ids) {
+            em.persist(new SearchOutboxEvent(entityType, id, SearchOperation.INDEX));
+        }
+    }
+
+    /**
+     * Queue the removal of a deleted entity from the index, in the transaction deleting it.
+     *
+     * @param type the class of the entity, annotated with @Document
+     * @param id the id of the entity
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void delete(Class<?> type, Long id) {
+        em.persist(new SearchOutboxEvent(getEntityType(type), id, SearchOperation.DELETE));
+    }
+
+    /**
+     * Relay the pending events to Elasticsearch, until the outbox is drained or a batch fails.
+     */
+    @Scheduled(fixedDelay = 200)
+    public void relay() {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        ILock lock = hazelcastInstance.getLock(RELAY_LOCK_NAME);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            relayAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Relay the pending events to Elasticsearch now, waiting for the relay of another node to finish first,
+     * then refresh the indexes so that the relayed changes are searchable on return.
+     */
+    public void drain() {
+        ILock lock = hazelcastInstance.getLock(RELAY_LOCK_NAME);
+        lock.lock();
+        try {
+            relayAll();
+        } finally {
+            lock.unlock();
+        }
+        indexedTypes.values().forEach(type -> elasticsearchTemplate.refresh(type, true));
+        elasticsearchTemplate.refresh(TeamSearchDocument.class, true);
+    }
+
+    /**
+     * Run a task while no relay runs in the cluster. The events committed meanwhile stay in the outbox,
+     * and are relayed once the task is done.
+     *
+     * @param task the task to run
+     * @return the result of the task
+     */
+    public <T> T whileRelayPaused(Supplier<T> task) {
+        ILock lock = hazelcastInstance.getLock(RELAY_LOCK_NAME);
+        lock.lock();
+        try {
+            return task.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void relayAll() {
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> relayBatch()))) {
+                log.debug("Relayed a batch of search outbox events, continuing");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Relaying the search outbox failed: {}", e.getMessage());
+            backOff();
+        }
+    }
+
+    /**
+     * @return true if the batch was full and fully relayed, so that more events may be pending
+     */
+    private boolean relayBatch() {
+        int batchSize = properties.getSearchOutbox().getBatchSize();
+        List<SearchOutboxEvent> events = searchOutboxEventRepository.findPending(
+            properties.getSearchOutbox().getMaxAttempts(), ZonedDateTime.now(), new PageRequest(0, batchSize));
+        if (events.isEmpty()) {
+            backoffMillis = 0;
+            return false;
+        }
+        Map<Class<?>, Set<Long>> ids = new HashMap<>();
+        for (SearchOutboxEvent event : events) {
+            Class<?> type = indexedTypes.get(event.getEntityType());
+            if (type == null) {
+                log.warn("Dropping the search outbox event of unknown entity type: {}", event);
+                continue;
+            }
+            ids.computeIfAbsent(type, key -> new LinkedHashSet<>()).add(event.getEntityId());
+        }
+        Map<Class<?>, Set<Long>> failedIds = new HashMap<>();
+        ids.forEach((type, typeIds) -> failedIds.put(type, sync(type, typeIds)));
+        ids.forEach(teamSearchDocumentService::reindexAffected);
+
+        List<Long> done = new ArrayList<>(events.size());
+        int retried = 0;
+        for (SearchOutboxEvent event : events) {
+            Set<Long> failedTypeIds = failedIds.get(indexedTypes.get(event.getEntityType()));
+            if (failedTypeIds != null && failedTypeIds.contains(event.getEntityId())) {
+                // Only this event waits, the next batches skip it until its retry date
+                event.setRetryDate(ZonedDateTime.now().plus(retryDelay(event.getAttempts())));
+                event.setAttempts(event.getAttempts() + 1);
+                retried++;
+            } else {
+                done.add(event.getId());
+            }
+        }
+        if (!done.isEmpty()) {
+            searchOutboxEventRepository.deleteByIdIn(done);
+            relayed.mark(done.size());
+        }
+        if (retried > 0) {
+            failed.mark(retried);
+        }
+        backoffMillis = 0;
+        return events.size() == batchSize;
+    }
+
+    /**
+     * Copy the current rows of some entities to their index, deleting the documents of the missing rows.
+     *
+     * @return the ids of the entities which could not be synced
+     */
+    private Set<Long> sync(Class<?> type, Set<Long> ids) {
+        PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        List<?> entities = em.createQuery("select entity from " + getEntityType(type) + " entity where entity.id in :ids")
+            .setParameter("ids", ids)
+            .getResultList();
+        Set<Long> missing = new HashSet<>(ids);
+        List<IndexQuery> queries = new ArrayList<>(entities.size());
+        for (Object entity : entities) {
+            Long id = (Long) persistenceUnitUtil.getIdentifier(entity);
+            missing.remove(id);
+            queries.add(new IndexQueryBuilder()
+                .withId(id.toString())
+                .withObject(entity)
+                .build());
+        }
+        Set<Long> failedIds = new HashSet<>();
+        if (!queries.isEmpty()) {
+            try {
+                elasticsearchTemplate.bulkIndex(queries);
+            } catch (ElasticsearchException e) {
+                log.warn("Indexing of {} {} documents failed: {}", e.getFailedDocuments().size(), type.getSimpleName(), e.getMessage());
+                for (String id : e.getFailedDocuments().keySet()) {
+                    failedIds.add(Long.valueOf(id));
+                }
+            }
+        }
+        for (Long id : missing) {
+            elasticsearchTemplate.delete(type, id.toString());
+        }
+        searchResultCacheService.invalidateAfterRefresh(type);
+        return failedIds;
+    }
+
+    private String getEntityType(Class<?> type) {
+        return em.getMetamodel().entity(type).getName();
+    }
+
+    private void backOff() {
+        backoffMillis = Math.min(Math.max(backoffMillis * 2, MIN_BACKOFF_MILLIS), MAX_BACKOFF_MILLIS);
+        retryAt = System.currentTimeMillis() + backoffMillis;
+    }
+
+    private static Duration retryDelay(int attempts) {
+        return Duration.ofMillis(Math.min(MIN_BACKOFF_MILLIS << Math.min(attempts, 16), MAX_BACKOFF_MILLIS));
+    }
+}
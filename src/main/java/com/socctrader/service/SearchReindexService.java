@@ -0,0 +1,372 @@
+package com.socctrader.service;
+
+import com.socctrader.config.Properties;
+import com.socctrader.domain.*;
+import com.socctrader.repository.*;
+import com.socctrader.web.rest.dto.SearchIndexProgressDTO;
+import com.socctrader.web.rest.dto.SearchReindexDTO;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse;
+import org.elasticsearch.client.IndicesAdminClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+import java.beans.Introspector;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service rebuilding the search indices from the database, without downtime.
+ * <p>
+ * Each entity is loaded into a new versioned index, named after its alias and the start of the reindex.
+ * The table is scanned in id-range partitions of <code>jhipster.reindex.partition-size</code> ids on a
+ * fork/join pool, each partition read in its own transaction and indexed with one bulk request. Replicas
+ * and refreshes are disabled while loading. The alias is then moved to the new index in a single atomic
+ * request, and the previous index is deleted, so searches never see a partially built index.
+ * <p>
+ * The {@link TeamSearchDocument}s are rebuilt the same way, scanning the teams with their hierarchy.
+ * <p>
+ * The search outbox relay is paused during the reindex: the changes committed meanwhile are relayed
+ * once the aliases point to the new indices, so none of them is lost.
+ */
+@Service
+public class SearchReindexService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexService.class);
+
+    private static final List<Class<?>> INDEXED_ENTITIES = Collections.unmodifiableList(Arrays.asList(
+        Region.class, Country.class, Location.class, League.class, Team.class, FinancialAction.class));
+
+    /** The queries loading the entities with their associations, the other entities are loaded alone. */
+    private static final Map<Class<?>, String> SELECTS = new HashMap<>();
+
+    static {
+        SELECTS.put(Country.class, CountryRepository.SELECT_WITH_HIERARCHY);
+        SELECTS.put(Location.class, LocationRepository.SELECT_WITH_HIERARCHY);
+        SELECTS.put(League.class, LeagueRepository.SELECT_WITH_HIERARCHY);
+        SELECTS.put(Team.class, TeamRepository.SELECT_WITH_HIERARCHY);
+    }
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private TeamSearchDocumentService teamSearchDocumentService;
+
+    @Inject
+    private SearchResultCacheService searchResultCacheService;
+
+    @Inject
+    private Properties properties;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Inject
+    @Qualifier("taskExecutor")
+    private TaskExecutor taskExecutor;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile ZonedDateTime startedDate;
+
+    private volatile ZonedDateTime finishedDate;
+
+    private volatile String error;
+
+    private final List<Progress> progresses = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Start a full reindex in the background.
+     *
+     * @return false if a reindex is already running
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        String version = ZonedDateTime.now().format(VERSION_FORMAT);
+        synchronized (progresses) {
+            progresses.clear();
+            for (Class<?> type : INDEXED_ENTITIES) {
+                String alias = elasticsearchTemplate.getPersistentEntityFor(type).getIndexName();
+                progresses.add(new Progress(type, type, alias, alias + "_" + version));
+            }
+            String alias = elasticsearchTemplate.getPersistentEntityFor(TeamSearchDocument.class).getIndexName();
+            progresses.add(new Progress(TeamSearchDocument.class, Team.class, alias, alias + "_" + version));
+        }
+        startedDate = ZonedDateTime.now();
+        finishedDate = null;
+        error = null;
+        taskExecutor.execute(() -> {
+            try {
+                searchOutboxService.whileRelayPaused(() -> {
+                    progresses.forEach(this::reindex);
+                    return null;
+                });
+                log.info("Reindexed {} indices", progresses.size());
+            } catch (RuntimeException e) {
+                log.error("Reindex failed: {}", e.getMessage(), e);
+                error = e.getMessage();
+            } finally {
+                finishedDate = ZonedDateTime.now();
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return the state of the running or last reindex
+     */
+    public SearchReindexDTO getStatus() {
+        SearchReindexDTO status = new SearchReindexDTO();
+        if (startedDate == null) {
+            return status;
+        }
+        status.setState(running.get() ? SearchReindexDTO.State.RUNNING
+            : error != null ? SearchReindexDTO.State.FAILED : SearchReindexDTO.State.COMPLETED);
+        status.setStartedDate(startedDate);
+        status.setFinishedDate(finishedDate);
+        status.setError(error);
+        synchronized (progresses) {
+            for (Progress progress : progresses) {
+                status.getIndices().add(progress.toDTO());
+            }
+        }
+        return status;
+    }
+
+    private void reindex(Progress progress) {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchTemplate.getPersistentEntityFor(progress.type);
+        IndicesAdminClient indices = elasticsearchTemplate.getClient().admin().indices();
+        String entityName = em.getMetamodel().entity(progress.entityType).getName();
+        long[] range = transactionTemplate.execute(status -> {
+            Object[] row = (Object[]) em.createQuery("select min(entity.id), max(entity.id), count(entity) from " + entityName + " entity")
+                .getSingleResult();
+            return row[0] == null ? null : new long[] {(Long) row[0], (Long) row[1], (Long) row[2]};
+        });
+        progress.start(range == null ? 0 : range[2]);
+        log.debug("Reindexing {} {} into {}", progress.total, entityName, progress.index);
+
+        Map<String, Object> loadSettings = new HashMap<>();
+        loadSettings.put("index.number_of_shards", persistentEntity.getShards());
+        loadSettings.put("index.number_of_replicas", 0);
+        loadSettings.put("index.refresh_interval", "-1");
+        indices.prepareCreate(progress.index).setSettings(loadSettings).get();
+        try {
+            putMapping(progress.type, progress.index);
+            if (range != null) {
+                ForkJoinPool pool = new ForkJoinPool(properties.getReindex().getParallelism());
+                try {
+                    pool.invoke(new PartitionTask(progress, entityName, persistentEntity.getIndexType(), range[0], range[1]));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            Map<String, Object> searchSettings = new HashMap<>();
+            searchSettings.put("index.number_of_replicas", persistentEntity.getReplicas());
+            searchSettings.put("index.refresh_interval", persistentEntity.getRefreshInterval());
+            indices.prepareUpdateSettings(progress.index).setSettings(searchSettings).get();
+            indices.prepareRefresh(progress.index).get();
+            swapAlias(indices, progress.alias, progress.index);
+            searchResultCacheService.invalidate(progress.type);
+            progress.finish();
+            log.debug("Reindexed {} {} at {} rows/s", progress.indexed.get(), entityName, progress.getRowsPerSecond());
+        } catch (RuntimeException e) {
+            indices.prepareDelete(progress.index).get();
+            throw e;
+        }
+    }
+
+    /**
+     * Give the new index the mapping of the document, built from its annotations or read from its mapping file. The
+     * template only puts it on the index named by the annotations, the alias, which still points to the previous
+     * index: the put is redirected to the new one.
+     */
+    private void putMapping(Class<?> type, String index) {
+        new ElasticsearchTemplate(elasticsearchTemplate.getClient()) {
+            @Override
+            public boolean putMapping(String indexName, String indexType, Object mapping) {
+                return super.putMapping(index, indexType, mapping);
+            }
+        }.putMapping(type);
+    }
+
+    private void swapAlias(IndicesAdminClient indices, String alias, String index) {
+        GetAliasesResponse aliases = indices.prepareGetAliases(alias).get();
+        List<String> previousIndices = new ArrayList<>();
+        for (Iterator<String> it = aliases.getAliases().keysIt(); it.hasNext(); ) {
+            String previousIndex = it.next();
+            if (!aliases.getAliases().get(previousIndex).isEmpty()) {
+                previousIndices.add(previousIndex);
+            }
+        }
+        if (previousIndices.isEmpty() && elasticsearchTemplate.indexExists(alias)) {
+            // The index was created before the aliases: this first swap cannot be atomic
+            log.warn("Replacing the index {} with an alias to {}", alias, index);
+            indices.prepareDelete(alias).get();
+        }
+        IndicesAliasesRequestBuilder swap = indices.prepareAliases().addAlias(index, alias);
+        for (String previousIndex : previousIndices) {
+            swap.removeAlias(previousIndex, alias);
+        }
+        swap.get();
+        for (String previousIndex : previousIndices) {
+            indices.prepareDelete(previousIndex).get();
+        }
+    }
+
+    /**
+     * Index the entities of an id range, splitting it until it fits in one partition.
+     */
+    private class PartitionTask extends RecursiveAction {
+
+        private final Progress progress;
+
+        private final String entityName;
+
+        private final String indexType;
+
+        private final long from;
+
+        private final long to;
+
+        PartitionTask(Progress progress, String entityName, String indexType, long from, long to) {
+            this.progress = progress;
+            this.entityName = entityName;
+            this.indexType = indexType;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from >= properties.getReindex().getPartitionSize()) {
+                long middle = from + (to - from) / 2;
+                invokeAll(new PartitionTask(progress, entityName, indexType, from, middle),
+                    new PartitionTask(progress, entityName, indexType, middle + 1, to));
+                return;
+            }
+            List<IndexQuery> queries = transactionTemplate.execute(status -> {
+                Map<Long, ?> documents = progress.type == TeamSearchDocument.class
+                    ? teamSearchDocumentService.findDocuments(from, to) : findEntities();
+                List<IndexQuery> partition = new ArrayList<>(documents.size());
+                documents.forEach((id, document) -> partition.add(new IndexQueryBuilder()
+                    .withIndexName(progress.index)
+                    .withType(indexType)
+                    .withId(id.toString())
+                    .withObject(document)
+                    .build()));
+                return partition;
+            });
+            if (!queries.isEmpty()) {
+                elasticsearchTemplate.bulkIndex(queries);
+                progress.indexed.addAndGet(queries.size());
+            }
+        }
+
+        private Map<Long, Object> findEntities() {
+            PersistenceUnitUtil persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+            // The selects name each entity after its type
+            String alias = Introspector.decapitalize(entityName);
+            String select = SELECTS.getOrDefault(progress.entityType, "select " + alias + " from " + entityName + " " + alias + " ");
+            List<?> entities = em.createQuery(select + "where " + alias + ".id between :from and :to")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+            Map<Long, Object> documents = new LinkedHashMap<>();
+            for (Object entity : entities) {
+                documents.put((Long) persistenceUnitUtil.getIdentifier(entity), entity);
+            }
+            return documents;
+        }
+    }
+
+    private static class Progress {
+
+        private final Class<?> type;
+
+        private final Class<?> entityType;
+
+        private final String alias;
+
+        private final String index;
+
+        private final AtomicLong indexed = new AtomicLong();
+
+        private volatile long total;
+
+        private volatile long startNanos;
+
+        private volatile long finishNanos;
+
+        private volatile boolean swapped;
+
+        Progress(Class<?> type, Class<?> entityType, String alias, String index) {
+            this.type = type;
+            this.entityType = entityType;
+            this.alias = alias;
+            this.index = index;
+        }
+
+        void start(long total) {
+            this.total = total;
+            this.startNanos = System.nanoTime();
+        }
+
+        void finish() {
+            this.finishNanos = System.nanoTime();
+            this.swapped = true;
+        }
+
+        long getRowsPerSecond() {
+            if (startNanos == 0) {
+                return 0;
+            }
+            long elapsed = (finishNanos != 0 ? finishNanos : System.nanoTime()) - startNanos;
+            return elapsed == 0 ? 0 : indexed.get() * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+
+        SearchIndexProgressDTO toDTO() {
+            return new SearchIndexProgressDTO(type.getSimpleName(), alias, index, total, indexed.get(),
+                getRowsPerSecond(), swapped);
+        }
+    }
+}
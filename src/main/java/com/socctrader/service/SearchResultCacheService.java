@@ -0,0 +1,141 @@
+package com.socctrader.service;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.socctrader.config.CacheConfiguration;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Service caching pages of search results, in the Hazelcast map {@value CacheConfiguration#SEARCH_RESULTS_MAP_NAME}.
+ * <p>
+ * The results are keyed by the normalized query, page and sort, and by the generation of the searched index.
+ * Writing to an index bumps its generation, a Hazelcast atomic long shared by the cluster, so the results cached
+ * before are never read again and expire with the map's time to live. An index written without an explicit refresh
+ * is invalidated again once its refresh interval passed, so that the results cached in between from the not yet
+ * refreshed index are not read either.
+ * <p>
+ * The hits and misses of each index are published as the meters <code>search.cache.&lt;index&gt;.hits</code>
+ * and <code>search.cache.&lt;index&gt;.misses</code>.
+ */
+@Service
+public class SearchResultCacheService {
+
+    private static final String GENERATION_PREFIX = "search-generation-";
+
+    private final Logger log = LoggerFactory.getLogger(SearchResultCacheService.class);
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private IMap<String, CachedPage> results;
+
+    /** The indexes to invalidate again once refreshed, with the time their writes are searchable. */
+    private final Map<Class<?>, Long> refreshing = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        results = hazelcastInstance.getMap(CacheConfiguration.SEARCH_RESULTS_MAP_NAME);
+    }
+
+    /**
+     * Get a page of search results from the cache, or search and cache it.
+     *
+     * @param type the class of the searched documents
+     * @param query the query of the search
+     * @param pageable the page of the search
+     * @param search the search, returning the page as it is sent to the client
+     * @param <T> the type of the results, which must be serializable
+     * @return the page of results
+     */
+    public <T extends Serializable> Page<T> get(Class<?> type, String query, Pageable pageable, Supplier<Page<T>> search) {
+        String index = elasticsearchTemplate.getPersistentEntityFor(type).getIndexName();
+        long generation = hazelcastInstance.getAtomicLong(GENERATION_PREFIX + index).get();
+        String key = index + ":" + generation + ":" + query.trim().replaceAll("\\s+", " ") + ":" +
+            pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+        @SuppressWarnings("unchecked")
+        CachedPage<T> cached = results.get(key);
+        if (cached != null) {
+            metricRegistry.meter(MetricRegistry.name("search.cache", index, "hits")).mark();
+            return new PageImpl<>(cached.content, pageable, cached.total);
+        }
+        metricRegistry.meter(MetricRegistry.name("search.cache", index, "misses")).mark();
+        Page<T> page = search.get();
+        results.set(key, new CachedPage<>(page.getContent(), page.getTotalElements()));
+        return page;
+    }
+
+    /**
+     * Invalidate the cached results of an index, after a write to it and its refresh.
+     *
+     * @param type the class of the written documents
+     */
+    public void invalidate(Class<?> type) {
+        String index = elasticsearchTemplate.getPersistentEntityFor(type).getIndexName();
+        long generation = hazelcastInstance.getAtomicLong(GENERATION_PREFIX + index).incrementAndGet();
+        log.debug("Search results of {} invalidated, now at generation {}", index, generation);
+    }
+
+    /**
+     * Invalidate the cached results of an index after a write to it, now and again once the index refreshed
+     * itself.
+     *
+     * @param type the class of the written documents
+     */
+    public void invalidateAfterRefresh(Class<?> type) {
+        invalidate(type);
+        TimeValue refreshInterval = TimeValue.parseTimeValue(
+            elasticsearchTemplate.getPersistentEntityFor(type).getRefreshInterval(), null);
+        if (refreshInterval != null && refreshInterval.millis() > 0) {
+            long refreshed = System.currentTimeMillis() + refreshInterval.millis();
+            refreshing.merge(type, refreshed, Math::max);
+        }
+    }
+
+    @Scheduled(fixedDelay = 200)
+    public void invalidateRefreshed() {
+        long now = System.currentTimeMillis();
+        refreshing.forEach((type, refreshed) -> {
+            if (refreshed <= now && refreshing.remove(type, refreshed)) {
+                invalidate(type);
+            }
+        });
+    }
+
+    private static class CachedPage<T extends Serializable> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<T> content;
+
+        private final long total;
+
+        CachedPage(List<T> content, long total) {
+            this.content = new ArrayList<>(content);
+            this.total = total;
+        }
+    }
+}
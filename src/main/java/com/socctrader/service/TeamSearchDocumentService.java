@@ -0,0 +1,176 @@
+package com.socctrader.service;
+
+import com.socctrader.config.Properties;
+import com.socctrader.domain.*;
+import com.socctrader.repository.TeamRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+
+/**
+ * Service maintaining the {@link TeamSearchDocument}s, the teams flattened with their league, location,
+ * country and region.
+ * <p>
+ * The search outbox relay calls it for every relayed batch: a changed team re-indexes its own document, and
+ * a changed league, location, country or region re-indexes the documents of all the teams below it. These
+ * teams are found with one query on the hierarchy, and re-indexed by batches of
+ * <code>jhipster.search-outbox.batch-size</code> teams, each loaded with its whole hierarchy in one query
+ * and indexed with one bulk request.
+ */
+@Service
+public class TeamSearchDocumentService {
+
+    private final Logger log = LoggerFactory.getLogger(TeamSearchDocumentService.class);
+
+    private static final Map<Class<?>, String> TEAM_PATHS = new HashMap<>();
+
+    static {
+        TEAM_PATHS.put(League.class, "team.league.id");
+        TEAM_PATHS.put(Location.class, "team.league.location.id");
+        TEAM_PATHS.put(Country.class, "team.league.location.country.id");
+        TEAM_PATHS.put(Region.class, "team.league.location.country.region.id");
+    }
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    @Inject
+    private SearchResultCacheService searchResultCacheService;
+
+    @Inject
+    private Properties properties;
+
+    /**
+     * Re-index the documents of the teams affected by the change of some entities.
+     *
+     * @param type the class of the changed entities
+     * @param ids the ids of the changed entities
+     * @return the number of re-indexed team documents
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int reindexAffected(Class<?> type, Collection<Long> ids) {
+        if (type == Team.class) {
+            return reindex(ids);
+        }
+        String path = TEAM_PATHS.get(type);
+        if (path == null || ids.isEmpty()) {
+            return 0;
+        }
+        int batchSize = properties.getSearchOutbox().getBatchSize();
+        int reindexed = 0;
+        Long after = Long.MIN_VALUE;
+        List<Long> teamIds;
+        do {
+            teamIds = em.createQuery("select team.id from Team team where " + path + " in :ids and team.id > :after " +
+                "order by team.id", Long.class)
+                .setParameter("ids", ids)
+                .setParameter("after", after)
+                .setMaxResults(batchSize)
+                .getResultList();
+            if (!teamIds.isEmpty()) {
+                reindexed += reindex(teamIds);
+                after = teamIds.get(teamIds.size() - 1);
+            }
+        } while (teamIds.size() == batchSize);
+        if (reindexed > 0) {
+            log.debug("Re-indexed {} team documents after the change of {} {}", reindexed, ids.size(), type.getSimpleName());
+        }
+        return reindexed;
+    }
+
+    /**
+     * Load the documents of the teams of an id range, for a full reindex.
+     *
+     * @param from the first team id
+     * @param to the last team id
+     * @return the documents, by team id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, TeamSearchDocument> findDocuments(long from, long to) {
+        List<Team> teams = em.createQuery(TeamRepository.SELECT_WITH_HIERARCHY + "where team.id between :from and :to", Team.class)
+            .setParameter("from", from)
+            .setParameter("to", to)
+            .getResultList();
+        Map<Long, TeamSearchDocument> documents = new LinkedHashMap<>();
+        for (Team team : teams) {
+            documents.put(team.getId(), toDocument(team));
+        }
+        return documents;
+    }
+
+    /**
+     * Flatten a team and its hierarchy.
+     *
+     * @param team the team, with its league, location, country and region loaded
+     * @return the document of the team
+     */
+    public TeamSearchDocument toDocument(Team team) {
+        TeamSearchDocument document = new TeamSearchDocument();
+        document.setId(team.getId());
+        document.setTeamId(team.getTeamId());
+        document.setTeamName(team.getTeamName());
+        League league = team.getLeague();
+        if (league != null) {
+            document.setLeagueId(league.getLeagueId());
+            document.setLeagueName(league.getLeagueName());
+            Location location = league.getLocation();
+            if (location != null) {
+                document.setLocationId(location.getLocationId());
+                document.setCity(location.getCity());
+                Country country = location.getCountry();
+                if (country != null) {
+                    document.setCountryId(country.getCountryId());
+                    document.setCountryName(country.getCountryName());
+                    Region region = country.getRegion();
+                    if (region != null) {
+                        document.setRegionId(region.getRegionId());
+                        document.setRegionName(region.getRegionName());
+                    }
+                }
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Copy the current teams to their documents, deleting the documents of the missing teams.
+     */
+    private int reindex(Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return 0;
+        }
+        List<Team> teams = em.createQuery(TeamRepository.SELECT_WITH_HIERARCHY + "where team.id in :ids", Team.class)
+            .setParameter("ids", teamIds)
+            .getResultList();
+        Set<Long> missing = new HashSet<>(teamIds);
+        List<IndexQuery> queries = new ArrayList<>(teams.size());
+        for (Team team : teams) {
+            missing.remove(team.getId());
+            queries.add(new IndexQueryBuilder()
+                .withId(team.getId().toString())
+                .withObject(toDocument(team))
+                .build());
+        }
+        if (!queries.isEmpty()) {
+            elasticsearchTemplate.bulkIndex(queries);
+        }
+        for (Long id : missing) {
+            elasticsearchTemplate.delete(TeamSearchDocument.class, id.toString());
+        }
+        searchResultCacheService.invalidateAfterRefresh(TeamSearchDocument.class);
+        return teamIds.size();
+    }
+}
@@ -0,0 +1,183 @@
+package com.socctrader.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
+import com.socctrader.repository.TeamRepository;
+import com.socctrader.service.dto.TeamDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Service suggesting teams whose name starts with a prefix, from an in-heap index of the team names.
+ * <p>
+ * The index is a sorted array of the normalized names (lower case, without accents), with the DTOs of the teams
+ * in a parallel array, so a suggestion is a binary search followed by a scan of the matching range, without any
+ * call to the database or to Elasticsearch. It is immutable: it is built from the database at startup, and each
+ * change of a team builds a patched copy, which replaces it atomically.
+ * <p>
+ * Changes are broadcast on the Hazelcast topic {@value #TOPIC_NAME} once their transaction is committed, so that
+ * every member of the cluster patches its own index.
+ */
+@Service
+public class TeamSuggestService {
+
+    public static final String TOPIC_NAME = "team-suggest";
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    private final Logger log = LoggerFactory.getLogger(TeamSuggestService.class);
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    @Inject
+    private HazelcastInstance hazelcastInstance;
+
+    private ITopic<Long> topic;
+
+    private volatile Index index = new Index(new String[0], new TeamDTO[0]);
+
+    @PostConstruct
+    public void init() {
+        List<TeamDTO> teams = teamRepository.findAllDTOs();
+        List<Entry> entries = new ArrayList<>(teams.size());
+        for (TeamDTO team : teams) {
+            if (team.getTeamName() != null) {
+                entries.add(new Entry(normalize(team.getTeamName()), team));
+            }
+        }
+        index = Index.of(entries);
+        log.debug("Built the team suggestion index of {} teams", entries.size());
+        topic = hazelcastInstance.getTopic(TOPIC_NAME);
+        topic.addMessageListener(message -> update(message.getMessageObject()));
+    }
+
+    /**
+     * Suggest the teams whose name starts with a prefix, ignoring case and accents.
+     *
+     * @param prefix the prefix of the team names
+     * @param size the maximum number of teams, at most {@value #MAX_SUGGESTIONS}
+     * @return the teams, by name
+     */
+    public List<TeamDTO> suggest(String prefix, int size) {
+        Index current = index;
+        String key = normalize(prefix);
+        int limit = Math.min(size, MAX_SUGGESTIONS);
+        int from = current.lowerBound(key);
+        int to = from;
+        while (to < current.keys.length && to - from < limit && current.keys[to].startsWith(key)) {
+            to++;
+        }
+        return Arrays.asList(current.teams).subList(from, to);
+    }
+
+    /**
+     * Patch the indexes of the cluster with a created, updated or deleted team, once its transaction is committed.
+     *
+     * @param id the id of the team
+     */
+    public void onTeamChanged(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    topic.publish(id);
+                }
+            });
+        } else {
+            topic.publish(id);
+        }
+    }
+
+    /**
+     * Patch the index of this member with the current row of a team.
+     *
+     * @param id the id of the team
+     */
+    public synchronized void update(Long id) {
+        // Read from the primary, which has the commit of the change
+        TeamDTO team = ReplicaRoutingDataSource.usePrimary(() -> teamRepository.findOneDTO(id));
+        Index current = index;
+        List<Entry> entries = new ArrayList<>(current.keys.length + 1);
+        for (int i = 0; i < current.keys.length; i++) {
+            if (!id.equals(current.teams[i].getId())) {
+                entries.add(new Entry(current.keys[i], current.teams[i]));
+            }
+        }
+        if (team != null && team.getTeamName() != null) {
+            entries.add(new Entry(normalize(team.getTeamName()), team));
+        }
+        index = Index.of(entries);
+    }
+
+    private static String normalize(String name) {
+        return Normalizer.normalize(name, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .trim();
+    }
+
+    private static class Entry {
+
+        private final String key;
+
+        private final TeamDTO team;
+
+        Entry(String key, TeamDTO team) {
+            this.key = key;
+            this.team = team;
+        }
+    }
+
+    /**
+     * The normalized names, sorted, and the teams in the same order.
+     */
+    private static class Index {
+
+        private final String[] keys;
+
+        private final TeamDTO[] teams;
+
+        Index(String[] keys, TeamDTO[] teams) {
+            this.keys = keys;
+            this.teams = teams;
+        }
+
+        static Index of(List<Entry> entries) {
+            entries.sort(Comparator.comparing((Entry entry) -> entry.key).thenComparing(entry -> entry.team.getId()));
+            String[] keys = new String[entries.size()];
+            TeamDTO[] teams = new TeamDTO[entries.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = entries.get(i).key;
+                teams[i] = entries.get(i).team;
+            }
+            return new Index(keys, teams);
+        }
+
+        /**
+         * @return the position of the first key greater than or equal to the prefix
+         */
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].compareTo(prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.socctrader.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.socctrader.config.Properties;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the mutations of each user across the cluster, while mutations of different users run in parallel.
+ * <p>
+ * Users are hashed onto a fixed set of lock stripes, the Hazelcast locks
+ * <code>{@value #LOCK_NAME_PREFIX}&lt;stripe&gt;</code>: two users only wait for each other when they share
+ * a stripe. The mutation must open and commit its own transaction inside {@link #execute}, so that the next
+ * mutation of the user, on any node, sees its effects.
+ */
+@Service
+public class UserSequencer {
+
+    public static final String LOCK_NAME_PREFIX = "user-sequencer-";
+
+    private final Lock[] stripes;
+
+    private final int mask;
+
+    @Inject
+    public UserSequencer(HazelcastInstance hazelcastInstance, Properties properties) {
+        this(properties.getSequencer().getStripes(), stripe -> hazelcastInstance.getLock(LOCK_NAME_PREFIX + stripe));
+    }
+
+    /**
+     * @param stripes the number of lock stripes, rounded up to a power of two
+     * @param lockOfStripe the lock of each stripe
+     */
+    public UserSequencer(int stripes, IntFunction<Lock> lockOfStripe) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = lockOfStripe.apply(i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Run a mutation of a user, after the previous mutations of the same user completed.
+     *
+     * @param login the login of the user
+     * @param mutation the mutation
+     * @param <T> the type of the mutation result
+     * @return the mutation result
+     */
+    public <T> T execute(String login, Supplier<T> mutation) {
+        Lock lock = stripes[stripeOf(login)];
+        lock.lock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run a mutation of a user, after the previous mutations of the same user completed.
+     *
+     * @param login the login of the user
+     * @param mutation the mutation
+     */
+    public void execute(String login, Runnable mutation) {
+        execute(login, () -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a mutation of several users, after the previous mutations of each of them completed.
+     * <p>
+     * The stripes are locked in ascending order, so that two callers cannot deadlock.
+     *
+     * @param logins the logins of the users
+     * @param mutation the mutation
+     * @param <T> the type of the mutation result
+     * @return the mutation result
+     */
+    public <T> T executeAll(Collection<String> logins, Supplier<T> mutation) {
+        int[] order = logins.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : order) {
+                stripes[stripe].lock();
+                locked++;
+            }
+            return mutation.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    int stripeOf(String login) {
+        int h = login.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -1,4 +1,4 @@
-package com.socctrader.web.rest.dto;
+package com.socctrader.service.dto;
 
 import java.io.Serializable;
 import java.util.HashSet;
@@ -19,7 +19,20 @@ public class TeamDTO implements Serializable {
 
 
     private Long leagueId;
-    
+
+    public TeamDTO() {
+    }
+
+    /**
+     * Constructor of the JPQL projections of {@link com.socctrader.repository.TeamRepository}.
+     */
+    public TeamDTO(Long id, Long teamId, String teamName, Long leagueId) {
+        this.id = id;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.leagueId = leagueId;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,4 @@
+/**
+ * Data Transfer Objects shared by the repositories, the services and the REST controllers.
+ */
+package com.socctrader.service.dto;
@@ -0,0 +1,79 @@
+package com.socctrader.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.socctrader.domain.Balance;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.security.AuthoritiesConstants;
+import com.socctrader.service.BalanceService;
+import com.socctrader.web.rest.dto.ExposureDTO;
+import com.socctrader.web.rest.util.HeaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * REST controller for reading Balance.
+ */
+@RestController
+@RequestMapping("/api")
+public class BalanceResource {
+
+    private final Logger log = LoggerFactory.getLogger(BalanceResource.class);
+
+    @Inject
+    private BalanceService balanceService;
+
+    /**
+     * GET  /balances : get the balances of the current user.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the list of balances in body
+     */
+    @RequestMapping(value = "/balances",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public List<Balance> getCurrentUserBalances() {
+        log.debug("REST request to get the Balances of the current user");
+        return balanceService.findCurrentUserBalances();
+    }
+
+    /**
+     * GET  /balances?in=:currency : get the total of the balances of the current user, converted into one currency.
+     *
+     * @param in the currency of the total
+     * @return the ResponseEntity with status 200 (OK) and the converted total in body
+     */
+    @RequestMapping(value = "/balances",
+        method = RequestMethod.GET,
+        params = "in",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ExposureDTO getCurrentUserExposure(@RequestParam Currency in) {
+        log.debug("REST request to get the Balances of the current user in {}", in);
+        return balanceService.findCurrentUserExposure(in);
+    }
+
+    /**
+     * POST  /balances/_rebuild : recompute all balances from the financialAction history.
+     *
+     * @return the ResponseEntity with status 200 (OK) and the number of repaired balances in body
+     */
+    @RequestMapping(value = "/balances/_rebuild",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<Integer> rebuildBalances() {
+        log.debug("REST request to rebuild Balances");
+        int repaired = balanceService.rebuild();
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("socctraderApp.balance.rebuilt", String.valueOf(repaired)))
+            .body(repaired);
+    }
+}
@@ -1,10 +1,17 @@
 package com.socctrader.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
 import com.socctrader.domain.Country;
 import com.socctrader.repository.CountryRepository;
 import com.socctrader.repository.search.CountrySearchRepository;
+import com.socctrader.service.NaturalIdService;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
 import com.socctrader.web.rest.util.HeaderUtil;
+import com.socctrader.web.rest.util.MultiGetUtil;
+import com.socctrader.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -14,12 +21,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -38,6 +45,18 @@ public class CountryResource {
     @Inject
     private CountrySearchRepository countrySearchRepository;
     
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+    
     /**
      * POST  /countries : Create a new country.
      *
@@ -54,8 +73,7 @@ public class CountryResource {
         if (country.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("country", "idexists", "A new country cannot already have an ID")).body(null);
         }
-        Country result = countryRepository.save(country);
-        countrySearchRepository.save(result);
+        Country result = referenceDataWriteService.save(countryRepository, Country.class, country, Country::getId);
         return ResponseEntity.created(new URI("/api/countries/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("country", result.getId().toString()))
             .body(result);
@@ -79,8 +97,7 @@ public class CountryResource {
         if (country.getId() == null) {
             return createCountry(country);
         }
-        Country result = countryRepository.save(country);
-        countrySearchRepository.save(result);
+        Country result = referenceDataWriteService.save(countryRepository, Country.class, country, Country::getId);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("country", country.getId().toString()))
             .body(result);
@@ -97,8 +114,52 @@ public class CountryResource {
     @Timed
     public List<Country> getAllCountries() {
         log.debug("REST request to get all Countries");
-        List<Country> countries = countryRepository.findAll();
-        return countries;
+        return referenceDataService.getSnapshot().getCountries().getAll();
+    }
+
+    /**
+     * GET  /countries?after=:cursor&size=:size : get a page of countries, using keyset pagination.
+     * <p>
+     * The page starts after the id encoded in the cursor, and the cursor of the next page is given in the Link header.
+     *
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of countries in the page
+     * @return the ResponseEntity with status 200 (OK) and the list of countries in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/countries",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Country>> getCountriesAfter(@RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Countries after cursor {}", after);
+        List<Country> countries = referenceDataService.getSnapshot().getCountries().getAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.generateKeysetPageable(size).getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(countries, size, Country::getId, "/api/countries");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(countries, size), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /countries?ids=:ids : get the countries of some ids, in one request.
+     * <p>
+     * The countries are written in the order of the ids, skipping the unknown ones.
+     *
+     * @param ids the ids of the countries to retrieve, at most {@value MultiGetUtil#MAX_IDS}
+     * @param response the response to write the JSON array of the countries to, with status 200 (OK)
+     * @throws IOException if the countries could not be written
+     */
+    @RequestMapping(value = "/countries",
+        method = RequestMethod.GET,
+        params = {"ids", "!after"},
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getCountriesByIds(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get Countries : {}", ids);
+        MultiGetUtil.writeAll(ids, referenceDataService.getSnapshot().getCountries()::get,
+            countryRepository::findWithHierarchyByIdIn, Country::getId, objectMapper, response);
     }
 
     /**
@@ -113,7 +174,31 @@ public class CountryResource {
     @Timed
     public ResponseEntity<Country> getCountry(@PathVariable Long id) {
         log.debug("REST request to get Country : {}", id);
-        Country country = countryRepository.findOne(id);
+        Country country = referenceDataService.getSnapshot().getCountries().get(id);
+        if (country == null) {
+            // Created after the snapshot was built, by a commit not broadcast yet: replicas may lag behind it
+            country = ReplicaRoutingDataSource.usePrimary(() -> countryRepository.findOneWithHierarchy(id));
+        }
+        return Optional.ofNullable(country)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /countries/by-country-id/:countryId : get the country by its external id.
+     *
+     * @param countryId the external id of the country to retrieve
+     * @return the ResponseEntity with status 200 (OK) and with body the country, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/countries/by-country-id/{countryId}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<Country> getCountryByCountryId(@PathVariable Long countryId) {
+        log.debug("REST request to get Country by countryId : {}", countryId);
+        Country country = naturalIdService.findCountry(countryId);
         return Optional.ofNullable(country)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -133,27 +218,37 @@ public class CountryResource {
     @Timed
     public ResponseEntity<Void> deleteCountry(@PathVariable Long id) {
         log.debug("REST request to delete Country : {}", id);
-        countryRepository.delete(id);
-        countrySearchRepository.delete(id);
+        referenceDataWriteService.delete(countryRepository, Country.class, id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("country", id.toString())).build();
     }
 
     /**
-     * SEARCH  /_search/countries?query=:query : search for the country corresponding
-     * to the query.
+     * SEARCH  /_search/countries?query=:query&after=:cursor&size=:size : search for the country corresponding
+     * to the query, using search-after pagination.
+     * <p>
+     * The hits are ordered by id, the page starts after the id encoded in the cursor, and the cursor of the next page
+     * is given in the Link header.
      *
      * @param query the query of the country search
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of countries in the page
      * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/_search/countries",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<Country> searchCountries(@RequestParam String query) {
-        log.debug("REST request to search Countries for query {}", query);
-        return StreamSupport
-            .stream(countrySearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<Country>> searchCountries(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search Countries for query {} after cursor {}", query, after);
+        List<Country> countries = countrySearchRepository.search(PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size))
+            .getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, countries, size, Country::getId,
+            "/api/_search/countries");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(countries, size), headers, HttpStatus.OK);
     }
 
 
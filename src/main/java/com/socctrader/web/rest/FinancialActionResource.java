@@ -2,24 +2,46 @@ package com.socctrader.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
 import com.socctrader.domain.FinancialAction;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
 import com.socctrader.repository.FinancialActionRepository;
 import com.socctrader.repository.search.FinancialActionSearchRepository;
+import com.socctrader.security.AuthoritiesConstants;
+import com.socctrader.service.FinancialActionBulkService;
+import com.socctrader.service.FinancialActionExportService;
+import com.socctrader.service.FinancialActionJournalService;
+import com.socctrader.service.FinancialActionRollupService;
+import com.socctrader.service.FinancialActionService;
+import com.socctrader.service.IdempotencyService;
+import com.socctrader.service.InsufficientFundsException;
+import com.socctrader.service.SearchFacetService;
+import com.socctrader.web.rest.dto.BulkItemResultDTO;
+import com.socctrader.web.rest.dto.FinancialActionSummaryDTO;
+import com.socctrader.web.rest.dto.SearchFacetsDTO;
 import com.socctrader.web.rest.util.HeaderUtil;
+import com.socctrader.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -31,6 +53,8 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 public class FinancialActionResource {
 
     private final Logger log = LoggerFactory.getLogger(FinancialActionResource.class);
+
+    private static final long JOURNAL_ACK_TIMEOUT_SECONDS = 10;
         
     @Inject
     private FinancialActionRepository financialActionRepository;
@@ -38,29 +62,130 @@ public class FinancialActionResource {
     @Inject
     private FinancialActionSearchRepository financialActionSearchRepository;
     
+    @Inject
+    private FinancialActionService financialActionService;
+
+    @Inject
+    private FinancialActionBulkService financialActionBulkService;
+
+    @Inject
+    private FinancialActionExportService financialActionExportService;
+
+    @Inject
+    private FinancialActionJournalService financialActionJournalService;
+
+    @Inject
+    private IdempotencyService idempotencyService;
+
+    @Inject
+    private FinancialActionRollupService financialActionRollupService;
+
+    @Inject
+    private SearchFacetService searchFacetService;
+
     /**
      * POST  /financial-actions : Create a new financialAction.
      *
      * @param financialAction the financialAction to create
+     * @param idempotencyKey the optional Idempotency-Key header: a retry with the same key gets the first response back
      * @return the ResponseEntity with status 201 (Created) and with body the new financialAction, or with status 400 (Bad Request) if the financialAction has already an ID
+     * or if it is a withdrawal exceeding the balance
      * @throws URISyntaxException if the Location URI syntax is incorrect
      */
     @RequestMapping(value = "/financial-actions",
         method = RequestMethod.POST,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<FinancialAction> createFinancialAction(@RequestBody FinancialAction financialAction) throws URISyntaxException {
+    public ResponseEntity<FinancialAction> createFinancialAction(@RequestBody FinancialAction financialAction,
+                                                                 @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws URISyntaxException {
         log.debug("REST request to save FinancialAction : {}", financialAction);
+        return idempotencyService.execute("financialAction", idempotencyKey, financialAction,
+            () -> doCreateFinancialAction(financialAction));
+    }
+
+    private ResponseEntity<FinancialAction> doCreateFinancialAction(FinancialAction financialAction) throws URISyntaxException {
         if (financialAction.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "idexists", "A new financialAction cannot already have an ID")).body(null);
         }
-        FinancialAction result = financialActionRepository.save(financialAction);
-        financialActionSearchRepository.save(result);
+        FinancialAction result;
+        try {
+            result = financialActionService.save(financialAction);
+        } catch (InsufficientFundsException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "insufficientfunds", e.getMessage())).body(null);
+        }
         return ResponseEntity.created(new URI("/api/financial-actions/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("financialAction", result.getId().toString()))
             .body(result);
     }
 
+    /**
+     * POST  /financial-actions/_bulk : Create a batch of new financialActions.
+     * <p>
+     * The financialActions are inserted with JDBC batching and queued for indexing in the search outbox.
+     * A failing item does not fail the whole batch: its status is reported in the result list.
+     *
+     * @param financialActions the financialActions to create
+     * @param idempotencyKey the optional Idempotency-Key header: a retry with the same key gets the first response back
+     * @return the ResponseEntity with status 200 (OK) and with body the result of each financialAction, in order
+     */
+    @RequestMapping(value = "/financial-actions/_bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<BulkItemResultDTO>> createFinancialActions(@RequestBody List<FinancialAction> financialActions,
+                                                                          @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        log.debug("REST request to save {} FinancialActions in bulk", financialActions.size());
+        return idempotencyService.execute("financialAction", idempotencyKey, financialActions, () -> {
+            List<BulkItemResultDTO> results = financialActionBulkService.createAll(financialActions);
+            return ResponseEntity.ok()
+                .headers(HeaderUtil.createAlert("socctraderApp.financialAction.bulkCreated", String.valueOf(financialActions.size())))
+                .body(results);
+        });
+    }
+
+    /**
+     * POST  /financial-actions/_journal : Create a new financialAction through the journal.
+     * <p>
+     * The request is acknowledged once the financialAction is durable in the journal; it is applied
+     * to the database and the search index shortly afterwards.
+     *
+     * @param financialAction the financialAction to create
+     * @param idempotencyKey the optional Idempotency-Key header: a retry with the same key gets the first response back
+     * @return the ResponseEntity with status 202 (Accepted) and with body the journal sequence of the financialAction,
+     * or with status 400 (Bad Request) if the financialAction has already an ID, if the journal is not enabled or
+     * if the financialAction is a withdrawal exceeding the balance
+     * @throws Exception if the financialAction could not be written to the journal
+     */
+    @RequestMapping(value = "/financial-actions/_journal",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<Long> journalFinancialAction(@RequestBody FinancialAction financialAction,
+                                                       @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws Exception {
+        log.debug("REST request to journal FinancialAction : {}", financialAction);
+        return idempotencyService.execute("financialAction", idempotencyKey, financialAction,
+            () -> doJournalFinancialAction(financialAction));
+    }
+
+    private ResponseEntity<Long> doJournalFinancialAction(FinancialAction financialAction) throws Exception {
+        if (financialAction.getId() != null) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "idexists", "A new financialAction cannot already have an ID")).body(null);
+        }
+        if (!financialActionJournalService.isEnabled()) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "journaldisabled", "The financialAction journal is not enabled")).body(null);
+        }
+        CompletableFuture<Long> submitted;
+        try {
+            submitted = financialActionJournalService.submit(financialAction);
+        } catch (InsufficientFundsException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "insufficientfunds", e.getMessage())).body(null);
+        }
+        Long sequence = submitted.get(JOURNAL_ACK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .headers(HeaderUtil.createAlert("socctraderApp.financialAction.journaled", sequence.toString()))
+            .body(sequence);
+    }
+
     /**
      * PUT  /financial-actions : Updates an existing financialAction.
      *
@@ -77,28 +202,149 @@ public class FinancialActionResource {
     public ResponseEntity<FinancialAction> updateFinancialAction(@RequestBody FinancialAction financialAction) throws URISyntaxException {
         log.debug("REST request to update FinancialAction : {}", financialAction);
         if (financialAction.getId() == null) {
-            return createFinancialAction(financialAction);
+            return doCreateFinancialAction(financialAction);
+        }
+        FinancialAction result;
+        try {
+            result = financialActionService.save(financialAction);
+        } catch (InsufficientFundsException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "insufficientfunds", e.getMessage())).body(null);
         }
-        FinancialAction result = financialActionRepository.save(financialAction);
-        financialActionSearchRepository.save(result);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("financialAction", financialAction.getId().toString()))
             .body(result);
     }
 
     /**
-     * GET  /financial-actions : get all the financialActions.
+     * GET  /financial-actions : get the first page of the financialActions, using keyset pagination.
+     * <p>
+     * The cursor of the next page is given in the Link header, see {@link #getFinancialActionsAfter}.
      *
+     * @param size the number of financialActions in the page
      * @return the ResponseEntity with status 200 (OK) and the list of financialActions in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/financial-actions",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<FinancialAction> getAllFinancialActions() {
-        log.debug("REST request to get all FinancialActions");
-        List<FinancialAction> financialActions = financialActionRepository.findAll();
-        return financialActions;
+    public ResponseEntity<List<FinancialAction>> getAllFinancialActions(@RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get the first page of FinancialActions");
+        return getFinancialActionsAfter(null, size);
+    }
+
+    /**
+     * GET  /financial-actions/summary : get the number and total amount of the financialActions per period,
+     * user, currency and action.
+     * <p>
+     * The summary is read from the rollup tables only, which are refreshed every few seconds.
+     *
+     * @param granularity the period, DAY (default) or MONTH
+     * @param from the first day, inclusive
+     * @param to the last day, inclusive
+     * @param login only summarize the financialActions of this user
+     * @param currency only summarize the financialActions in this currency
+     * @param action only summarize the financialActions of this action
+     * @param in convert the amounts into this currency, merging the currencies
+     * @return the list of summaries, ordered by period, user, currency and action
+     */
+    @RequestMapping(value = "/financial-actions/summary",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public List<FinancialActionSummaryDTO> getFinancialActionSummary(@RequestParam(defaultValue = "DAY") FinancialActionRollupService.Granularity granularity,
+                                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                     @RequestParam(required = false) String login,
+                                                                     @RequestParam(required = false) Currency currency,
+                                                                     @RequestParam(required = false) Action action,
+                                                                     @RequestParam(required = false) Currency in) {
+        log.debug("REST request to get the {} summary of FinancialActions from {} to {}", granularity, from, to);
+        return financialActionRollupService.findSummary(granularity, from, to, login, currency, action, in);
+    }
+
+    /**
+     * POST  /financial-actions/summary/_rebuild?month=:month : recompute the rollups of a month from the financialActions.
+     *
+     * @param month the month, as yyyy-MM
+     * @return the ResponseEntity with status 200 (OK) and the number of daily rollups of the month in body,
+     * or with status 400 (Bad Request) if the month is not valid
+     */
+    @RequestMapping(value = "/financial-actions/summary/_rebuild",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<Integer> rebuildFinancialActionSummary(@RequestParam String month) {
+        log.debug("REST request to rebuild the FinancialAction rollups of {}", month);
+        YearMonth yearMonth;
+        try {
+            yearMonth = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "invalidmonth", "The month must be formatted as yyyy-MM")).body(null);
+        }
+        int rollups = financialActionRollupService.rebuildMonth(yearMonth);
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert("socctraderApp.financialAction.summaryRebuilt", month))
+            .body(rollups);
+    }
+
+    /**
+     * GET  /financial-actions/_export : stream the financialActions, ordered by id.
+     * <p>
+     * Rows are written as they are read from the database, so the export works whatever the table size.
+     *
+     * @param format the output format, NDJSON (default) or CSV
+     * @param login only export the financialActions of this user
+     * @param action only export the financialActions of this action
+     * @param currency only export the financialActions in this currency
+     * @param fromId the lowest exported id, inclusive
+     * @param toId the highest exported id, inclusive
+     * @param response the response the financialActions are written to
+     * @throws IOException if the response cannot be written
+     */
+    @RequestMapping(value = "/financial-actions/_export",
+        method = RequestMethod.GET)
+    @Timed
+    public void exportFinancialActions(@RequestParam(defaultValue = "NDJSON") FinancialActionExportService.Format format,
+                                       @RequestParam(required = false) String login,
+                                       @RequestParam(required = false) Action action,
+                                       @RequestParam(required = false) Currency currency,
+                                       @RequestParam(required = false) Long fromId,
+                                       @RequestParam(required = false) Long toId,
+                                       HttpServletResponse response) throws IOException {
+        log.debug("REST request to export FinancialActions as {}", format);
+        response.setContentType(format == FinancialActionExportService.Format.CSV ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition",
+            "attachment; filename=financial-actions." + format.name().toLowerCase());
+        financialActionExportService.export(format, login, action, currency, fromId, toId, response.getOutputStream());
+    }
+
+    /**
+     * GET  /financial-actions?after=:cursor&size=:size : get a page of financialActions, using keyset pagination.
+     * <p>
+     * The page starts after the id encoded in the cursor, and the cursor of the next page is given in the Link header.
+     *
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of financialActions in the page
+     * @return the ResponseEntity with status 200 (OK) and the list of financialActions in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/financial-actions",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<FinancialAction>> getFinancialActionsAfter(@RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of FinancialActions after cursor {}", after);
+        List<FinancialAction> financialActions = financialActionRepository.findByIdGreaterThan(PaginationUtil.decodeCursor(after),
+            PaginationUtil.generateKeysetPageable(size));
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(financialActions, size, FinancialAction::getId, "/api/financial-actions");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(financialActions, size), headers, HttpStatus.OK);
     }
 
     /**
@@ -125,7 +371,8 @@ public class FinancialActionResource {
      * DELETE  /financial-actions/:id : delete the "id" financialAction.
      *
      * @param id the id of the financialAction to delete
-     * @return the ResponseEntity with status 200 (OK)
+     * @return the ResponseEntity with status 200 (OK),
+     * or with status 400 (Bad Request) if the financialAction is a deposit already spent
      */
     @RequestMapping(value = "/financial-actions/{id}",
         method = RequestMethod.DELETE,
@@ -133,28 +380,58 @@ public class FinancialActionResource {
     @Timed
     public ResponseEntity<Void> deleteFinancialAction(@PathVariable Long id) {
         log.debug("REST request to delete FinancialAction : {}", id);
-        financialActionRepository.delete(id);
-        financialActionSearchRepository.delete(id);
+        try {
+            financialActionService.delete(id);
+        } catch (InsufficientFundsException e) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("financialAction", "insufficientfunds", e.getMessage())).build();
+        }
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("financialAction", id.toString())).build();
     }
 
     /**
-     * SEARCH  /_search/financial-actions?query=:query : search for the financialAction corresponding
-     * to the query.
+     * SEARCH  /_search/financial-actions?query=:query&after=:cursor&size=:size : search for the financialAction corresponding
+     * to the query, using search-after pagination.
+     * <p>
+     * The hits are ordered by id, the page starts after the id encoded in the cursor, and the cursor of the next page
+     * is given in the Link header.
      *
      * @param query the query of the financialAction search
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of financialActions in the page
      * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/_search/financial-actions",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<FinancialAction> searchFinancialActions(@RequestParam String query) {
-        log.debug("REST request to search FinancialActions for query {}", query);
-        return StreamSupport
-            .stream(financialActionSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<FinancialAction>> searchFinancialActions(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search FinancialActions for query {} after cursor {}", query, after);
+        List<FinancialAction> financialActions = financialActionSearchRepository.search(PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size))
+            .getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, financialActions, size, FinancialAction::getId,
+            "/api/_search/financial-actions");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(financialActions, size), headers, HttpStatus.OK);
     }
 
-
+    /**
+     * SEARCH  /_search/financial-actions/facets?query=:query&size=:size : count the financialActions corresponding
+     * to the query per currency, with the sum of their amounts, and per action.
+     *
+     * @param query the query of the financialAction search, all the financialActions by default
+     * @param size the maximum number of buckets per facet
+     * @return the facets of the search
+     */
+    @RequestMapping(value = "/_search/financial-actions/facets",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<SearchFacetsDTO> getFinancialActionFacets(@RequestParam(defaultValue = "*") String query,
+        @RequestParam(defaultValue = "" + SearchFacetService.DEFAULT_FACET_SIZE) int size) {
+        log.debug("REST request to get the facets of FinancialActions for query {}", query);
+        return new ResponseEntity<>(searchFacetService.getFinancialActionFacets(query, size), HttpStatus.OK);
+    }
 }
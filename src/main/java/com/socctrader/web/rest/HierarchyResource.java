@@ -0,0 +1,112 @@
+package com.socctrader.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.socctrader.service.ReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * REST controller for getting the whole Region, Country, Location, League and Team hierarchy.
+ */
+@RestController
+@RequestMapping("/api")
+public class HierarchyResource {
+
+    private final Logger log = LoggerFactory.getLogger(HierarchyResource.class);
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    /**
+     * GET  /hierarchy : get the regions, with their nested countries, locations, leagues and teams.
+     * <p>
+     * The response is serialized once per change of the reference data: it is written as is, gzipped if the client
+     * accepts it, with a strong ETag.
+     *
+     * @param ifNoneMatch the ETags of the hierarchy known by the client
+     * @param acceptEncoding the encodings accepted by the client
+     * @param response the response to write the hierarchy to, with status 200 (OK),
+     * or with status 304 (Not Modified) if the client already has it
+     * @throws IOException if the hierarchy could not be written
+     */
+    @RequestMapping(value = "/hierarchy",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getHierarchy(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                             HttpServletResponse response) throws IOException {
+        log.debug("REST request to get the Hierarchy");
+        ReferenceDataService.Hierarchy hierarchy = referenceDataService.getSnapshot().getHierarchy();
+        response.setHeader(HttpHeaders.ETAG, hierarchy.getEtag());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (matches(ifNoneMatch, hierarchy.getEtag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        byte[] body = hierarchy.getJson();
+        if (acceptsGzip(acceptEncoding)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = hierarchy.getGzip();
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * @return true if gzip, or any coding, has a non zero q-value in the Accept-Encoding header, gzip taking
+     * precedence over the wildcard
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
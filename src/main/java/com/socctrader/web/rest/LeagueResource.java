@@ -1,10 +1,17 @@
 package com.socctrader.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
 import com.socctrader.domain.League;
 import com.socctrader.repository.LeagueRepository;
 import com.socctrader.repository.search.LeagueSearchRepository;
+import com.socctrader.service.NaturalIdService;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
 import com.socctrader.web.rest.util.HeaderUtil;
+import com.socctrader.web.rest.util.MultiGetUtil;
+import com.socctrader.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -14,13 +21,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -39,6 +46,18 @@ public class LeagueResource {
     @Inject
     private LeagueSearchRepository leagueSearchRepository;
     
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+    
     /**
      * POST  /leagues : Create a new league.
      *
@@ -55,8 +74,7 @@ public class LeagueResource {
         if (league.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("league", "idexists", "A new league cannot already have an ID")).body(null);
         }
-        League result = leagueRepository.save(league);
-        leagueSearchRepository.save(result);
+        League result = referenceDataWriteService.save(leagueRepository, League.class, league, League::getId);
         return ResponseEntity.created(new URI("/api/leagues/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("league", result.getId().toString()))
             .body(result);
@@ -80,8 +98,7 @@ public class LeagueResource {
         if (league.getId() == null) {
             return createLeague(league);
         }
-        League result = leagueRepository.save(league);
-        leagueSearchRepository.save(result);
+        League result = referenceDataWriteService.save(leagueRepository, League.class, league, League::getId);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("league", league.getId().toString()))
             .body(result);
@@ -98,8 +115,52 @@ public class LeagueResource {
     @Timed
     public List<League> getAllLeagues() {
         log.debug("REST request to get all Leagues");
-        List<League> leagues = leagueRepository.findAll();
-        return leagues;
+        return referenceDataService.getSnapshot().getLeagues().getAll();
+    }
+
+    /**
+     * GET  /leagues?after=:cursor&size=:size : get a page of leagues, using keyset pagination.
+     * <p>
+     * The page starts after the id encoded in the cursor, and the cursor of the next page is given in the Link header.
+     *
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of leagues in the page
+     * @return the ResponseEntity with status 200 (OK) and the list of leagues in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/leagues",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<League>> getLeaguesAfter(@RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Leagues after cursor {}", after);
+        List<League> leagues = referenceDataService.getSnapshot().getLeagues().getAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.generateKeysetPageable(size).getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(leagues, size, League::getId, "/api/leagues");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(leagues, size), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /leagues?ids=:ids : get the leagues of some ids, in one request.
+     * <p>
+     * The leagues are written in the order of the ids, skipping the unknown ones.
+     *
+     * @param ids the ids of the leagues to retrieve, at most {@value MultiGetUtil#MAX_IDS}
+     * @param response the response to write the JSON array of the leagues to, with status 200 (OK)
+     * @throws IOException if the leagues could not be written
+     */
+    @RequestMapping(value = "/leagues",
+        method = RequestMethod.GET,
+        params = {"ids", "!after"},
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getLeaguesByIds(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get Leagues : {}", ids);
+        MultiGetUtil.writeAll(ids, referenceDataService.getSnapshot().getLeagues()::get,
+            leagueRepository::findWithHierarchyByIdIn, League::getId, objectMapper, response);
     }
 
     /**
@@ -114,7 +175,31 @@ public class LeagueResource {
     @Timed
     public ResponseEntity<League> getLeague(@PathVariable Long id) {
         log.debug("REST request to get League : {}", id);
-        League league = leagueRepository.findOne(id);
+        League league = referenceDataService.getSnapshot().getLeagues().get(id);
+        if (league == null) {
+            // Created after the snapshot was built, by a commit not broadcast yet: replicas may lag behind it
+            league = ReplicaRoutingDataSource.usePrimary(() -> leagueRepository.findOneWithHierarchy(id));
+        }
+        return Optional.ofNullable(league)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /leagues/by-league-id/:leagueId : get the league by its external id.
+     *
+     * @param leagueId the external id of the league to retrieve
+     * @return the ResponseEntity with status 200 (OK) and with body the league, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/leagues/by-league-id/{leagueId}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<League> getLeagueByLeagueId(@PathVariable Long leagueId) {
+        log.debug("REST request to get League by leagueId : {}", leagueId);
+        League league = naturalIdService.findLeague(leagueId);
         return Optional.ofNullable(league)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -134,27 +219,37 @@ public class LeagueResource {
     @Timed
     public ResponseEntity<Void> deleteLeague(@PathVariable Long id) {
         log.debug("REST request to delete League : {}", id);
-        leagueRepository.delete(id);
-        leagueSearchRepository.delete(id);
+        referenceDataWriteService.delete(leagueRepository, League.class, id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("league", id.toString())).build();
     }
 
     /**
-     * SEARCH  /_search/leagues?query=:query : search for the league corresponding
-     * to the query.
+     * SEARCH  /_search/leagues?query=:query&after=:cursor&size=:size : search for the league corresponding
+     * to the query, using search-after pagination.
+     * <p>
+     * The hits are ordered by id, the page starts after the id encoded in the cursor, and the cursor of the next page
+     * is given in the Link header.
      *
      * @param query the query of the league search
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of leagues in the page
      * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/_search/leagues",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<League> searchLeagues(@RequestParam String query) {
-        log.debug("REST request to search Leagues for query {}", query);
-        return StreamSupport
-            .stream(leagueSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<League>> searchLeagues(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search Leagues for query {} after cursor {}", query, after);
+        List<League> leagues = leagueSearchRepository.search(PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size))
+            .getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, leagues, size, League::getId,
+            "/api/_search/leagues");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(leagues, size), headers, HttpStatus.OK);
     }
 
 
@@ -1,10 +1,16 @@
 package com.socctrader.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
 import com.socctrader.domain.Location;
 import com.socctrader.repository.LocationRepository;
 import com.socctrader.repository.search.LocationSearchRepository;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
 import com.socctrader.web.rest.util.HeaderUtil;
+import com.socctrader.web.rest.util.MultiGetUtil;
+import com.socctrader.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -14,12 +20,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -38,6 +44,15 @@ public class LocationResource {
     @Inject
     private LocationSearchRepository locationSearchRepository;
     
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+    
     /**
      * POST  /locations : Create a new location.
      *
@@ -54,8 +69,7 @@ public class LocationResource {
         if (location.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("location", "idexists", "A new location cannot already have an ID")).body(null);
         }
-        Location result = locationRepository.save(location);
-        locationSearchRepository.save(result);
+        Location result = referenceDataWriteService.save(locationRepository, Location.class, location, Location::getId);
         return ResponseEntity.created(new URI("/api/locations/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("location", result.getId().toString()))
             .body(result);
@@ -79,8 +93,7 @@ public class LocationResource {
         if (location.getId() == null) {
             return createLocation(location);
         }
-        Location result = locationRepository.save(location);
-        locationSearchRepository.save(result);
+        Location result = referenceDataWriteService.save(locationRepository, Location.class, location, Location::getId);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("location", location.getId().toString()))
             .body(result);
@@ -97,8 +110,52 @@ public class LocationResource {
     @Timed
     public List<Location> getAllLocations() {
         log.debug("REST request to get all Locations");
-        List<Location> locations = locationRepository.findAll();
-        return locations;
+        return referenceDataService.getSnapshot().getLocations().getAll();
+    }
+
+    /**
+     * GET  /locations?after=:cursor&size=:size : get a page of locations, using keyset pagination.
+     * <p>
+     * The page starts after the id encoded in the cursor, and the cursor of the next page is given in the Link header.
+     *
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of locations in the page
+     * @return the ResponseEntity with status 200 (OK) and the list of locations in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/locations",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Location>> getLocationsAfter(@RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Locations after cursor {}", after);
+        List<Location> locations = referenceDataService.getSnapshot().getLocations().getAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.generateKeysetPageable(size).getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(locations, size, Location::getId, "/api/locations");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(locations, size), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /locations?ids=:ids : get the locations of some ids, in one request.
+     * <p>
+     * The locations are written in the order of the ids, skipping the unknown ones.
+     *
+     * @param ids the ids of the locations to retrieve, at most {@value MultiGetUtil#MAX_IDS}
+     * @param response the response to write the JSON array of the locations to, with status 200 (OK)
+     * @throws IOException if the locations could not be written
+     */
+    @RequestMapping(value = "/locations",
+        method = RequestMethod.GET,
+        params = {"ids", "!after"},
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getLocationsByIds(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get Locations : {}", ids);
+        MultiGetUtil.writeAll(ids, referenceDataService.getSnapshot().getLocations()::get,
+            locationRepository::findWithHierarchyByIdIn, Location::getId, objectMapper, response);
     }
 
     /**
@@ -113,7 +170,11 @@ public class LocationResource {
     @Timed
     public ResponseEntity<Location> getLocation(@PathVariable Long id) {
         log.debug("REST request to get Location : {}", id);
-        Location location = locationRepository.findOne(id);
+        Location location = referenceDataService.getSnapshot().getLocations().get(id);
+        if (location == null) {
+            // Created after the snapshot was built, by a commit not broadcast yet: replicas may lag behind it
+            location = ReplicaRoutingDataSource.usePrimary(() -> locationRepository.findOneWithHierarchy(id));
+        }
         return Optional.ofNullable(location)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -133,27 +194,37 @@ public class LocationResource {
     @Timed
     public ResponseEntity<Void> deleteLocation(@PathVariable Long id) {
         log.debug("REST request to delete Location : {}", id);
-        locationRepository.delete(id);
-        locationSearchRepository.delete(id);
+        referenceDataWriteService.delete(locationRepository, Location.class, id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("location", id.toString())).build();
     }
 
     /**
-     * SEARCH  /_search/locations?query=:query : search for the location corresponding
-     * to the query.
+     * SEARCH  /_search/locations?query=:query&after=:cursor&size=:size : search for the location corresponding
+     * to the query, using search-after pagination.
+     * <p>
+     * The hits are ordered by id, the page starts after the id encoded in the cursor, and the cursor of the next page
+     * is given in the Link header.
      *
      * @param query the query of the location search
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of locations in the page
      * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/_search/locations",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<Location> searchLocations(@RequestParam String query) {
-        log.debug("REST request to search Locations for query {}", query);
-        return StreamSupport
-            .stream(locationSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<Location>> searchLocations(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search Locations for query {} after cursor {}", query, after);
+        List<Location> locations = locationSearchRepository.search(PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size))
+            .getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, locations, size, Location::getId,
+            "/api/_search/locations");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(locations, size), headers, HttpStatus.OK);
     }
 
 
@@ -1,10 +1,16 @@
 package com.socctrader.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
 import com.socctrader.domain.Region;
 import com.socctrader.repository.RegionRepository;
 import com.socctrader.repository.search.RegionSearchRepository;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
 import com.socctrader.web.rest.util.HeaderUtil;
+import com.socctrader.web.rest.util.MultiGetUtil;
+import com.socctrader.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -14,12 +20,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -38,6 +44,15 @@ public class RegionResource {
     @Inject
     private RegionSearchRepository regionSearchRepository;
     
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+    
     /**
      * POST  /regions : Create a new region.
      *
@@ -54,8 +69,7 @@ public class RegionResource {
         if (region.getId() != null) {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("region", "idexists", "A new region cannot already have an ID")).body(null);
         }
-        Region result = regionRepository.save(region);
-        regionSearchRepository.save(result);
+        Region result = referenceDataWriteService.save(regionRepository, Region.class, region, Region::getId);
         return ResponseEntity.created(new URI("/api/regions/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("region", result.getId().toString()))
             .body(result);
@@ -79,8 +93,7 @@ public class RegionResource {
         if (region.getId() == null) {
             return createRegion(region);
         }
-        Region result = regionRepository.save(region);
-        regionSearchRepository.save(result);
+        Region result = referenceDataWriteService.save(regionRepository, Region.class, region, Region::getId);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("region", region.getId().toString()))
             .body(result);
@@ -97,8 +110,52 @@ public class RegionResource {
     @Timed
     public List<Region> getAllRegions() {
         log.debug("REST request to get all Regions");
-        List<Region> regions = regionRepository.findAll();
-        return regions;
+        return referenceDataService.getSnapshot().getRegions().getAll();
+    }
+
+    /**
+     * GET  /regions?after=:cursor&size=:size : get a page of regions, using keyset pagination.
+     * <p>
+     * The page starts after the id encoded in the cursor, and the cursor of the next page is given in the Link header.
+     *
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of regions in the page
+     * @return the ResponseEntity with status 200 (OK) and the list of regions in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/regions",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Region>> getRegionsAfter(@RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Regions after cursor {}", after);
+        List<Region> regions = referenceDataService.getSnapshot().getRegions().getAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.generateKeysetPageable(size).getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(regions, size, Region::getId, "/api/regions");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(regions, size), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /regions?ids=:ids : get the regions of some ids, in one request.
+     * <p>
+     * The regions are written in the order of the ids, skipping the unknown ones.
+     *
+     * @param ids the ids of the regions to retrieve, at most {@value MultiGetUtil#MAX_IDS}
+     * @param response the response to write the JSON array of the regions to, with status 200 (OK)
+     * @throws IOException if the regions could not be written
+     */
+    @RequestMapping(value = "/regions",
+        method = RequestMethod.GET,
+        params = {"ids", "!after"},
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getRegionsByIds(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get Regions : {}", ids);
+        MultiGetUtil.writeAll(ids, referenceDataService.getSnapshot().getRegions()::get,
+            regionRepository::findByIdIn, Region::getId, objectMapper, response);
     }
 
     /**
@@ -113,7 +170,11 @@ public class RegionResource {
     @Timed
     public ResponseEntity<Region> getRegion(@PathVariable Long id) {
         log.debug("REST request to get Region : {}", id);
-        Region region = regionRepository.findOne(id);
+        Region region = referenceDataService.getSnapshot().getRegions().get(id);
+        if (region == null) {
+            // Created after the snapshot was built, by a commit not broadcast yet: replicas may lag behind it
+            region = ReplicaRoutingDataSource.usePrimary(() -> regionRepository.findOne(id));
+        }
         return Optional.ofNullable(region)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -133,27 +194,37 @@ public class RegionResource {
     @Timed
     public ResponseEntity<Void> deleteRegion(@PathVariable Long id) {
         log.debug("REST request to delete Region : {}", id);
-        regionRepository.delete(id);
-        regionSearchRepository.delete(id);
+        referenceDataWriteService.delete(regionRepository, Region.class, id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("region", id.toString())).build();
     }
 
     /**
-     * SEARCH  /_search/regions?query=:query : search for the region corresponding
-     * to the query.
+     * SEARCH  /_search/regions?query=:query&after=:cursor&size=:size : search for the region corresponding
+     * to the query, using search-after pagination.
+     * <p>
+     * The hits are ordered by id, the page starts after the id encoded in the cursor, and the cursor of the next page
+     * is given in the Link header.
      *
      * @param query the query of the region search
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of regions in the page
      * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
      */
     @RequestMapping(value = "/_search/regions",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<Region> searchRegions(@RequestParam String query) {
-        log.debug("REST request to search Regions for query {}", query);
-        return StreamSupport
-            .stream(regionSearchRepository.search(queryStringQuery(query)).spliterator(), false)
-            .collect(Collectors.toList());
+    public ResponseEntity<List<Region>> searchRegions(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search Regions for query {} after cursor {}", query, after);
+        List<Region> regions = regionSearchRepository.search(PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size))
+            .getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, regions, size, Region::getId,
+            "/api/_search/regions");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(regions, size), headers, HttpStatus.OK);
     }
 
 
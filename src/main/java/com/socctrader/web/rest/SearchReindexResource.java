@@ -0,0 +1,52 @@
+package com.socctrader.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.socctrader.security.AuthoritiesConstants;
+import com.socctrader.service.SearchReindexService;
+import com.socctrader.web.rest.dto.SearchReindexDTO;
+import com.socctrader.web.rest.util.HeaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+import javax.inject.Inject;
+
+/**
+ * REST controller for rebuilding the search indices.
+ */
+@RestController
+@RequestMapping("/api")
+public class SearchReindexResource {
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexResource.class);
+
+    @Inject
+    private SearchReindexService searchReindexService;
+
+    /**
+     * POST  /search-indices/_reindex : rebuild all the search indices from the database, in the background.
+     * <p>
+     * The progress is reported at /management/reindex.
+     *
+     * @return the ResponseEntity with status 202 (Accepted) and with body the state of the reindex,
+     * or with status 400 (Bad Request) if a reindex is already running
+     */
+    @RequestMapping(value = "/search-indices/_reindex",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<SearchReindexDTO> reindex() {
+        log.debug("REST request to reindex the search indices");
+        if (!searchReindexService.start()) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("searchIndex", "reindexrunning", "A reindex is already running")).body(null);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .headers(HeaderUtil.createAlert("socctraderApp.searchIndex.reindexStarted", ""))
+            .body(searchReindexService.getStatus());
+    }
+}
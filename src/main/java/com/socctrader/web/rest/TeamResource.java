@@ -1,16 +1,29 @@
 package com.socctrader.web.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.config.datasource.ReplicaRoutingDataSource;
 import com.socctrader.domain.Team;
+import com.socctrader.domain.TeamSearchDocument;
 import com.socctrader.repository.TeamRepository;
+import com.socctrader.repository.search.TeamSearchDocumentRepository;
 import com.socctrader.repository.search.TeamSearchRepository;
+import com.socctrader.service.NaturalIdService;
+import com.socctrader.service.SearchFacetService;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
+import com.socctrader.service.SearchResultCacheService;
+import com.socctrader.service.TeamSuggestService;
+import com.socctrader.service.dto.TeamDTO;
 import com.socctrader.web.rest.util.HeaderUtil;
+import com.socctrader.web.rest.util.MultiGetUtil;
 import com.socctrader.web.rest.util.PaginationUtil;
-import com.socctrader.web.rest.dto.TeamDTO;
+import com.socctrader.web.rest.dto.SearchFacetsDTO;
 import com.socctrader.web.rest.mapper.TeamMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -19,6 +32,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.LinkedList;
@@ -47,6 +62,30 @@ public class TeamResource {
     @Inject
     private TeamSearchRepository teamSearchRepository;
     
+    @Inject
+    private TeamSearchDocumentRepository teamSearchDocumentRepository;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private SearchFacetService searchFacetService;
+
+    @Inject
+    private SearchResultCacheService searchResultCacheService;
+
+    @Inject
+    private TeamSuggestService teamSuggestService;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+    
     /**
      * POST  /teams : Create a new team.
      *
@@ -64,9 +103,9 @@ public class TeamResource {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("team", "idexists", "A new team cannot already have an ID")).body(null);
         }
         Team team = teamMapper.teamDTOToTeam(teamDTO);
-        team = teamRepository.save(team);
+        team = referenceDataWriteService.save(teamRepository, Team.class, team, Team::getId);
         TeamDTO result = teamMapper.teamToTeamDTO(team);
-        teamSearchRepository.save(team);
+        teamSuggestService.onTeamChanged(team.getId());
         return ResponseEntity.created(new URI("/api/teams/" + result.getId()))
             .headers(HeaderUtil.createEntityCreationAlert("team", result.getId().toString()))
             .body(result);
@@ -91,9 +130,9 @@ public class TeamResource {
             return createTeam(teamDTO);
         }
         Team team = teamMapper.teamDTOToTeam(teamDTO);
-        team = teamRepository.save(team);
+        team = referenceDataWriteService.save(teamRepository, Team.class, team, Team::getId);
         TeamDTO result = teamMapper.teamToTeamDTO(team);
-        teamSearchRepository.save(team);
+        teamSuggestService.onTeamChanged(team.getId());
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert("team", teamDTO.getId().toString()))
             .body(result);
@@ -113,9 +152,86 @@ public class TeamResource {
     public ResponseEntity<List<TeamDTO>> getAllTeams(Pageable pageable)
         throws URISyntaxException {
         log.debug("REST request to get a page of Teams");
-        Page<Team> page = teamRepository.findAll(pageable); 
+        Page<TeamDTO> page;
+        if (pageable.getSort() == null) {
+            // The snapshot is sorted by id, other orders are read from the database
+            ReferenceDataService.Table<Team> teams = referenceDataService.getSnapshot().getTeams();
+            page = new PageImpl<>(teamMapper.teamsToTeamDTOs(teams.getPage(pageable.getOffset(), pageable.getPageSize())),
+                pageable, teams.size());
+        } else {
+            page = teamRepository.findAllDTOs(pageable);
+        }
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/teams");
-        return new ResponseEntity<>(teamMapper.teamsToTeamDTOs(page.getContent()), headers, HttpStatus.OK);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /teams?after=:cursor&size=:size : get a page of teams, using keyset pagination.
+     * <p>
+     * The page starts after the id encoded in the cursor, and the cursor of the next page is given in the Link header.
+     *
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of teams in the page
+     * @return the ResponseEntity with status 200 (OK) and the list of teams in body
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/teams",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<TeamDTO>> getTeamsAfter(@RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to get a page of Teams after cursor {}", after);
+        List<Team> teams = referenceDataService.getSnapshot().getTeams().getAfter(PaginationUtil.decodeCursor(after),
+            PaginationUtil.generateKeysetPageable(size).getPageSize());
+        HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(teams, size, Team::getId, "/api/teams");
+        return new ResponseEntity<>(teamMapper.teamsToTeamDTOs(PaginationUtil.getKeysetPageContent(teams, size)), headers, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /teams/_suggest?prefix=:prefix&size=:size : suggest the teams whose name starts with the prefix,
+     * ignoring case and accents, from an in-memory index of the team names.
+     *
+     * @param prefix the prefix of the team names
+     * @param size the maximum number of teams
+     * @return the ResponseEntity with status 200 (OK) and the list of teams, by name, in body
+     */
+    @RequestMapping(value = "/teams/_suggest",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<TeamDTO>> suggestTeams(@RequestParam String prefix,
+        @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest Teams for prefix {}", prefix);
+        return new ResponseEntity<>(teamSuggestService.suggest(prefix, size), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /teams?ids=:ids : get the teams of some ids, in one request.
+     * <p>
+     * The teams are written in the order of the ids, skipping the unknown ones.
+     *
+     * @param ids the ids of the teamDTOs to retrieve, at most {@value MultiGetUtil#MAX_IDS}
+     * @param response the response to write the JSON array of the teamDTOs to, with status 200 (OK)
+     * @throws IOException if the teamDTOs could not be written
+     */
+    @RequestMapping(value = "/teams",
+        method = RequestMethod.GET,
+        params = {"ids", "!after"},
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getTeamsByIds(@RequestParam List<Long> ids, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get Teams : {}", ids);
+        ReferenceDataService.Table<Team> teams = referenceDataService.getSnapshot().getTeams();
+        MultiGetUtil.writeAll(ids,
+            id -> {
+                Team team = teams.get(id);
+                return team == null ? null : teamMapper.teamToTeamDTO(team);
+            },
+            teamRepository::findDTOsByIdIn,
+            TeamDTO::getId, objectMapper, response);
     }
 
     /**
@@ -130,8 +246,30 @@ public class TeamResource {
     @Timed
     public ResponseEntity<TeamDTO> getTeam(@PathVariable Long id) {
         log.debug("REST request to get Team : {}", id);
-        Team team = teamRepository.findOne(id);
-        TeamDTO teamDTO = teamMapper.teamToTeamDTO(team);
+        Team team = referenceDataService.getSnapshot().getTeams().get(id);
+        // Not in the snapshot if created after it was built, by a commit not broadcast yet: replicas may lag behind it
+        TeamDTO teamDTO = team != null ? teamMapper.teamToTeamDTO(team)
+            : ReplicaRoutingDataSource.usePrimary(() -> teamRepository.findOneDTO(id));
+        return Optional.ofNullable(teamDTO)
+            .map(result -> new ResponseEntity<>(
+                result,
+                HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * GET  /teams/by-team-id/:teamId : get the team by its external id.
+     *
+     * @param teamId the external id of the teamDTO to retrieve
+     * @return the ResponseEntity with status 200 (OK) and with body the teamDTO, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/teams/by-team-id/{teamId}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<TeamDTO> getTeamByTeamId(@PathVariable Long teamId) {
+        log.debug("REST request to get Team by teamId : {}", teamId);
+        TeamDTO teamDTO = teamMapper.teamToTeamDTO(naturalIdService.findTeam(teamId));
         return Optional.ofNullable(teamDTO)
             .map(result -> new ResponseEntity<>(
                 result,
@@ -151,14 +289,16 @@ public class TeamResource {
     @Timed
     public ResponseEntity<Void> deleteTeam(@PathVariable Long id) {
         log.debug("REST request to delete Team : {}", id);
-        teamRepository.delete(id);
-        teamSearchRepository.delete(id);
+        referenceDataWriteService.delete(teamRepository, Team.class, id);
+        teamSuggestService.onTeamChanged(id);
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert("team", id.toString())).build();
     }
 
     /**
      * SEARCH  /_search/teams?query=:query : search for the team corresponding
      * to the query.
+     * <p>
+     * The pages are cached until the team index is written to.
      *
      * @param query the query of the team search
      * @return the result of the search
@@ -170,10 +310,89 @@ public class TeamResource {
     public ResponseEntity<List<TeamDTO>> searchTeams(@RequestParam String query, Pageable pageable)
         throws URISyntaxException {
         log.debug("REST request to search for a page of Teams for query {}", query);
-        Page<Team> page = teamSearchRepository.search(queryStringQuery(query), pageable);
+        Page<TeamDTO> page = searchResultCacheService.get(Team.class, query, pageable, () -> {
+            Page<Team> teams = teamSearchRepository.search(queryStringQuery(query), pageable);
+            return new PageImpl<>(teamMapper.teamsToTeamDTOs(teams.getContent()), pageable, teams.getTotalElements());
+        });
         HttpHeaders headers = PaginationUtil.generateSearchPaginationHttpHeaders(query, page, "/api/_search/teams");
-        return new ResponseEntity<>(teamMapper.teamsToTeamDTOs(page.getContent()), headers, HttpStatus.OK);
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * SEARCH  /_search/teams?query=:query&after=:cursor&size=:size : search for the team corresponding
+     * to the query, using search-after pagination.
+     * <p>
+     * The hits are ordered by id, the page starts after the id encoded in the cursor, and the cursor of the next page
+     * is given in the Link header.
+     *
+     * @param query the query of the team search
+     * @param after the cursor returned by the previous page, empty for the first page
+     * @param size the number of teams in the page
+     * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/teams",
+        method = RequestMethod.GET,
+        params = "after",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<TeamDTO>> searchTeamsAfter(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Teams for query {} after cursor {}", query, after);
+        List<Team> teams = teamSearchRepository.search(PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size))
+            .getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, teams, size, Team::getId,
+            "/api/_search/teams");
+        return new ResponseEntity<>(teamMapper.teamsToTeamDTOs(PaginationUtil.getKeysetPageContent(teams, size)), headers, HttpStatus.OK);
+    }
+
+    /**
+     * SEARCH  /_search/team-documents?query=:query&after=:cursor&size=:size : search for the teams corresponding
+     * to the query, on the teams flattened with the names of their league, location, country and region, using
+     * search-after pagination.
+     * <p>
+     * A single query matches any level of the hierarchy, e.g. <code>countryName:Spain</code>. The hits are ordered
+     * by id, and the cursor of the next page is given in the Link header.
+     *
+     * @param query the query of the team search
+     * @param after the cursor returned by the previous page, empty or absent for the first page
+     * @param size the number of teams in the page
+     * @return the result of the search
+     * @throws URISyntaxException if there is an error to generate the pagination HTTP headers
+     */
+    @RequestMapping(value = "/_search/team-documents",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<TeamSearchDocument>> searchTeamDocuments(@RequestParam String query,
+        @RequestParam(required = false) String after,
+        @RequestParam(defaultValue = "" + PaginationUtil.DEFAULT_KEYSET_PAGE_SIZE) int size)
+        throws URISyntaxException {
+        log.debug("REST request to search for a page of Team documents for query {} after cursor {}", query, after);
+        List<TeamSearchDocument> documents = teamSearchDocumentRepository.search(
+            PaginationUtil.generateSearchAfterQuery(queryStringQuery(query), after, size)).getContent();
+        HttpHeaders headers = PaginationUtil.generateSearchAfterPaginationHttpHeaders(query, documents, size,
+            TeamSearchDocument::getId, "/api/_search/team-documents");
+        return new ResponseEntity<>(PaginationUtil.getKeysetPageContent(documents, size), headers, HttpStatus.OK);
+    }
 
+    /**
+     * SEARCH  /_search/teams/facets?query=:query&size=:size : count the teams corresponding to the query per league,
+     * country and region.
+     *
+     * @param query the query of the team search, on the flattened team documents, all the teams by default
+     * @param size the maximum number of buckets per facet
+     * @return the facets of the search
+     */
+    @RequestMapping(value = "/_search/teams/facets",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<SearchFacetsDTO> getTeamFacets(@RequestParam(defaultValue = "*") String query,
+        @RequestParam(defaultValue = "" + SearchFacetService.DEFAULT_FACET_SIZE) int size) {
+        log.debug("REST request to get the facets of Teams for query {}", query);
+        return new ResponseEntity<>(searchFacetService.getTeamFacets(query, size), HttpStatus.OK);
+    }
 }
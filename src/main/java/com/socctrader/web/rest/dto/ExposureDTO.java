@@ -0,0 +1,63 @@
+package com.socctrader.web.rest.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsSerializer;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+
+/**
+ * A DTO for an amount converted into a single currency, with the time of the FX rates used.
+ */
+public class ExposureDTO implements Serializable {
+
+    private Currency currency;
+
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private Long amount;
+
+    private ZonedDateTime ratesAsOf;
+
+    public ExposureDTO() {
+    }
+
+    public ExposureDTO(Currency currency, Long amount, ZonedDateTime ratesAsOf) {
+        this.currency = currency;
+        this.amount = amount;
+        this.ratesAsOf = ratesAsOf;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    public ZonedDateTime getRatesAsOf() {
+        return ratesAsOf;
+    }
+
+    public void setRatesAsOf(ZonedDateTime ratesAsOf) {
+        this.ratesAsOf = ratesAsOf;
+    }
+
+    @Override
+    public String toString() {
+        return "ExposureDTO{" +
+            "currency=" + currency +
+            ", amount='" + amount + "'" +
+            ", ratesAsOf='" + ratesAsOf + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,62 @@
+package com.socctrader.web.rest.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsSerializer;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for one bucket of a search facet: a value of the field, the number of matching documents having it
+ * and, for amount facets, the sum of their amounts.
+ */
+public class FacetBucketDTO implements Serializable {
+
+    private String key;
+
+    private long count;
+
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private Long sum;
+
+    public FacetBucketDTO() {
+    }
+
+    public FacetBucketDTO(String key, long count, Long sum) {
+        this.key = key;
+        this.count = count;
+        this.sum = sum;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Long getSum() {
+        return sum;
+    }
+
+    public void setSum(Long sum) {
+        this.sum = sum;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetBucketDTO{" +
+            "key='" + key + "'" +
+            ", count='" + count + "'" +
+            ", sum='" + sum + "'" +
+            '}';
+    }
+}
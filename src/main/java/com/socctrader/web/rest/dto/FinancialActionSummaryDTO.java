@@ -0,0 +1,101 @@
+package com.socctrader.web.rest.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+import com.socctrader.domain.util.MinorUnitsJsonConverters.MinorUnitsSerializer;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * A DTO for the number and total amount of the FinancialActions of one user, currency and action over a period.
+ */
+public class FinancialActionSummaryDTO implements Serializable {
+
+    private LocalDate periodStart;
+
+    private String userLogin;
+
+    private Currency currency;
+
+    private Action action;
+
+    private Long actionCount;
+
+    @JsonSerialize(using = MinorUnitsSerializer.class)
+    private Long amount;
+
+    public FinancialActionSummaryDTO() {
+    }
+
+    public FinancialActionSummaryDTO(LocalDate periodStart, String userLogin, Currency currency, Action action,
+                                     Long actionCount, Long amount) {
+        this.periodStart = periodStart;
+        this.userLogin = userLogin;
+        this.currency = currency;
+        this.action = action;
+        this.actionCount = actionCount;
+        this.amount = amount;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public String getUserLogin() {
+        return userLogin;
+    }
+
+    public void setUserLogin(String userLogin) {
+        this.userLogin = userLogin;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public Long getActionCount() {
+        return actionCount;
+    }
+
+    public void setActionCount(Long actionCount) {
+        this.actionCount = actionCount;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+        return "FinancialActionSummaryDTO{" +
+            "periodStart='" + periodStart + "'" +
+            ", userLogin='" + userLogin + "'" +
+            ", currency='" + currency + "'" +
+            ", action='" + action + "'" +
+            ", actionCount='" + actionCount + "'" +
+            ", amount='" + amount + "'" +
+            '}';
+    }
+}
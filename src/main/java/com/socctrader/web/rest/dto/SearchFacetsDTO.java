@@ -0,0 +1,40 @@
+package com.socctrader.web.rest.dto;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A DTO for the facets of a search: the number of matching documents, and the buckets of each facet.
+ */
+public class SearchFacetsDTO implements Serializable {
+
+    private long total;
+
+    private Map<String, List<FacetBucketDTO>> facets = new LinkedHashMap<>();
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, List<FacetBucketDTO>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, List<FacetBucketDTO>> facets) {
+        this.facets = facets;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchFacetsDTO{" +
+            "total='" + total + "'" +
+            ", facets=" + facets +
+            '}';
+    }
+}
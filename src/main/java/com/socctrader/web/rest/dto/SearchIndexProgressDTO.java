@@ -0,0 +1,106 @@
+package com.socctrader.web.rest.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the progress of the reindex of one entity into a new versioned index.
+ */
+public class SearchIndexProgressDTO implements Serializable {
+
+    private String entity;
+
+    private String alias;
+
+    private String index;
+
+    private long total;
+
+    private long indexed;
+
+    private long rowsPerSecond;
+
+    private boolean swapped;
+
+    public SearchIndexProgressDTO() {
+    }
+
+    public SearchIndexProgressDTO(String entity, String alias, String index, long total, long indexed,
+                                  long rowsPerSecond, boolean swapped) {
+        this.entity = entity;
+        this.alias = alias;
+        this.index = index;
+        this.total = total;
+        this.indexed = indexed;
+        this.rowsPerSecond = rowsPerSecond;
+        this.swapped = swapped;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(long indexed) {
+        this.indexed = indexed;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public boolean isSwapped() {
+        return swapped;
+    }
+
+    public void setSwapped(boolean swapped) {
+        this.swapped = swapped;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchIndexProgressDTO{" +
+            "entity='" + entity + "'" +
+            ", alias='" + alias + "'" +
+            ", index='" + index + "'" +
+            ", total=" + total +
+            ", indexed=" + indexed +
+            ", rowsPerSecond=" + rowsPerSecond +
+            ", swapped=" + swapped +
+            '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.socctrader.web.rest.dto;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO for the state of the last full reindex of the search indices.
+ */
+public class SearchReindexDTO implements Serializable {
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    private State state = State.IDLE;
+
+    private ZonedDateTime startedDate;
+
+    private ZonedDateTime finishedDate;
+
+    private String error;
+
+    private List<SearchIndexProgressDTO> indices = new ArrayList<>();
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public ZonedDateTime getStartedDate() {
+        return startedDate;
+    }
+
+    public void setStartedDate(ZonedDateTime startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public ZonedDateTime getFinishedDate() {
+        return finishedDate;
+    }
+
+    public void setFinishedDate(ZonedDateTime finishedDate) {
+        this.finishedDate = finishedDate;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<SearchIndexProgressDTO> getIndices() {
+        return indices;
+    }
+
+    public void setIndices(List<SearchIndexProgressDTO> indices) {
+        this.indices = indices;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchReindexDTO{" +
+            "state=" + state +
+            ", startedDate='" + startedDate + "'" +
+            ", finishedDate='" + finishedDate + "'" +
+            ", error='" + error + "'" +
+            ", indices=" + indices +
+            '}';
+    }
+}
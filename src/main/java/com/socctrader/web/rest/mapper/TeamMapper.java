@@ -1,7 +1,7 @@
 package com.socctrader.web.rest.mapper;
 
 import com.socctrader.domain.*;
-import com.socctrader.web.rest.dto.TeamDTO;
+import com.socctrader.service.dto.TeamDTO;
 
 import org.mapstruct.*;
 import java.util.List;
@@ -0,0 +1,81 @@
+package com.socctrader.web.rest.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.socctrader.web.rest.errors.CustomParameterizedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Utility class for the multi-get requests (<code>?ids=1,2,3</code>), getting many entities in one request.
+ *
+ * <p>
+ * The entities are looked up in the reference data snapshot, and the ones missing from it, created since it was
+ * built, are read with a single <code>IN</code> query. They are then serialized one at a time to the response, as a
+ * JSON array in the order of the requested ids, without building the whole body in memory. The unknown ids are
+ * skipped, and the repeated ones are written once.
+ * <p>
+ * The multi-get mappings exclude the <code>after</code> parameter, with <code>params = {"ids", "!after"}</code>, so
+ * that a request with both is a keyset page, not an ambiguous mapping.
+ */
+public class MultiGetUtil {
+
+    public static final int MAX_IDS = 1000;
+
+    /**
+     * Write the entities of some ids to the response.
+     *
+     * @param ids the requested ids
+     * @param lookup the lookup of an id in the snapshot, returning null if it is not there
+     * @param query the query of the ids missing from the snapshot
+     * @param id the id of an entity
+     * @param objectMapper the mapper serializing the entities
+     * @param response the response to write the entities to, with status 200 (OK)
+     * @throws IOException if the entities could not be written
+     */
+    public static <T> void writeAll(List<Long> ids, LongFunction<T> lookup, Function<Collection<Long>, List<T>> query,
+                                    Function<T, Long> id, ObjectMapper objectMapper, HttpServletResponse response)
+        throws IOException {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > MAX_IDS) {
+            throw new CustomParameterizedException("error.tooManyIds", String.valueOf(requested.size()));
+        }
+        Map<Long, T> found = new HashMap<>(requested.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long each : requested) {
+            T entity = lookup.apply(each);
+            if (entity == null) {
+                missing.add(each);
+            } else {
+                found.put(each, entity);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (T entity : query.apply(missing)) {
+                found.put(id.apply(entity), entity);
+            }
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            for (Long each : requested) {
+                T entity = found.get(each);
+                if (entity != null) {
+                    writer.writeValue(generator, entity);
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.socctrader.web.rest.util;
 
+import com.socctrader.web.rest.errors.CustomParameterizedException;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SearchQuery;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
 
 /**
  * Utility class for handling pagination.
@@ -12,9 +28,22 @@ import java.net.URISyntaxException;
  * <p>
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">Github API</a>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
+ *
+ * <p>
+ * Keyset pagination (<code>?after=cursor&amp;size=n</code>) seeks past the id encoded in an opaque cursor
+ * instead of skipping rows, and does not count them: every page costs the same, however deep it is.
+ *
+ * <p>
+ * Search-after pagination applies the same cursors to Elasticsearch searches. Elasticsearch 1.x has no
+ * <code>search_after</code>, so the hits are sorted on id and filtered on the ids after the cursor: a deep
+ * page neither collects the previous hits nor runs into the result window.
  */
 public class PaginationUtil {
 
+    public static final int DEFAULT_KEYSET_PAGE_SIZE = 20;
+
+    public static final int MAX_KEYSET_PAGE_SIZE = 2000;
+
     public static HttpHeaders generatePaginationHttpHeaders(Page<?> page, String baseUrl)
         throws URISyntaxException {
 
@@ -66,4 +95,103 @@ public class PaginationUtil {
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
+
+    /**
+     * Decode the id of a keyset pagination cursor.
+     *
+     * @param cursor the cursor, empty or null for the first page
+     * @return the id after which the page starts
+     */
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new CustomParameterizedException("error.invalidCursor", cursor);
+        }
+    }
+
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Create the Pageable of a keyset page query: ordered by id, with one extra row telling if there is a next page.
+     *
+     * @param size the requested page size
+     * @return the pageable to pass to a <code>findByIdGreaterThan</code> repository method
+     */
+    public static Pageable generateKeysetPageable(int size) {
+        if (size < 1 || size > MAX_KEYSET_PAGE_SIZE) {
+            throw new CustomParameterizedException("error.invalidPageSize", String.valueOf(size));
+        }
+        return new PageRequest(0, size + 1, Sort.Direction.ASC, "id");
+    }
+
+    /**
+     * Get the rows of a keyset page, without the extra row fetched to detect the next page.
+     */
+    public static <T> List<T> getKeysetPageContent(List<T> rows, int size) {
+        return rows.size() > size ? rows.subList(0, size) : rows;
+    }
+
+    public static <T> HttpHeaders generateKeysetPaginationHttpHeaders(List<T> rows, int size, Function<T, Long> id,
+                                                                      String baseUrl)
+        throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (rows.size() > size) {
+            String cursor = encodeCursor(id.apply(rows.get(size - 1)));
+            link = "<" + generateKeysetUri(baseUrl, cursor, size) + ">; rel=\"next\",";
+        }
+        link += "<" + generateKeysetUri(baseUrl, "", size) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateKeysetUri(String baseUrl, String cursor, int size) throws URISyntaxException {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("after", cursor).queryParam("size", size).toUriString();
+    }
+
+    /**
+     * Create the search query of a search-after page: the hits of the query after the id of the cursor, ordered by id,
+     * with one extra hit telling if there is a next page.
+     *
+     * @param query the query of the search
+     * @param after the cursor returned by the previous page, empty or null for the first page
+     * @param size the requested page size
+     * @return the query to pass to the <code>search</code> method of a search repository
+     */
+    public static SearchQuery generateSearchAfterQuery(QueryBuilder query, String after, int size) {
+        Pageable pageable = generateKeysetPageable(size);
+        Long id = decodeCursor(after);
+        return new NativeSearchQueryBuilder()
+            .withQuery(id == Long.MIN_VALUE ? query : boolQuery().must(query).must(rangeQuery("id").gt(id)))
+            .withSort(SortBuilders.fieldSort("id").order(SortOrder.ASC))
+            .withPageable(new PageRequest(0, pageable.getPageSize()))
+            .build();
+    }
+
+    public static <T> HttpHeaders generateSearchAfterPaginationHttpHeaders(String query, List<T> hits, int size,
+                                                                           Function<T, Long> id, String baseUrl)
+        throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (hits.size() > size) {
+            String cursor = encodeCursor(id.apply(hits.get(size - 1)));
+            link = "<" + generateSearchAfterUri(baseUrl, query, cursor, size) + ">; rel=\"next\",";
+        }
+        link += "<" + generateSearchAfterUri(baseUrl, query, "", size) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    private static String generateSearchAfterUri(String baseUrl, String query, String cursor, int size) throws URISyntaxException {
+        return UriComponentsBuilder.fromUriString(baseUrl).queryParam("query", query).queryParam("after", cursor)
+            .queryParam("size", size).build().encode().toUriString();
+    }
 }
@@ -0,0 +1,85 @@
+import _root_.io.gatling.core.scenario.Simulation
+import ch.qos.logback.classic.{Level, LoggerContext}
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+import org.slf4j.LoggerFactory
+
+import scala.concurrent.duration._
+
+/**
+ * Performance test comparing bulk and single-item creation of FinancialAction.
+ */
+class FinancialActionBulkGatlingTest extends Simulation {
+
+    val context: LoggerContext = LoggerFactory.getILoggerFactory.asInstanceOf[LoggerContext]
+    // Log all HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("TRACE"))
+    // Log failed HTTP requests
+    //context.getLogger("io.gatling.http").setLevel(Level.valueOf("DEBUG"))
+
+    val baseURL = Option(System.getProperty("baseURL")) getOrElse """http://127.0.0.1:8080"""
+
+    val httpConf = http
+        .baseURL(baseURL)
+        .inferHtmlResources()
+        .acceptHeader("*/*")
+        .acceptEncodingHeader("gzip, deflate")
+        .acceptLanguageHeader("fr,fr-fr;q=0.8,en-us;q=0.5,en;q=0.3")
+        .connection("keep-alive")
+        .userAgentHeader("Mozilla/5.0 (Macintosh; Intel Mac OS X 10.10; rv:33.0) Gecko/20100101 Firefox/33.0")
+
+    val headers_http = Map(
+        "Accept" -> """application/json"""
+    )
+
+    val headers_http_authentication = Map(
+        "Content-Type" -> """application/json""",
+        "Accept" -> """application/json"""
+    )
+
+    val headers_http_authenticated = Map(
+        "Accept" -> """application/json""",
+        "Authorization" -> "${access_token}"
+    )
+
+    val batchSize = Integer.getInteger("batchSize", 100).intValue
+
+    val financialActionJson = """{"id":null, "actionId":null, "action":"DEPOSIT", "amount":1, "currency":"EUR"}"""
+
+    val bulkBody = (1 to batchSize).map(_ => financialActionJson).mkString("[", ",", "]")
+
+    val authenticate = exec(http("Authentication")
+        .post("/api/authenticate")
+        .headers(headers_http_authentication)
+        .body(StringBody("""{"username":"admin", "password":"admin"}""")).asJSON
+        .check(header.get("Authorization").saveAs("access_token"))).exitHereIfFailed
+
+    val single = scenario("Create financialActions one by one")
+        .exec(authenticate)
+        .repeat(10) {
+            repeat(batchSize) {
+                exec(http("Create new financialAction")
+                .post("/api/financial-actions")
+                .headers(headers_http_authenticated)
+                .body(StringBody(financialActionJson)).asJSON
+                .check(status.is(201)))
+            }
+        }
+
+    val bulk = scenario("Create financialActions in bulk")
+        .exec(authenticate)
+        .repeat(10) {
+            exec(http("Create financialActions in bulk")
+            .post("/api/financial-actions/_bulk")
+            .headers(headers_http_authenticated)
+            .body(StringBody(bulkBody)).asJSON
+            .check(status.is(200))
+            .check(jsonPath("$[?(@.status != 201)]").notExists))
+        }
+
+    // Both scenarios create the same number of rows: compare their durations in the report
+    setUp(
+        single.inject(atOnceUsers(10)),
+        bulk.inject(nothingFor(2 minutes), atOnceUsers(10))
+    ).protocols(httpConf)
+}
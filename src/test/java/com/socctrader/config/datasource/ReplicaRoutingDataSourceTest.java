@@ -0,0 +1,141 @@
+package com.socctrader.config.datasource;
+
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the ReplicaRoutingDataSource, with a primary and two replicas in distinct H2 databases, each
+ * knowing its own name.
+ * <p>
+ * The transactions are those of a JpaTransactionManager, as in the application, which begins the JPA transaction
+ * before it declares it read-only: the routing must still wait for the first statement.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "select lag from replica_lag";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private ReplicaRoutingDataSource dataSource;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    private TransactionTemplate newReadOnly;
+
+    @Before
+    public void setup() {
+        dataSource = new ReplicaRoutingDataSource(pool("primary"), Arrays.asList(pool("replica-1"), pool("replica-2")),
+            LAG_QUERY, 10, metricRegistry);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // No entity: the JDBC statements of the tests join the JPA transactions
+        entityManagerFactory.setPackagesToScan(ReplicaRoutingDataSourceTest.class.getPackage().getName());
+        entityManagerFactory.afterPropertiesSet();
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory.getObject());
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        newReadOnly = new TransactionTemplate(transactionManager);
+        newReadOnly.setReadOnly(true);
+        newReadOnly.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @After
+    public void tearDown() {
+        entityManagerFactory.destroy();
+        dataSource.close();
+    }
+
+    @Test
+    public void routesReadOnlyTransactionsToReplicas() {
+        assertThat(readOnly.execute(status -> target())).startsWith("replica-");
+        assertThat(readWrite.execute(status -> target())).isEqualTo("primary");
+        assertThat(target()).isEqualTo("primary");
+        assertThat(metricRegistry.meter("datasource.primary.connections").getCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void picksReplicaWithFewestOutstandingConnections() {
+        readOnly.execute(status -> {
+            // The connection of the transaction stays open until its end
+            String first = target();
+            String second = newReadOnly.execute(nested -> target());
+            assertThat(first).startsWith("replica-");
+            assertThat(second).startsWith("replica-").isNotEqualTo(first);
+            return null;
+        });
+        assertThat(metricRegistry.getGauges().get("datasource.replica-1.outstanding").getValue()).isEqualTo(0);
+        assertThat(metricRegistry.getGauges().get("datasource.replica-2.outstanding").getValue()).isEqualTo(0);
+    }
+
+    @Test
+    public void fallsBackToPrimaryWhenReplicasLag() {
+        setLag("replica-1", 60);
+        setLag("replica-2", 60);
+        dataSource.checkReplicas();
+        assertThat(readOnly.execute(status -> target())).isEqualTo("primary");
+
+        setLag("replica-2", 1);
+        dataSource.checkReplicas();
+        assertThat(readOnly.execute(status -> target())).isEqualTo("replica-2");
+        assertThat(metricRegistry.getGauges().get("datasource.replica-1.lag").getValue()).isEqualTo(60L);
+    }
+
+    @Test
+    public void usesPrimaryWhenAsked() {
+        assertThat(ReplicaRoutingDataSource.usePrimary(() -> readOnly.execute(status -> target()))).isEqualTo("primary");
+        assertThat(readOnly.execute(status -> target())).startsWith("replica-");
+    }
+
+    private String target() {
+        return jdbcTemplate.queryForObject("select name from target", String.class);
+    }
+
+    private void setLag(String name, long lag) {
+        try (HikariDataSource database = database(name)) {
+            new JdbcTemplate(database).update("update replica_lag set lag = ?", lag);
+        }
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource dataSource = database(name);
+        dataSource.setPoolName(name);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists target (name varchar(50))");
+        jdbcTemplate.execute("delete from target");
+        jdbcTemplate.update("insert into target values (?)", name);
+        jdbcTemplate.execute("create table if not exists replica_lag (lag bigint)");
+        jdbcTemplate.execute("delete from replica_lag");
+        jdbcTemplate.execute("insert into replica_lag values (0)");
+        return dataSource;
+    }
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(2);
+        return dataSource;
+    }
+}
@@ -0,0 +1,50 @@
+package com.socctrader.domain;
+
+import com.socctrader.domain.enumeration.Currency;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the Money value type.
+ *
+ * @see Money
+ */
+public class MoneyTest {
+
+    @Test
+    public void convertsDecimalAmountsToMinorUnits() {
+        Money money = Money.of(new BigDecimal("12.3"), Currency.EUR);
+
+        assertThat(money.getMinorUnits()).isEqualTo(1230L);
+        assertThat(money.toBigDecimal()).isEqualTo(new BigDecimal("12.30"));
+        assertThat(money.toString()).isEqualTo("12.30 EUR");
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void rejectsFractionsOfMinorUnits() {
+        Money.of(new BigDecimal("0.001"), Currency.EUR);
+    }
+
+    @Test
+    public void addsAndComparesInTheSameCurrency() {
+        Money deposit = Money.ofMinorUnits(1000, Currency.USD);
+        Money withdrawal = Money.ofMinorUnits(250, Currency.USD);
+
+        assertThat(deposit.minus(withdrawal)).isEqualTo(Money.ofMinorUnits(750, Currency.USD));
+        assertThat(withdrawal.minus(deposit).isNegative()).isTrue();
+        assertThat(deposit.compareTo(withdrawal)).isPositive();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCurrencyMismatch() {
+        Money.ofMinorUnits(1, Currency.EUR).plus(Money.ofMinorUnits(1, Currency.USD));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void failsOnOverflow() {
+        Money.add(Long.MAX_VALUE, 1);
+    }
+}
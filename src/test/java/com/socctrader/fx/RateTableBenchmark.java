@@ -0,0 +1,67 @@
+package com.socctrader.fx;
+
+import com.socctrader.domain.enumeration.Currency;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JMH benchmark of the rate lookups and conversions of a RateTable, read through an atomically swapped
+ * reference as in FxService.
+ * <p>
+ * Run it from the IDE, or with <code>java -cp target/test-classes:... com.socctrader.fx.RateTableBenchmark</code>.
+ *
+ * @see RateTable
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateTableBenchmark {
+
+    private final AtomicReference<RateTable> rateTable = new AtomicReference<>();
+
+    private long amount;
+
+    @Setup
+    public void setup() {
+        Map<Currency, BigDecimal> valuesOfEur = new EnumMap<>(Currency.class);
+        valuesOfEur.put(Currency.USD, new BigDecimal("1.0975"));
+        rateTable.set(RateTable.of(Currency.EUR, valuesOfEur, Instant.now()));
+        amount = 123456789L;
+    }
+
+    @Benchmark
+    public long rate() {
+        return rateTable.get().getRate(Currency.USD, Currency.EUR);
+    }
+
+    @Benchmark
+    public long convert() {
+        return rateTable.get().convert(amount, Currency.USD, Currency.EUR);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long convertContended() {
+        return rateTable.get().convert(amount, Currency.USD, Currency.EUR);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RateTableBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
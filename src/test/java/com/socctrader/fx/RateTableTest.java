@@ -0,0 +1,51 @@
+package com.socctrader.fx;
+
+import com.socctrader.domain.enumeration.Currency;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RateTable.
+ *
+ * @see RateTable
+ */
+public class RateTableTest {
+
+    private static final String SNAPSHOT = "base=EUR\nasOf=2016-10-17T00:00:00Z\nEUR=1\nUSD=1.25\n";
+
+    @Test
+    public void parsesSnapshotAndDerivesInverseRates() throws Exception {
+        RateTable table = parse(SNAPSHOT);
+
+        assertThat(table.getAsOf()).isEqualTo(Instant.parse("2016-10-17T00:00:00Z"));
+        assertThat(table.getRate(Currency.EUR, Currency.USD)).isEqualTo(1_250_000L);
+        assertThat(table.getRate(Currency.USD, Currency.EUR)).isEqualTo(800_000L);
+        assertThat(table.getRate(Currency.EUR, Currency.EUR)).isEqualTo(RateTable.RATE_SCALE);
+    }
+
+    @Test
+    public void convertsMinorUnitsRoundingHalfAwayFromZero() throws Exception {
+        RateTable table = parse(SNAPSHOT);
+
+        assertThat(table.convert(10000L, Currency.EUR, Currency.USD)).isEqualTo(12500L);
+        assertThat(table.convert(12500L, Currency.USD, Currency.EUR)).isEqualTo(10000L);
+        // 0.02 EUR is 0.025 USD
+        assertThat(table.convert(2L, Currency.EUR, Currency.USD)).isEqualTo(3L);
+        assertThat(table.convert(-2L, Currency.EUR, Currency.USD)).isEqualTo(-3L);
+        assertThat(table.convert(123L, Currency.USD, Currency.USD)).isEqualTo(123L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSnapshotWithMissingRate() throws Exception {
+        parse("base=EUR\nEUR=1\n");
+    }
+
+    private static RateTable parse(String snapshot) throws Exception {
+        return RateTable.parse(new ByteArrayInputStream(snapshot.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,120 @@
+package com.socctrader.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for the Journal.
+ *
+ * @see Journal
+ */
+public class JournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendsAndReadsRecordsInOrder() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE, 16, 1)) {
+            journal.open();
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 1; i <= 200; i++) {
+                futures.add(journal.append(payload(i)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(futures.get(i).get()).isEqualTo(i + 1L);
+            }
+            assertThat(journal.getCommittedSequence()).isEqualTo(200L);
+
+            List<JournalRecord> records = journal.read(0, 150);
+            assertThat(records).hasSize(150);
+            assertThat(records.get(0).getSequence()).isEqualTo(1L);
+            assertThat(new String(records.get(149).getPayload(), StandardCharsets.UTF_8)).isEqualTo("record-150");
+            assertThat(journal.read(150, 150)).hasSize(50);
+            assertThat(journal.read(200, 150)).isEmpty();
+        }
+    }
+
+    @Test
+    public void recoversRecordsAfterReopening() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE, 16, 1)) {
+            journal.open();
+            for (int i = 1; i <= 100; i++) {
+                journal.append(payload(i)).get();
+            }
+        }
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE, 16, 1)) {
+            journal.open();
+            assertThat(journal.getCommittedSequence()).isEqualTo(100L);
+            assertThat(journal.read(40, 1000)).hasSize(60);
+            assertThat(journal.append(payload(101)).get()).isEqualTo(101L);
+        }
+    }
+
+    @Test
+    public void releasesAppliedSegments() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE, 16, 1)) {
+            journal.open();
+            for (int i = 1; i <= 500; i++) {
+                journal.append(payload(i)).get();
+            }
+            long segmentsBefore = Files.list(directory).count();
+            assertThat(segmentsBefore).isGreaterThan(1);
+
+            journal.release(450);
+
+            assertThat(Files.list(directory).count()).isLessThan(segmentsBefore);
+            List<JournalRecord> records = journal.read(450, 1000);
+            assertThat(records).hasSize(50);
+            assertThat(records.get(0).getSequence()).isEqualTo(451L);
+        }
+    }
+
+    @Test
+    public void erasesTheRecordsOfAFailedGroup() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE, 2, 1000)) {
+            journal.open();
+            // The second record needs a new segment, which cannot be created over a directory of the same name
+            Path blocked = Files.createDirectory(directory.resolve(String.format("%020d.journal", 2)));
+            CompletableFuture<Long> fitting = journal.append(payload(1));
+            CompletableFuture<Long> overflowing = journal.append(new byte[SEGMENT_SIZE - 40]);
+
+            assertThatThrownBy(fitting::get).isInstanceOf(ExecutionException.class);
+            assertThatThrownBy(overflowing::get).isInstanceOf(ExecutionException.class);
+            assertThat(journal.getCommittedSequence()).isEqualTo(0L);
+            assertThat(journal.read(0, 10)).isEmpty();
+
+            Files.delete(blocked);
+            assertThat(journal.append(payload(2)).get()).isEqualTo(1L);
+            assertThat(journal.read(0, 10)).extracting(record -> new String(record.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("record-2");
+        }
+        try (Journal journal = new Journal(directory, SEGMENT_SIZE, 2, 1000)) {
+            journal.open();
+            assertThat(journal.getCommittedSequence()).isEqualTo(1L);
+            assertThat(journal.read(0, 10)).hasSize(1);
+        }
+    }
+
+    private static byte[] payload(int i) {
+        return ("record-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+package com.socctrader.repository;
+
+import com.socctrader.SocctraderApp;
+import com.socctrader.domain.*;
+import com.socctrader.service.dto.TeamDTO;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test that the *WithHierarchy repository methods load the parents of their entities with a constant number of
+ * statements, and that the projections load no entity, counted on the test thread by the
+ * {@link StatementCountingInterceptor}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = SocctraderApp.class)
+@WebAppConfiguration
+@IntegrationTest
+@Transactional
+public class HierarchyFetchIntTest {
+
+    private static final int HIERARCHIES = 5;
+
+    @Inject
+    private EntityManager em;
+
+    @Inject
+    private CountryRepository countryRepository;
+
+    @Inject
+    private LocationRepository locationRepository;
+
+    @Inject
+    private LeagueRepository leagueRepository;
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    private Long firstTeamId;
+
+    @Before
+    public void initTest() {
+        // One region, country, location, league and team per hierarchy, so that no parent is shared
+        for (int i = 0; i < HIERARCHIES; i++) {
+            Region region = new Region();
+            region.setRegionName("Region " + i);
+            em.persist(region);
+            Country country = new Country();
+            country.setCountryName("Country " + i);
+            country.setRegion(region);
+            em.persist(country);
+            Location location = new Location();
+            location.setCity("City " + i);
+            location.setCountry(country);
+            em.persist(location);
+            League league = new League();
+            league.setLeagueName("League " + i);
+            league.setLocation(location);
+            em.persist(league);
+            Team team = new Team();
+            team.setTeamName("Team " + i);
+            team.setLeague(league);
+            em.persist(team);
+            if (firstTeamId == null) {
+                firstTeamId = team.getId();
+            }
+        }
+        em.flush();
+        em.clear();
+        StatementCountingInterceptor.clear();
+    }
+
+    @Test
+    public void findAllTeamsWithHierarchy() {
+        List<Team> teams = teamRepository.findAllWithHierarchy();
+
+        assertThat(teams.size()).isGreaterThanOrEqualTo(HIERARCHIES);
+        teams.forEach(this::touch);
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findTeamPagesWithHierarchy() {
+        List<Team> teams = teamRepository.findAllWithHierarchy(new PageRequest(0, HIERARCHIES, Sort.Direction.DESC, "id"))
+            .getContent();
+
+        assertThat(teams).hasSize(HIERARCHIES);
+        teams.forEach(this::touch);
+        // The page and its count
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void findTeamsAfterWithHierarchy() {
+        List<Team> teams = teamRepository.findWithHierarchyByIdGreaterThan(firstTeamId - 1, new PageRequest(0, HIERARCHIES));
+
+        assertThat(teams).hasSize(HIERARCHIES);
+        teams.forEach(this::touch);
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findOneTeamWithHierarchy() {
+        touch(teamRepository.findOneWithHierarchy(firstTeamId));
+
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findAllLeaguesWithHierarchy() {
+        List<League> leagues = leagueRepository.findAllWithHierarchy();
+
+        assertThat(leagues.size()).isGreaterThanOrEqualTo(HIERARCHIES);
+        leagues.forEach(league -> touch(league.getLocation()));
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findAllLocationsWithHierarchy() {
+        List<Location> locations = locationRepository.findAllWithHierarchy();
+
+        assertThat(locations.size()).isGreaterThanOrEqualTo(HIERARCHIES);
+        locations.forEach(location -> touch(location.getCountry()));
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findAllCountriesWithHierarchy() {
+        List<Country> countries = countryRepository.findAllWithHierarchy();
+
+        assertThat(countries.size()).isGreaterThanOrEqualTo(HIERARCHIES);
+        countries.forEach(country -> assertThat(country.getRegion().getRegionName()).isNotNull());
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void findTeamDTOsWithoutEntities() {
+        List<TeamDTO> teams = teamRepository.findAllDTOs(new PageRequest(0, HIERARCHIES, Sort.Direction.DESC, "id"))
+            .getContent();
+
+        assertThat(teams).hasSize(HIERARCHIES);
+        assertThat(teams).extracting("leagueId").doesNotContainNull();
+        assertThat(teamRepository.findOneDTO(firstTeamId).getTeamName()).isEqualTo("Team 0");
+        // The page, its count and the single DTO, without loading any entity
+        assertThat(StatementCountingInterceptor.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(StatementCountingInterceptor.getEntityLoadCount()).isEqualTo(0);
+    }
+
+    private void touch(Team team) {
+        touch(team.getLeague().getLocation());
+    }
+
+    private void touch(Location location) {
+        assertThat(location.getCountry().getRegion().getRegionName()).isNotNull();
+    }
+
+    private void touch(Country country) {
+        assertThat(country.getRegion().getRegionName()).isNotNull();
+    }
+}
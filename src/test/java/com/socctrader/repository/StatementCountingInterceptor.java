@@ -0,0 +1,41 @@
+package com.socctrader.repository;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+/**
+ * Hibernate interceptor counting the statements prepared and the entities loaded by the current thread, so that
+ * a test counts its own queries only, and not the ones of the scheduled jobs running meanwhile.
+ * <p>
+ * It is registered for the tests with the <code>hibernate.ejb.interceptor</code> property.
+ */
+public class StatementCountingInterceptor extends EmptyInterceptor {
+
+    private static final ThreadLocal<long[]> COUNTS = ThreadLocal.withInitial(() -> new long[2]);
+
+    public static void clear() {
+        COUNTS.remove();
+    }
+
+    public static long getPrepareStatementCount() {
+        return COUNTS.get()[0];
+    }
+
+    public static long getEntityLoadCount() {
+        return COUNTS.get()[1];
+    }
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        COUNTS.get()[0]++;
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        COUNTS.get()[1]++;
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+package com.socctrader.repository;
+
+import com.socctrader.SocctraderApp;
+import com.socctrader.domain.League;
+import com.socctrader.domain.Team;
+import com.socctrader.service.dto.TeamDTO;
+import com.socctrader.web.rest.mapper.TeamMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of a page of teams read as entities and mapped to DTOs, as <code>GET /api/teams?sort=...</code>
+ * did, against the same page read with the TeamDTO projection of TeamRepository.
+ * <p>
+ * It starts the application with the test configuration (in-memory H2), and inserts {@value #TEAMS} teams. The
+ * allocations per page are given by the GC profiler (<code>gc.alloc.rate.norm</code>).
+ * <p>
+ * Run it from the IDE, or with <code>java -cp target/test-classes:... com.socctrader.repository.TeamProjectionBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamProjectionBenchmark {
+
+    private static final int TEAMS = 2000;
+
+    private static final int PAGE_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+
+    private TeamRepository teamRepository;
+
+    private TeamMapper teamMapper;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Pageable pageable;
+
+    @Setup
+    public void setup() {
+        context = SpringApplication.run(SocctraderApp.class, "--server.port=0");
+        teamRepository = context.getBean(TeamRepository.class);
+        teamMapper = context.getBean(TeamMapper.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        LeagueRepository leagueRepository = context.getBean(LeagueRepository.class);
+        transactionTemplate.execute(status -> {
+            List<Team> teams = new ArrayList<>(TEAMS);
+            for (int i = 0; i < TEAMS; i++) {
+                // A league has a single team
+                League league = new League();
+                league.setLeagueName("Benchmark league " + i);
+                league = leagueRepository.save(league);
+                Team team = new Team();
+                team.setTeamId((long) i);
+                team.setTeamName("Benchmark team " + i);
+                team.setLeague(league);
+                teams.add(team);
+            }
+            return teamRepository.save(teams);
+        });
+        pageable = new PageRequest(3, PAGE_SIZE, Sort.Direction.ASC, "teamName");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TeamDTO> entities() {
+        return transactionTemplate.execute(status ->
+            teamMapper.teamsToTeamDTOs(teamRepository.findAll(pageable).getContent()));
+    }
+
+    @Benchmark
+    public List<TeamDTO> projections() {
+        return transactionTemplate.execute(status -> teamRepository.findAllDTOs(pageable).getContent());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(TeamProjectionBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.socctrader.service;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JMH benchmark of the throughput of the UserSequencer, with the mutations of distinct users and of a single
+ * user, over the Hazelcast locks of a standalone member and over local locks for reference.
+ * <p>
+ * Run it from the IDE, or with <code>java -cp target/test-classes:... com.socctrader.service.UserSequencerBenchmark</code>.
+ *
+ * @see UserSequencer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class UserSequencerBenchmark {
+
+    /** Simulated work done by one mutation while the stripe is held. */
+    private static final int WORK_ITERATIONS = 500;
+
+    @Param({"hazelcast", "local"})
+    private String locks;
+
+    private HazelcastInstance hazelcastInstance;
+
+    private UserSequencer sequencer;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class User {
+
+        private String login;
+
+        @Setup
+        public void setup(UserSequencerBenchmark benchmark) {
+            login = "user-" + benchmark.threads.getAndIncrement();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        if ("hazelcast".equals(locks)) {
+            Config config = new Config();
+            config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+            hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+            sequencer = new UserSequencer(256, stripe -> hazelcastInstance.getLock(UserSequencer.LOCK_NAME_PREFIX + stripe));
+        } else {
+            sequencer = new UserSequencer(256, stripe -> new ReentrantLock());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (hazelcastInstance != null) {
+            hazelcastInstance.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void distinctUsers(User user, Blackhole blackhole) {
+        sequencer.execute(user.login, () -> blackhole.consume(work()));
+    }
+
+    @Benchmark
+    public void singleUser(Blackhole blackhole) {
+        sequencer.execute("user", () -> blackhole.consume(work()));
+    }
+
+    private static long work() {
+        long x = System.nanoTime();
+        for (int i = 0; i < WORK_ITERATIONS; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        return x;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(UserSequencerBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.socctrader.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the UserSequencer, over local locks.
+ *
+ * @see UserSequencer
+ * @see UserSequencerBenchmark
+ */
+public class UserSequencerTest {
+
+    private static final int OPERATIONS_PER_THREAD = 20000;
+
+    @Test
+    public void roundsStripesUpToAPowerOfTwo() {
+        assertThat(new UserSequencer(1, stripe -> new ReentrantLock()).getStripeCount()).isEqualTo(1);
+        assertThat(new UserSequencer(100, stripe -> new ReentrantLock()).getStripeCount()).isEqualTo(128);
+        assertThat(new UserSequencer(256, stripe -> new ReentrantLock()).getStripeCount()).isEqualTo(256);
+    }
+
+    @Test
+    public void serializesTheMutationsOfOneUser() throws Exception {
+        UserSequencer sequencer = new UserSequencer(16, stripe -> new ReentrantLock());
+        // Deliberately not thread safe: only the sequencer protects it
+        long[] balance = new long[1];
+
+        run(8, thread -> sequencer.execute("user", () -> balance[0]++));
+
+        assertThat(balance[0]).isEqualTo(8L * OPERATIONS_PER_THREAD);
+    }
+
+    @Test
+    public void serializesTheMutationsOfSeveralUsers() throws Exception {
+        UserSequencer sequencer = new UserSequencer(16, stripe -> new ReentrantLock());
+        long[] balance = new long[1];
+
+        // Overlapping sets of users, listed in different orders by the threads
+        List<List<String>> logins = Arrays.asList(
+            Arrays.asList("user", "other-user"),
+            Arrays.asList("other-user", "user", "third-user"));
+        run(8, thread -> sequencer.executeAll(logins.get(thread % 2), () -> balance[0]++));
+
+        assertThat(balance[0]).isEqualTo(8L * OPERATIONS_PER_THREAD);
+    }
+
+    private static void run(int threads, IntConsumer operationOfThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    operationOfThread.accept(thread);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,242 @@
+package com.socctrader.web.rest;
+
+import com.socctrader.SocctraderApp;
+import com.socctrader.config.Constants;
+import com.socctrader.domain.Balance;
+import com.socctrader.domain.FinancialAction;
+import com.socctrader.repository.BalanceRepository;
+import com.socctrader.repository.FinancialActionRepository;
+import com.socctrader.repository.search.FinancialActionSearchRepository;
+import com.socctrader.service.BalanceService;
+import com.socctrader.service.FinancialActionService;
+import com.socctrader.service.IdempotencyService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.socctrader.domain.enumeration.Action;
+import com.socctrader.domain.enumeration.Currency;
+
+/**
+ * Test class for the BalanceResource REST controller.
+ *
+ * @see BalanceResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = SocctraderApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class BalanceResourceIntTest {
+
+    private static final String REBUILD_LOGIN = "balance-rebuild";
+
+    @Inject
+    private BalanceRepository balanceRepository;
+
+    @Inject
+    private BalanceService balanceService;
+
+    @Inject
+    private FinancialActionService financialActionService;
+
+    @Inject
+    private IdempotencyService idempotencyService;
+
+    @Inject
+    private FinancialActionRepository financialActionRepository;
+
+    @Inject
+    private FinancialActionSearchRepository financialActionSearchRepository;
+
+    @Inject
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    private MockMvc restBalanceMockMvc;
+
+    private MockMvc restFinancialActionMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        BalanceResource balanceResource = new BalanceResource();
+        ReflectionTestUtils.setField(balanceResource, "balanceService", balanceService);
+        this.restBalanceMockMvc = MockMvcBuilders.standaloneSetup(balanceResource)
+            .setMessageConverters(jacksonMessageConverter).build();
+
+        FinancialActionResource financialActionResource = new FinancialActionResource();
+        ReflectionTestUtils.setField(financialActionResource, "financialActionSearchRepository", financialActionSearchRepository);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionRepository", financialActionRepository);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionService", financialActionService);
+        ReflectionTestUtils.setField(financialActionResource, "idempotencyService", idempotencyService);
+        this.restFinancialActionMockMvc = MockMvcBuilders.standaloneSetup(financialActionResource)
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @Before
+    public void initTest() {
+        balanceRepository.deleteAll();
+    }
+
+    @Test
+    @Transactional
+    public void getBalancesAfterDepositAndWithdraw() throws Exception {
+        createFinancialAction(Action.DEPOSIT, 1000L);
+        createFinancialAction(Action.WITHDRAW, 450L);
+
+        restBalanceMockMvc.perform(get("/api/balances"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[0].currency").value(Currency.EUR.toString()))
+            .andExpect(jsonPath("$.[0].amount").value(5.5D));
+    }
+
+    @Test
+    @Transactional
+    public void getBalancesInOneCurrency() throws Exception {
+        createFinancialAction(Action.DEPOSIT, 1000L);
+
+        restBalanceMockMvc.perform(get("/api/balances?in=EUR"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.currency").value(Currency.EUR.toString()))
+            .andExpect(jsonPath("$.amount").value(10.0D))
+            .andExpect(jsonPath("$.ratesAsOf").exists());
+    }
+
+    @Test
+    @Transactional
+    public void rejectWithdrawalExceedingBalance() throws Exception {
+        createFinancialAction(Action.DEPOSIT, 1000L);
+        int databaseSizeBeforeCreate = financialActionRepository.findAll().size();
+
+        FinancialAction withdrawal = new FinancialAction();
+        withdrawal.setAction(Action.WITHDRAW);
+        withdrawal.setAmount(1001L);
+        withdrawal.setCurrency(Currency.EUR);
+        restFinancialActionMockMvc.perform(post("/api/financial-actions")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(withdrawal)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(financialActionRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+        Balance balance = balanceRepository.findOneByUserLoginAndCurrency(Constants.SYSTEM_ACCOUNT, Currency.EUR);
+        assertThat(balance.getAmount()).isEqualTo(1000L);
+    }
+
+    @Test
+    @Transactional
+    public void deleteFinancialActionRevertsBalance() throws Exception {
+        FinancialAction deposit = createFinancialAction(Action.DEPOSIT, 1000L);
+
+        restFinancialActionMockMvc.perform(delete("/api/financial-actions/{id}", deposit.getId())
+            .accept(TestUtil.APPLICATION_JSON_UTF8))
+            .andExpect(status().isOk());
+
+        Balance balance = balanceRepository.findOneByUserLoginAndCurrency(Constants.SYSTEM_ACCOUNT, Currency.EUR);
+        assertThat(balance.getAmount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void rejectDeletingSpentDeposit() throws Exception {
+        // Not transactional: the rejected deletion must roll back its own transaction
+        FinancialAction deposit = createFinancialAction(Action.DEPOSIT, 1000L);
+        FinancialAction withdrawal = createFinancialAction(Action.WITHDRAW, 800L);
+
+        restFinancialActionMockMvc.perform(delete("/api/financial-actions/{id}", deposit.getId())
+            .accept(TestUtil.APPLICATION_JSON_UTF8))
+            .andExpect(status().isBadRequest());
+
+        assertThat(financialActionRepository.findOne(deposit.getId())).isNotNull();
+        Balance balance = balanceRepository.findOneByUserLoginAndCurrency(Constants.SYSTEM_ACCOUNT, Currency.EUR);
+        assertThat(balance.getAmount()).isEqualTo(200L);
+
+        financialActionRepository.delete(Arrays.asList(deposit, withdrawal));
+    }
+
+    @Test
+    public void rejectShrinkingSpentDeposit() throws Exception {
+        // Not transactional: the rejected update must roll back its own transaction
+        FinancialAction deposit = createFinancialAction(Action.DEPOSIT, 1000L);
+        FinancialAction withdrawal = createFinancialAction(Action.WITHDRAW, 800L);
+
+        FinancialAction smallerDeposit = new FinancialAction();
+        smallerDeposit.setId(deposit.getId());
+        smallerDeposit.setAction(Action.DEPOSIT);
+        smallerDeposit.setAmount(500L);
+        smallerDeposit.setCurrency(Currency.EUR);
+        restFinancialActionMockMvc.perform(put("/api/financial-actions")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(smallerDeposit)))
+            .andExpect(status().isBadRequest());
+
+        assertThat(financialActionRepository.findOne(deposit.getId()).getAmount()).isEqualTo(1000L);
+        Balance balance = balanceRepository.findOneByUserLoginAndCurrency(Constants.SYSTEM_ACCOUNT, Currency.EUR);
+        assertThat(balance.getAmount()).isEqualTo(200L);
+
+        financialActionRepository.delete(Arrays.asList(deposit, withdrawal));
+    }
+
+    @Test
+    @Transactional
+    public void rebuildRepairsDrift() throws Exception {
+        recordFinancialAction(REBUILD_LOGIN, Action.DEPOSIT, 1000L, Currency.EUR);
+        recordFinancialAction(REBUILD_LOGIN, Action.WITHDRAW, 450L, Currency.EUR);
+        recordFinancialAction(REBUILD_LOGIN, Action.DEPOSIT, 300L, Currency.USD);
+        Balance drifted = balanceRepository.findOneByUserLoginAndCurrency(REBUILD_LOGIN, Currency.EUR);
+        drifted.setAmount(9900L);
+        balanceRepository.saveAndFlush(drifted);
+        balanceRepository.delete(balanceRepository.findOneByUserLoginAndCurrency(REBUILD_LOGIN, Currency.USD));
+        balanceRepository.flush();
+
+        int repaired = balanceService.rebuild(REBUILD_LOGIN);
+
+        assertThat(repaired).isEqualTo(2);
+        assertThat(balanceRepository.findOneByUserLoginAndCurrency(REBUILD_LOGIN, Currency.EUR).getAmount()).isEqualTo(550L);
+        assertThat(balanceRepository.findOneByUserLoginAndCurrency(REBUILD_LOGIN, Currency.USD).getAmount()).isEqualTo(300L);
+        assertThat(balanceService.rebuild(REBUILD_LOGIN)).isEqualTo(0);
+    }
+
+    private void recordFinancialAction(String login, Action action, Long amount, Currency currency) {
+        FinancialAction financialAction = new FinancialAction();
+        financialAction.setUserLogin(login);
+        financialAction.setAction(action);
+        financialAction.setAmount(amount);
+        financialAction.setCurrency(currency);
+        financialActionRepository.saveAndFlush(financialAction);
+        balanceService.record(financialAction);
+    }
+
+    private FinancialAction createFinancialAction(Action action, Long amount) throws Exception {
+        FinancialAction financialAction = new FinancialAction();
+        financialAction.setAction(action);
+        financialAction.setAmount(amount);
+        financialAction.setCurrency(Currency.EUR);
+        restFinancialActionMockMvc.perform(post("/api/financial-actions")
+            .contentType(TestUtil.APPLICATION_JSON_UTF8)
+            .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+            .andExpect(status().isCreated());
+        return financialActionRepository.findAll().stream()
+            .reduce((first, second) -> second)
+            .get();
+    }
+}
@@ -4,18 +4,26 @@ import com.socctrader.SocctraderApp;
 import com.socctrader.domain.Country;
 import com.socctrader.repository.CountryRepository;
 import com.socctrader.repository.search.CountrySearchRepository;
+import com.socctrader.service.NaturalIdService;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
+import com.socctrader.service.SearchOutboxService;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +62,18 @@ public class CountryResourceIntTest {
     @Inject
     private CountrySearchRepository countrySearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -69,6 +89,10 @@ public class CountryResourceIntTest {
         MockitoAnnotations.initMocks(this);
         CountryResource countryResource = new CountryResource();
         ReflectionTestUtils.setField(countryResource, "countrySearchRepository", countrySearchRepository);
+        ReflectionTestUtils.setField(countryResource, "referenceDataWriteService", referenceDataWriteService);
+        ReflectionTestUtils.setField(countryResource, "referenceDataService", referenceDataService);
+        ReflectionTestUtils.setField(countryResource, "objectMapper", jacksonMessageConverter.getObjectMapper());
+        ReflectionTestUtils.setField(countryResource, "naturalIdService", naturalIdService);
         ReflectionTestUtils.setField(countryResource, "countryRepository", countryRepository);
         this.restCountryMockMvc = MockMvcBuilders.standaloneSetup(countryResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -83,6 +107,12 @@ public class CountryResourceIntTest {
         country.setCountryName(DEFAULT_COUNTRY_NAME);
     }
 
+    @AfterTransaction
+    public void rebuildReferenceData() {
+        // The snapshot built in the test transaction holds its rolled back rows
+        referenceDataService.rebuild();
+    }
+
     @Test
     @Transactional
     public void createCountry() throws Exception {
@@ -102,7 +132,8 @@ public class CountryResourceIntTest {
         assertThat(testCountry.getCountryId()).isEqualTo(DEFAULT_COUNTRY_ID);
         assertThat(testCountry.getCountryName()).isEqualTo(DEFAULT_COUNTRY_NAME);
 
-        // Validate the Country in ElasticSearch
+        // Validate the Country in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Country countryEs = countrySearchRepository.findOne(testCountry.getId());
         assertThat(countryEs).isEqualToComparingFieldByField(testCountry);
     }
@@ -110,8 +141,9 @@ public class CountryResourceIntTest {
     @Test
     @Transactional
     public void getAllCountries() throws Exception {
-        // Initialize the database
+        // Initialize the database, and the snapshot as the commit would
         countryRepository.saveAndFlush(country);
+        referenceDataService.rebuild();
 
         // Get all the countries
         restCountryMockMvc.perform(get("/api/countries?sort=id,desc"))
@@ -145,6 +177,55 @@ public class CountryResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getCountryByCountryId() throws Exception {
+        // Initialize the database
+        countryRepository.saveAndFlush(country);
+
+        // Get the country by its external id
+        restCountryMockMvc.perform(get("/api/countries/by-country-id/{countryId}", DEFAULT_COUNTRY_ID))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.id").value(country.getId().intValue()))
+            .andExpect(jsonPath("$.countryId").value(DEFAULT_COUNTRY_ID.intValue()));
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingCountryByCountryId() throws Exception {
+        // Get the country by its external id
+        restCountryMockMvc.perform(get("/api/countries/by-country-id/{countryId}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @Transactional
+    public void getCountriesByIds() throws Exception {
+        // Initialize the database, the country is not in the snapshot yet
+        countryRepository.saveAndFlush(country);
+        String ids = country.getId() + "," + Long.MAX_VALUE + "," + country.getId();
+
+        // Get the countries, the unknown and repeated ids are skipped
+        restCountryMockMvc.perform(get("/api/countries?ids=" + ids))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(country.getId().intValue()));
+
+        // Get the countries from the snapshot
+        referenceDataService.rebuild();
+        restCountryMockMvc.perform(get("/api/countries?ids=" + ids))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].id").value(country.getId().intValue()));
+
+        // With a cursor, the request is a keyset page
+        restCountryMockMvc.perform(get("/api/countries?ids=" + ids + "&after="))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"first\"")));
+    }
+
     @Test
     @Transactional
     public void updateCountry() throws Exception {
@@ -171,7 +252,8 @@ public class CountryResourceIntTest {
         assertThat(testCountry.getCountryId()).isEqualTo(UPDATED_COUNTRY_ID);
         assertThat(testCountry.getCountryName()).isEqualTo(UPDATED_COUNTRY_NAME);
 
-        // Validate the Country in ElasticSearch
+        // Validate the Country in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Country countryEs = countrySearchRepository.findOne(testCountry.getId());
         assertThat(countryEs).isEqualToComparingFieldByField(testCountry);
     }
@@ -189,7 +271,8 @@ public class CountryResourceIntTest {
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        // Validate ElasticSearch is empty
+        // Validate ElasticSearch is empty, once the outbox is relayed
+        searchOutboxService.drain();
         boolean countryExistsInEs = countrySearchRepository.exists(country.getId());
         assertThat(countryExistsInEs).isFalse();
 
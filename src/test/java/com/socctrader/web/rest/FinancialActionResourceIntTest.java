@@ -1,30 +1,60 @@
 package com.socctrader.web.rest;
 
 import com.socctrader.SocctraderApp;
+import com.socctrader.config.Constants;
 import com.socctrader.domain.FinancialAction;
+import com.socctrader.domain.Money;
 import com.socctrader.repository.FinancialActionRepository;
 import com.socctrader.repository.search.FinancialActionSearchRepository;
+import com.socctrader.service.BalanceService;
+import com.socctrader.service.FinancialActionBulkService;
+import com.socctrader.service.FinancialActionExportService;
+import com.socctrader.service.FinancialActionJournalService;
+import com.socctrader.service.FinancialActionRollupService;
+import com.socctrader.service.FinancialActionService;
+import com.socctrader.service.FundsReservationService;
+import com.socctrader.service.IdempotencyService;
+import com.socctrader.service.SearchFacetService;
+import com.socctrader.service.SearchOutboxService;
+import com.socctrader.web.rest.util.PaginationUtil;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalToIgnoringCase;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -51,8 +81,8 @@ public class FinancialActionResourceIntTest {
     private static final Action DEFAULT_ACTION = Action.DEPOSIT;
     private static final Action UPDATED_ACTION = Action.WITHDRAW;
 
-    private static final Double DEFAULT_AMOUNT = 1D;
-    private static final Double UPDATED_AMOUNT = 2D;
+    private static final Long DEFAULT_AMOUNT = 100L;
+    private static final Long UPDATED_AMOUNT = 250L;
 
     private static final Currency DEFAULT_CURRENCY = Currency.EUR;
     private static final Currency UPDATED_CURRENCY = Currency.USD;
@@ -63,6 +93,36 @@ public class FinancialActionResourceIntTest {
     @Inject
     private FinancialActionSearchRepository financialActionSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private BalanceService balanceService;
+
+    @Inject
+    private FinancialActionService financialActionService;
+
+    @Inject
+    private FinancialActionBulkService financialActionBulkService;
+
+    @Inject
+    private FinancialActionExportService financialActionExportService;
+
+    @Inject
+    private FinancialActionJournalService financialActionJournalService;
+
+    @Inject
+    private IdempotencyService idempotencyService;
+
+    @Inject
+    private FundsReservationService fundsReservationService;
+
+    @Inject
+    private FinancialActionRollupService financialActionRollupService;
+
+    @Inject
+    private SearchFacetService searchFacetService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -79,6 +139,13 @@ public class FinancialActionResourceIntTest {
         FinancialActionResource financialActionResource = new FinancialActionResource();
         ReflectionTestUtils.setField(financialActionResource, "financialActionSearchRepository", financialActionSearchRepository);
         ReflectionTestUtils.setField(financialActionResource, "financialActionRepository", financialActionRepository);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionService", financialActionService);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionBulkService", financialActionBulkService);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionExportService", financialActionExportService);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionJournalService", financialActionJournalService);
+        ReflectionTestUtils.setField(financialActionResource, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(financialActionResource, "financialActionRollupService", financialActionRollupService);
+        ReflectionTestUtils.setField(financialActionResource, "searchFacetService", searchFacetService);
         this.restFinancialActionMockMvc = MockMvcBuilders.standaloneSetup(financialActionResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
@@ -115,28 +182,267 @@ public class FinancialActionResourceIntTest {
         assertThat(testFinancialAction.getAmount()).isEqualTo(DEFAULT_AMOUNT);
         assertThat(testFinancialAction.getCurrency()).isEqualTo(DEFAULT_CURRENCY);
 
-        // Validate the FinancialAction in ElasticSearch
+        // Validate the FinancialAction in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         FinancialAction financialActionEs = financialActionSearchRepository.findOne(testFinancialAction.getId());
         assertThat(financialActionEs).isEqualToComparingFieldByField(testFinancialAction);
     }
 
+    @Test
+    @Transactional
+    public void createFinancialActionWithIdempotencyKey() throws Exception {
+        int databaseSizeBeforeCreate = financialActionRepository.findAll().size();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        MvcResult first = restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andReturn();
+
+        // The retry gets the stored response back, without creating another financialAction
+        restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andExpect(content().string(first.getResponse().getContentAsString()));
+
+        assertThat(financialActionRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+    }
+
+    @Test
+    @Transactional
+    public void createFinancialActionWithReusedIdempotencyKey() throws Exception {
+        int databaseSizeBeforeCreate = financialActionRepository.findAll().size();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                .andExpect(status().isCreated());
+
+        // The same key with another body is rejected
+        financialAction.setAmount(UPDATED_AMOUNT);
+        restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertThat(financialActionRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+    }
+
+    @Test
+    @Transactional
+    public void createFinancialActionWithIdempotencyKeyInFlight() throws Exception {
+        int databaseSizeBeforeCreate = financialActionRepository.findAll().size();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        // The first request with the key runs on another thread, until it is released
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<FinancialAction>> first = executor.submit(() ->
+                idempotencyService.execute("financialAction", idempotencyKey, financialAction, () -> {
+                    started.countDown();
+                    released.await();
+                    return ResponseEntity.status(HttpStatus.CREATED).body(financialAction);
+                }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            executor.submit(() -> {
+                Thread.sleep(200);
+                released.countDown();
+                return null;
+            });
+
+            // The duplicate waits for the first request, and gets its response without running
+            restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                    .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                    .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"));
+
+            assertThat(first.get(10, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        } finally {
+            released.countDown();
+            executor.shutdownNow();
+        }
+        assertThat(financialActionRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    public void createFinancialActionsInBulk() throws Exception {
+        int databaseSizeBeforeCreate = financialActionRepository.findAll().size();
+
+        // The second item already has an ID and must be rejected without failing the first one
+        FinancialAction invalidFinancialAction = new FinancialAction();
+        invalidFinancialAction.setId(Long.MAX_VALUE);
+
+        restFinancialActionMockMvc.perform(post("/api/financial-actions/_bulk")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(Arrays.asList(financialAction, invalidFinancialAction))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[0].status").value(201))
+                .andExpect(jsonPath("$.[1].status").value(400));
+
+        // Validate the FinancialAction in the database
+        List<FinancialAction> financialActions = financialActionRepository.findAll();
+        assertThat(financialActions).hasSize(databaseSizeBeforeCreate + 1);
+        FinancialAction testFinancialAction = financialActions.get(financialActions.size() - 1);
+        assertThat(testFinancialAction.getAmount()).isEqualTo(DEFAULT_AMOUNT);
+
+        // Validate the FinancialAction in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
+        assertThat(financialActionSearchRepository.exists(testFinancialAction.getId())).isTrue();
+        financialActionRepository.delete(testFinancialAction);
+    }
+
+    @Test
+    @Transactional
+    public void createWithdrawalOfReservedFunds() throws Exception {
+        FinancialAction deposit = new FinancialAction();
+        deposit.setAction(Action.DEPOSIT);
+        deposit.setAmount(DEFAULT_AMOUNT);
+        deposit.setCurrency(DEFAULT_CURRENCY);
+        deposit.setUserLogin(Constants.SYSTEM_ACCOUNT);
+        balanceService.record(deposit);
+
+        // A journaled withdrawal, acknowledged but not applied yet, holds more than the balance
+        FinancialAction journaled = new FinancialAction();
+        journaled.setAction(Action.WITHDRAW);
+        journaled.setAmount(Long.MAX_VALUE / 2);
+        journaled.setCurrency(DEFAULT_CURRENCY);
+        journaled.setUserLogin(Constants.SYSTEM_ACCOUNT);
+        String reservation = "createWithdrawalOfReservedFunds";
+        fundsReservationService.reserve(reservation, "test", journaled);
+
+        financialAction.setAction(Action.WITHDRAW);
+        financialAction.setAmount(20L);
+        try {
+            restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                    .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                    .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            fundsReservationService.release(Collections.singleton(reservation));
+        }
+
+        restFinancialActionMockMvc.perform(post("/api/financial-actions")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @Transactional
+    public void journalFinancialActionWhenJournalDisabled() throws Exception {
+        // The journal is disabled in the test configuration
+        restFinancialActionMockMvc.perform(post("/api/financial-actions/_journal")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(financialAction)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getAllFinancialActions() throws Exception {
         // Initialize the database
         financialActionRepository.saveAndFlush(financialAction);
 
-        // Get all the financialActions
-        restFinancialActionMockMvc.perform(get("/api/financial-actions?sort=id,desc"))
+        // Get the page of financialActions starting with it
+        restFinancialActionMockMvc.perform(get("/api/financial-actions?after={cursor}",
+                PaginationUtil.encodeCursor(financialAction.getId() - 1)))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.[*].id").value(hasItem(financialAction.getId().intValue())))
                 .andExpect(jsonPath("$.[*].actionId").value(hasItem(DEFAULT_ACTION_ID.intValue())))
                 .andExpect(jsonPath("$.[*].action").value(hasItem(DEFAULT_ACTION.toString())))
-                .andExpect(jsonPath("$.[*].amount").value(hasItem(DEFAULT_AMOUNT.doubleValue())))
+                .andExpect(jsonPath("$.[*].amount").value(hasItem(Money.toBigDecimal(DEFAULT_AMOUNT).doubleValue())))
                 .andExpect(jsonPath("$.[*].currency").value(hasItem(DEFAULT_CURRENCY.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getFirstPageOfFinancialActions() throws Exception {
+        // Initialize the database with two financialActions
+        financialActionRepository.saveAndFlush(financialAction);
+        FinancialAction nextFinancialAction = new FinancialAction();
+        nextFinancialAction.setActionId(UPDATED_ACTION_ID);
+        nextFinancialAction.setAction(DEFAULT_ACTION);
+        nextFinancialAction.setAmount(UPDATED_AMOUNT);
+        nextFinancialAction.setCurrency(DEFAULT_CURRENCY);
+        financialActionRepository.saveAndFlush(nextFinancialAction);
+
+        // The plain listing is the first keyset page, linking to the next one
+        restFinancialActionMockMvc.perform(get("/api/financial-actions?size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")))
+            .andExpect(header().doesNotExist("X-Total-Count"));
+    }
+
+    @Test
+    @Transactional
+    public void exportFinancialActions() throws Exception {
+        // Initialize the database
+        financialActionRepository.saveAndFlush(financialAction);
+        String line = "{\"id\":" + financialAction.getId();
+
+        // Export the financialActions, with and without a matching filter
+        restFinancialActionMockMvc.perform(get("/api/financial-actions/_export?fromId={id}&currency={currency}",
+                financialAction.getId(), DEFAULT_CURRENCY))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString(line)));
+        restFinancialActionMockMvc.perform(get("/api/financial-actions/_export?currency={currency}", UPDATED_CURRENCY))
+            .andExpect(status().isOk())
+            .andExpect(content().string(not(containsString(line))));
+        restFinancialActionMockMvc.perform(get("/api/financial-actions/_export?format=CSV&fromId={id}", financialAction.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString(financialAction.getId() + "," + DEFAULT_ACTION_ID + "," + DEFAULT_ACTION)));
+    }
+
+    @Test
+    public void getFinancialActionSummary() throws Exception {
+        // Initialize the database on a day of its own, committed since the rebuild sums the days in other threads
+        LocalDate actionDate = LocalDate.of(2000, 1, 15);
+        financialAction.setActionDate(actionDate);
+        financialActionRepository.saveAndFlush(financialAction);
+        financialActionRollupService.refresh();
+
+        // Get the daily and monthly summaries
+        restFinancialActionMockMvc.perform(get("/api/financial-actions/summary?from={from}&to={to}&currency={currency}",
+                actionDate, actionDate, DEFAULT_CURRENCY))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].periodStart").value(actionDate.toString()))
+            .andExpect(jsonPath("$.[0].action").value(DEFAULT_ACTION.toString()))
+            .andExpect(jsonPath("$.[0].actionCount").value(1))
+            .andExpect(jsonPath("$.[0].amount").value(Money.toBigDecimal(DEFAULT_AMOUNT).doubleValue()));
+        restFinancialActionMockMvc.perform(get("/api/financial-actions/summary?granularity=MONTH&from={from}&to={to}",
+                actionDate.withDayOfMonth(1), actionDate))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].periodStart").value(actionDate.withDayOfMonth(1).toString()))
+            .andExpect(jsonPath("$.[0].actionCount").value(1));
+
+        // A rebuild gives the same rollups back
+        restFinancialActionMockMvc.perform(post("/api/financial-actions/summary/_rebuild?month=2000-01"))
+            .andExpect(status().isOk());
+        restFinancialActionMockMvc.perform(get("/api/financial-actions/summary?from={from}&to={to}", actionDate, actionDate))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].actionCount").value(1));
+        restFinancialActionMockMvc.perform(post("/api/financial-actions/summary/_rebuild?month=january"))
+            .andExpect(status().isBadRequest());
+
+        financialActionRepository.delete(financialAction);
+        financialActionRollupService.rebuildMonth(YearMonth.from(actionDate));
+    }
+
     @Test
     @Transactional
     public void getFinancialAction() throws Exception {
@@ -150,7 +456,7 @@ public class FinancialActionResourceIntTest {
             .andExpect(jsonPath("$.id").value(financialAction.getId().intValue()))
             .andExpect(jsonPath("$.actionId").value(DEFAULT_ACTION_ID.intValue()))
             .andExpect(jsonPath("$.action").value(DEFAULT_ACTION.toString()))
-            .andExpect(jsonPath("$.amount").value(DEFAULT_AMOUNT.doubleValue()))
+            .andExpect(jsonPath("$.amount").value(Money.toBigDecimal(DEFAULT_AMOUNT).doubleValue()))
             .andExpect(jsonPath("$.currency").value(DEFAULT_CURRENCY.toString()));
     }
 
@@ -165,11 +471,20 @@ public class FinancialActionResourceIntTest {
     @Test
     @Transactional
     public void updateFinancialAction() throws Exception {
-        // Initialize the database
+        // Initialize the database, with the financialAction in the balance it is reversed from
         financialActionRepository.saveAndFlush(financialAction);
+        balanceService.record(financialAction);
         financialActionSearchRepository.save(financialAction);
         int databaseSizeBeforeUpdate = financialActionRepository.findAll().size();
 
+        // Fund the withdrawal the financialAction is updated to
+        FinancialAction deposit = new FinancialAction();
+        deposit.setAction(Action.DEPOSIT);
+        deposit.setAmount(UPDATED_AMOUNT);
+        deposit.setCurrency(UPDATED_CURRENCY);
+        deposit.setUserLogin(Constants.SYSTEM_ACCOUNT);
+        balanceService.record(deposit);
+
         // Update the financialAction
         FinancialAction updatedFinancialAction = new FinancialAction();
         updatedFinancialAction.setId(financialAction.getId());
@@ -192,7 +507,8 @@ public class FinancialActionResourceIntTest {
         assertThat(testFinancialAction.getAmount()).isEqualTo(UPDATED_AMOUNT);
         assertThat(testFinancialAction.getCurrency()).isEqualTo(UPDATED_CURRENCY);
 
-        // Validate the FinancialAction in ElasticSearch
+        // Validate the FinancialAction in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         FinancialAction financialActionEs = financialActionSearchRepository.findOne(testFinancialAction.getId());
         assertThat(financialActionEs).isEqualToComparingFieldByField(testFinancialAction);
     }
@@ -200,8 +516,9 @@ public class FinancialActionResourceIntTest {
     @Test
     @Transactional
     public void deleteFinancialAction() throws Exception {
-        // Initialize the database
+        // Initialize the database, with the financialAction in the balance it is reversed from
         financialActionRepository.saveAndFlush(financialAction);
+        balanceService.record(financialAction);
         financialActionSearchRepository.save(financialAction);
         int databaseSizeBeforeDelete = financialActionRepository.findAll().size();
 
@@ -210,7 +527,8 @@ public class FinancialActionResourceIntTest {
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        // Validate ElasticSearch is empty
+        // Validate ElasticSearch is empty, once the outbox is relayed
+        searchOutboxService.drain();
         boolean financialActionExistsInEs = financialActionSearchRepository.exists(financialAction.getId());
         assertThat(financialActionExistsInEs).isFalse();
 
@@ -233,7 +551,34 @@ public class FinancialActionResourceIntTest {
             .andExpect(jsonPath("$.[*].id").value(hasItem(financialAction.getId().intValue())))
             .andExpect(jsonPath("$.[*].actionId").value(hasItem(DEFAULT_ACTION_ID.intValue())))
             .andExpect(jsonPath("$.[*].action").value(hasItem(DEFAULT_ACTION.toString())))
-            .andExpect(jsonPath("$.[*].amount").value(hasItem(DEFAULT_AMOUNT.doubleValue())))
+            .andExpect(jsonPath("$.[*].amount").value(hasItem(Money.toBigDecimal(DEFAULT_AMOUNT).doubleValue())))
             .andExpect(jsonPath("$.[*].currency").value(hasItem(DEFAULT_CURRENCY.toString())));
     }
+
+    @Test
+    @Transactional
+    public void getFinancialActionFacets() throws Exception {
+        // Initialize the database with two financialActions of the same currency
+        financialActionRepository.saveAndFlush(financialAction);
+        financialActionSearchRepository.save(financialAction);
+        FinancialAction otherFinancialAction = new FinancialAction();
+        otherFinancialAction.setActionId(DEFAULT_ACTION_ID);
+        otherFinancialAction.setAction(DEFAULT_ACTION);
+        otherFinancialAction.setAmount(DEFAULT_AMOUNT);
+        otherFinancialAction.setCurrency(DEFAULT_CURRENCY);
+        financialActionRepository.saveAndFlush(otherFinancialAction);
+        financialActionSearchRepository.save(otherFinancialAction);
+
+        // Get the facets: only the buckets are returned
+        restFinancialActionMockMvc.perform(get("/api/_search/financial-actions/facets?query=actionId:" + DEFAULT_ACTION_ID))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.total").value(2))
+            .andExpect(jsonPath("$.facets.currency.length()").value(1))
+            .andExpect(jsonPath("$.facets.currency[0].key").value(equalToIgnoringCase(DEFAULT_CURRENCY.toString())))
+            .andExpect(jsonPath("$.facets.currency[0].count").value(2))
+            .andExpect(jsonPath("$.facets.currency[0].sum").value(Money.toBigDecimal(2 * DEFAULT_AMOUNT).doubleValue()))
+            .andExpect(jsonPath("$.facets.action[0].key").value(equalToIgnoringCase(DEFAULT_ACTION.toString())))
+            .andExpect(jsonPath("$.facets.action[0].count").value(2));
+    }
 }
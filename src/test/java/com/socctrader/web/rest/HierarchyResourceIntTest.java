@@ -0,0 +1,127 @@
+package com.socctrader.web.rest;
+
+import com.socctrader.SocctraderApp;
+import com.socctrader.domain.Country;
+import com.socctrader.domain.Region;
+import com.socctrader.repository.CountryRepository;
+import com.socctrader.repository.RegionRepository;
+import com.socctrader.service.ReferenceDataService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the HierarchyResource REST controller.
+ *
+ * @see HierarchyResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = SocctraderApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class HierarchyResourceIntTest {
+
+    @Inject
+    private RegionRepository regionRepository;
+
+    @Inject
+    private CountryRepository countryRepository;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    private MockMvc restHierarchyMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        HierarchyResource hierarchyResource = new HierarchyResource();
+        ReflectionTestUtils.setField(hierarchyResource, "referenceDataService", referenceDataService);
+        this.restHierarchyMockMvc = MockMvcBuilders.standaloneSetup(hierarchyResource).build();
+    }
+
+    @AfterTransaction
+    public void rebuildReferenceData() {
+        // The snapshot built in the test transaction holds its rolled back rows
+        referenceDataService.rebuild();
+    }
+
+    @Test
+    @Transactional
+    public void getHierarchy() throws Exception {
+        // Initialize the database with a country in its region, and the snapshot as the commit would
+        Region region = new Region();
+        region.setRegionName("AAAAA");
+        regionRepository.saveAndFlush(region);
+        Country country = new Country();
+        country.setCountryName("BBBBB");
+        country.setRegion(region);
+        countryRepository.saveAndFlush(country);
+        referenceDataService.rebuild();
+        String etag = referenceDataService.getSnapshot().getHierarchy().getEtag();
+
+        // The country is nested in its region
+        restHierarchyMockMvc.perform(get("/api/hierarchy"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(content().string(containsString("{\"id\":" + region.getId() + ",\"regionId\":null,\"regionName\":\"AAAAA\"," +
+                "\"countries\":[{\"id\":" + country.getId() + ",\"countryId\":null,\"countryName\":\"BBBBB\",\"locations\":[]}]}")));
+
+        // The gzipped bytes hold the same hierarchy
+        MvcResult result = restHierarchyMockMvc.perform(get("/api/hierarchy").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            byte[] json = new byte[referenceDataService.getSnapshot().getHierarchy().getJson().length];
+            int read = 0;
+            while (read < json.length) {
+                read += in.read(json, read, json.length - read);
+            }
+            assertThat(new String(json, StandardCharsets.UTF_8)).contains("\"countryName\":\"BBBBB\"");
+        }
+
+        // A client refusing gzip gets the plain JSON
+        restHierarchyMockMvc.perform(get("/api/hierarchy").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andExpect(content().string(containsString("\"countryName\":\"BBBBB\"")));
+        restHierarchyMockMvc.perform(get("/api/hierarchy").header(HttpHeaders.ACCEPT_ENCODING, "*;q=0.5, gzip;q=0.0"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+
+        // A client which has the hierarchy gets no body
+        restHierarchyMockMvc.perform(get("/api/hierarchy").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        // A change of the reference data changes the ETag
+        country.setCountryName("CCCCC");
+        countryRepository.saveAndFlush(country);
+        referenceDataService.rebuild();
+        restHierarchyMockMvc.perform(get("/api/hierarchy").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("\"countryName\":\"CCCCC\"")));
+    }
+}
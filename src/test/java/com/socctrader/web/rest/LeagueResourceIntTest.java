@@ -4,11 +4,16 @@ import com.socctrader.SocctraderApp;
 import com.socctrader.domain.League;
 import com.socctrader.repository.LeagueRepository;
 import com.socctrader.repository.search.LeagueSearchRepository;
+import com.socctrader.service.NaturalIdService;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
+import com.socctrader.service.SearchOutboxService;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
@@ -16,6 +21,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +60,18 @@ public class LeagueResourceIntTest {
     @Inject
     private LeagueSearchRepository leagueSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -69,6 +87,10 @@ public class LeagueResourceIntTest {
         MockitoAnnotations.initMocks(this);
         LeagueResource leagueResource = new LeagueResource();
         ReflectionTestUtils.setField(leagueResource, "leagueSearchRepository", leagueSearchRepository);
+        ReflectionTestUtils.setField(leagueResource, "referenceDataWriteService", referenceDataWriteService);
+        ReflectionTestUtils.setField(leagueResource, "referenceDataService", referenceDataService);
+        ReflectionTestUtils.setField(leagueResource, "objectMapper", jacksonMessageConverter.getObjectMapper());
+        ReflectionTestUtils.setField(leagueResource, "naturalIdService", naturalIdService);
         ReflectionTestUtils.setField(leagueResource, "leagueRepository", leagueRepository);
         this.restLeagueMockMvc = MockMvcBuilders.standaloneSetup(leagueResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -83,6 +105,12 @@ public class LeagueResourceIntTest {
         league.setLeagueName(DEFAULT_LEAGUE_NAME);
     }
 
+    @AfterTransaction
+    public void rebuildReferenceData() {
+        // The snapshot built in the test transaction holds its rolled back rows
+        referenceDataService.rebuild();
+    }
+
     @Test
     @Transactional
     public void createLeague() throws Exception {
@@ -102,7 +130,8 @@ public class LeagueResourceIntTest {
         assertThat(testLeague.getLeagueId()).isEqualTo(DEFAULT_LEAGUE_ID);
         assertThat(testLeague.getLeagueName()).isEqualTo(DEFAULT_LEAGUE_NAME);
 
-        // Validate the League in ElasticSearch
+        // Validate the League in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         League leagueEs = leagueSearchRepository.findOne(testLeague.getId());
         assertThat(leagueEs).isEqualToComparingFieldByField(testLeague);
     }
@@ -128,8 +157,9 @@ public class LeagueResourceIntTest {
     @Test
     @Transactional
     public void getAllLeagues() throws Exception {
-        // Initialize the database
+        // Initialize the database, and the snapshot as the commit would
         leagueRepository.saveAndFlush(league);
+        referenceDataService.rebuild();
 
         // Get all the leagues
         restLeagueMockMvc.perform(get("/api/leagues?sort=id,desc"))
@@ -163,6 +193,28 @@ public class LeagueResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getLeagueByLeagueId() throws Exception {
+        // Initialize the database
+        leagueRepository.saveAndFlush(league);
+
+        // Get the league by its external id
+        restLeagueMockMvc.perform(get("/api/leagues/by-league-id/{leagueId}", DEFAULT_LEAGUE_ID))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.id").value(league.getId().intValue()))
+            .andExpect(jsonPath("$.leagueId").value(DEFAULT_LEAGUE_ID.intValue()));
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingLeagueByLeagueId() throws Exception {
+        // Get the league by its external id
+        restLeagueMockMvc.perform(get("/api/leagues/by-league-id/{leagueId}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void updateLeague() throws Exception {
@@ -189,7 +241,8 @@ public class LeagueResourceIntTest {
         assertThat(testLeague.getLeagueId()).isEqualTo(UPDATED_LEAGUE_ID);
         assertThat(testLeague.getLeagueName()).isEqualTo(UPDATED_LEAGUE_NAME);
 
-        // Validate the League in ElasticSearch
+        // Validate the League in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         League leagueEs = leagueSearchRepository.findOne(testLeague.getId());
         assertThat(leagueEs).isEqualToComparingFieldByField(testLeague);
     }
@@ -207,7 +260,8 @@ public class LeagueResourceIntTest {
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        // Validate ElasticSearch is empty
+        // Validate ElasticSearch is empty, once the outbox is relayed
+        searchOutboxService.drain();
         boolean leagueExistsInEs = leagueSearchRepository.exists(league.getId());
         assertThat(leagueExistsInEs).isFalse();
 
@@ -4,11 +4,15 @@ import com.socctrader.SocctraderApp;
 import com.socctrader.domain.Location;
 import com.socctrader.repository.LocationRepository;
 import com.socctrader.repository.search.LocationSearchRepository;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
+import com.socctrader.service.SearchOutboxService;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
@@ -16,6 +20,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +59,15 @@ public class LocationResourceIntTest {
     @Inject
     private LocationSearchRepository locationSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -69,6 +83,9 @@ public class LocationResourceIntTest {
         MockitoAnnotations.initMocks(this);
         LocationResource locationResource = new LocationResource();
         ReflectionTestUtils.setField(locationResource, "locationSearchRepository", locationSearchRepository);
+        ReflectionTestUtils.setField(locationResource, "referenceDataWriteService", referenceDataWriteService);
+        ReflectionTestUtils.setField(locationResource, "referenceDataService", referenceDataService);
+        ReflectionTestUtils.setField(locationResource, "objectMapper", jacksonMessageConverter.getObjectMapper());
         ReflectionTestUtils.setField(locationResource, "locationRepository", locationRepository);
         this.restLocationMockMvc = MockMvcBuilders.standaloneSetup(locationResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -83,6 +100,12 @@ public class LocationResourceIntTest {
         location.setCity(DEFAULT_CITY);
     }
 
+    @AfterTransaction
+    public void rebuildReferenceData() {
+        // The snapshot built in the test transaction holds its rolled back rows
+        referenceDataService.rebuild();
+    }
+
     @Test
     @Transactional
     public void createLocation() throws Exception {
@@ -102,7 +125,8 @@ public class LocationResourceIntTest {
         assertThat(testLocation.getLocationId()).isEqualTo(DEFAULT_LOCATION_ID);
         assertThat(testLocation.getCity()).isEqualTo(DEFAULT_CITY);
 
-        // Validate the Location in ElasticSearch
+        // Validate the Location in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Location locationEs = locationSearchRepository.findOne(testLocation.getId());
         assertThat(locationEs).isEqualToComparingFieldByField(testLocation);
     }
@@ -110,8 +134,9 @@ public class LocationResourceIntTest {
     @Test
     @Transactional
     public void getAllLocations() throws Exception {
-        // Initialize the database
+        // Initialize the database, and the snapshot as the commit would
         locationRepository.saveAndFlush(location);
+        referenceDataService.rebuild();
 
         // Get all the locations
         restLocationMockMvc.perform(get("/api/locations?sort=id,desc"))
@@ -171,7 +196,8 @@ public class LocationResourceIntTest {
         assertThat(testLocation.getLocationId()).isEqualTo(UPDATED_LOCATION_ID);
         assertThat(testLocation.getCity()).isEqualTo(UPDATED_CITY);
 
-        // Validate the Location in ElasticSearch
+        // Validate the Location in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Location locationEs = locationSearchRepository.findOne(testLocation.getId());
         assertThat(locationEs).isEqualToComparingFieldByField(testLocation);
     }
@@ -189,7 +215,8 @@ public class LocationResourceIntTest {
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        // Validate ElasticSearch is empty
+        // Validate ElasticSearch is empty, once the outbox is relayed
+        searchOutboxService.drain();
         boolean locationExistsInEs = locationSearchRepository.exists(location.getId());
         assertThat(locationExistsInEs).isFalse();
 
@@ -4,11 +4,15 @@ import com.socctrader.SocctraderApp;
 import com.socctrader.domain.Region;
 import com.socctrader.repository.RegionRepository;
 import com.socctrader.repository.search.RegionSearchRepository;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
+import com.socctrader.service.SearchOutboxService;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
@@ -16,6 +20,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +59,15 @@ public class RegionResourceIntTest {
     @Inject
     private RegionSearchRepository regionSearchRepository;
 
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -69,6 +83,9 @@ public class RegionResourceIntTest {
         MockitoAnnotations.initMocks(this);
         RegionResource regionResource = new RegionResource();
         ReflectionTestUtils.setField(regionResource, "regionSearchRepository", regionSearchRepository);
+        ReflectionTestUtils.setField(regionResource, "referenceDataWriteService", referenceDataWriteService);
+        ReflectionTestUtils.setField(regionResource, "referenceDataService", referenceDataService);
+        ReflectionTestUtils.setField(regionResource, "objectMapper", jacksonMessageConverter.getObjectMapper());
         ReflectionTestUtils.setField(regionResource, "regionRepository", regionRepository);
         this.restRegionMockMvc = MockMvcBuilders.standaloneSetup(regionResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
@@ -83,6 +100,12 @@ public class RegionResourceIntTest {
         region.setRegionName(DEFAULT_REGION_NAME);
     }
 
+    @AfterTransaction
+    public void rebuildReferenceData() {
+        // The snapshot built in the test transaction holds its rolled back rows
+        referenceDataService.rebuild();
+    }
+
     @Test
     @Transactional
     public void createRegion() throws Exception {
@@ -102,7 +125,8 @@ public class RegionResourceIntTest {
         assertThat(testRegion.getRegionId()).isEqualTo(DEFAULT_REGION_ID);
         assertThat(testRegion.getRegionName()).isEqualTo(DEFAULT_REGION_NAME);
 
-        // Validate the Region in ElasticSearch
+        // Validate the Region in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Region regionEs = regionSearchRepository.findOne(testRegion.getId());
         assertThat(regionEs).isEqualToComparingFieldByField(testRegion);
     }
@@ -110,8 +134,9 @@ public class RegionResourceIntTest {
     @Test
     @Transactional
     public void getAllRegions() throws Exception {
-        // Initialize the database
+        // Initialize the database, and the snapshot as the commit would
         regionRepository.saveAndFlush(region);
+        referenceDataService.rebuild();
 
         // Get all the regions
         restRegionMockMvc.perform(get("/api/regions?sort=id,desc"))
@@ -171,11 +196,39 @@ public class RegionResourceIntTest {
         assertThat(testRegion.getRegionId()).isEqualTo(UPDATED_REGION_ID);
         assertThat(testRegion.getRegionName()).isEqualTo(UPDATED_REGION_NAME);
 
-        // Validate the Region in ElasticSearch
+        // Validate the Region in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Region regionEs = regionSearchRepository.findOne(testRegion.getId());
         assertThat(regionEs).isEqualToComparingFieldByField(testRegion);
     }
 
+    @Test
+    public void getRegionAfterWritingIt() throws Exception {
+        // Committed, unlike in the transactional tests
+        regionRepository.saveAndFlush(region);
+        referenceDataService.rebuild();
+
+        Region updatedRegion = new Region();
+        updatedRegion.setId(region.getId());
+        updatedRegion.setRegionId(UPDATED_REGION_ID);
+        updatedRegion.setRegionName(UPDATED_REGION_NAME);
+        restRegionMockMvc.perform(put("/api/regions")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(updatedRegion)))
+                .andExpect(status().isOk());
+
+        // The snapshot of this member is rebuilt before the write returns
+        restRegionMockMvc.perform(get("/api/regions/{id}", region.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.regionName").value(UPDATED_REGION_NAME));
+
+        restRegionMockMvc.perform(delete("/api/regions/{id}", region.getId())
+                .accept(TestUtil.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+        restRegionMockMvc.perform(get("/api/regions/{id}", region.getId()))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void deleteRegion() throws Exception {
@@ -189,7 +242,8 @@ public class RegionResourceIntTest {
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        // Validate ElasticSearch is empty
+        // Validate ElasticSearch is empty, once the outbox is relayed
+        searchOutboxService.drain();
         boolean regionExistsInEs = regionSearchRepository.exists(region.getId());
         assertThat(regionExistsInEs).isFalse();
 
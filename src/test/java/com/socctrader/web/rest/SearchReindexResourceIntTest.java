@@ -0,0 +1,97 @@
+package com.socctrader.web.rest;
+
+import com.socctrader.SocctraderApp;
+import com.socctrader.domain.Team;
+import com.socctrader.repository.TeamRepository;
+import com.socctrader.repository.search.TeamSearchRepository;
+import com.socctrader.service.SearchReindexService;
+import com.socctrader.web.rest.dto.SearchIndexProgressDTO;
+import com.socctrader.web.rest.dto.SearchReindexDTO;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.elasticsearch.core.ElasticsearchTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the SearchReindexResource REST controller.
+ *
+ * @see SearchReindexResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = SocctraderApp.class)
+@WebAppConfiguration
+@IntegrationTest
+public class SearchReindexResourceIntTest {
+
+    @Inject
+    private SearchReindexService searchReindexService;
+
+    @Inject
+    private TeamRepository teamRepository;
+
+    @Inject
+    private TeamSearchRepository teamSearchRepository;
+
+    @Inject
+    private ElasticsearchTemplate elasticsearchTemplate;
+
+    private MockMvc restSearchReindexMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        SearchReindexResource searchReindexResource = new SearchReindexResource();
+        ReflectionTestUtils.setField(searchReindexResource, "searchReindexService", searchReindexService);
+        this.restSearchReindexMockMvc = MockMvcBuilders.standaloneSetup(searchReindexResource).build();
+    }
+
+    @Test
+    public void reindex() throws Exception {
+        // A team missing from the index, committed so that the reindex threads can read it
+        Team team = new Team();
+        team.setTeamName("AAAAA");
+        teamRepository.saveAndFlush(team);
+        teamSearchRepository.delete(team.getId());
+
+        restSearchReindexMockMvc.perform(post("/api/search-indices/_reindex"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.state").value(SearchReindexDTO.State.RUNNING.toString()));
+
+        SearchReindexDTO status = searchReindexService.getStatus();
+        for (int i = 0; i < 300 && status.getState() == SearchReindexDTO.State.RUNNING; i++) {
+            Thread.sleep(100);
+            status = searchReindexService.getStatus();
+        }
+        assertThat(status.getState()).isEqualTo(SearchReindexDTO.State.COMPLETED);
+        SearchIndexProgressDTO teamProgress = null;
+        for (SearchIndexProgressDTO progress : status.getIndices()) {
+            assertThat(progress.isSwapped()).isTrue();
+            assertThat(progress.getIndexed()).isEqualTo(progress.getTotal());
+            if (progress.getEntity().equals(Team.class.getSimpleName())) {
+                teamProgress = progress;
+            }
+        }
+
+        // The team index is now an alias of a versioned index containing the team
+        assertThat(teamProgress).isNotNull();
+        assertThat(elasticsearchTemplate.getClient().admin().indices().prepareGetAliases(teamProgress.getAlias()).get()
+            .getAliases().containsKey(teamProgress.getIndex())).isTrue();
+        assertThat(teamSearchRepository.exists(team.getId())).isTrue();
+
+        teamRepository.delete(team);
+        teamSearchRepository.delete(team.getId());
+    }
+}
@@ -1,23 +1,46 @@
 package com.socctrader.web.rest;
 
+import com.codahale.metrics.MetricRegistry;
 import com.socctrader.SocctraderApp;
+import com.socctrader.domain.Country;
+import com.socctrader.domain.League;
+import com.socctrader.domain.Location;
+import com.socctrader.domain.Region;
 import com.socctrader.domain.Team;
+import com.socctrader.repository.CountryRepository;
+import com.socctrader.repository.LeagueRepository;
+import com.socctrader.repository.LocationRepository;
+import com.socctrader.repository.RegionRepository;
 import com.socctrader.repository.TeamRepository;
+import com.socctrader.repository.search.TeamSearchDocumentRepository;
 import com.socctrader.repository.search.TeamSearchRepository;
-import com.socctrader.web.rest.dto.TeamDTO;
+import com.socctrader.service.dto.TeamDTO;
 import com.socctrader.web.rest.mapper.TeamMapper;
+import com.socctrader.web.rest.util.PaginationUtil;
+import com.socctrader.service.SearchFacetService;
+import com.socctrader.service.NaturalIdService;
+import com.socctrader.service.ReferenceDataService;
+import com.socctrader.service.ReferenceDataWriteService;
+import com.socctrader.service.SearchOutboxService;
+import com.socctrader.service.SearchResultCacheService;
+import com.socctrader.service.TeamSuggestService;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
@@ -59,6 +82,45 @@ public class TeamResourceIntTest {
     @Inject
     private TeamSearchRepository teamSearchRepository;
 
+    @Inject
+    private TeamSearchDocumentRepository teamSearchDocumentRepository;
+
+    @Inject
+    private RegionRepository regionRepository;
+
+    @Inject
+    private CountryRepository countryRepository;
+
+    @Inject
+    private LocationRepository locationRepository;
+
+    @Inject
+    private LeagueRepository leagueRepository;
+
+    @Inject
+    private SearchOutboxService searchOutboxService;
+
+    @Inject
+    private ReferenceDataService referenceDataService;
+
+    @Inject
+    private ReferenceDataWriteService referenceDataWriteService;
+
+    @Inject
+    private NaturalIdService naturalIdService;
+
+    @Inject
+    private SearchFacetService searchFacetService;
+
+    @Inject
+    private SearchResultCacheService searchResultCacheService;
+
+    @Inject
+    private TeamSuggestService teamSuggestService;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
     @Inject
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -74,6 +136,14 @@ public class TeamResourceIntTest {
         MockitoAnnotations.initMocks(this);
         TeamResource teamResource = new TeamResource();
         ReflectionTestUtils.setField(teamResource, "teamSearchRepository", teamSearchRepository);
+        ReflectionTestUtils.setField(teamResource, "teamSearchDocumentRepository", teamSearchDocumentRepository);
+        ReflectionTestUtils.setField(teamResource, "referenceDataWriteService", referenceDataWriteService);
+        ReflectionTestUtils.setField(teamResource, "referenceDataService", referenceDataService);
+        ReflectionTestUtils.setField(teamResource, "objectMapper", jacksonMessageConverter.getObjectMapper());
+        ReflectionTestUtils.setField(teamResource, "naturalIdService", naturalIdService);
+        ReflectionTestUtils.setField(teamResource, "searchFacetService", searchFacetService);
+        ReflectionTestUtils.setField(teamResource, "searchResultCacheService", searchResultCacheService);
+        ReflectionTestUtils.setField(teamResource, "teamSuggestService", teamSuggestService);
         ReflectionTestUtils.setField(teamResource, "teamRepository", teamRepository);
         ReflectionTestUtils.setField(teamResource, "teamMapper", teamMapper);
         this.restTeamMockMvc = MockMvcBuilders.standaloneSetup(teamResource)
@@ -84,11 +154,18 @@ public class TeamResourceIntTest {
     @Before
     public void initTest() {
         teamSearchRepository.deleteAll();
+        teamSearchDocumentRepository.deleteAll();
         team = new Team();
         team.setTeamId(DEFAULT_TEAM_ID);
         team.setTeamName(DEFAULT_TEAM_NAME);
     }
 
+    @AfterTransaction
+    public void rebuildReferenceData() {
+        // The snapshot built in the test transaction holds its rolled back rows
+        referenceDataService.rebuild();
+    }
+
     @Test
     @Transactional
     public void createTeam() throws Exception {
@@ -109,7 +186,8 @@ public class TeamResourceIntTest {
         assertThat(testTeam.getTeamId()).isEqualTo(DEFAULT_TEAM_ID);
         assertThat(testTeam.getTeamName()).isEqualTo(DEFAULT_TEAM_NAME);
 
-        // Validate the Team in ElasticSearch
+        // Validate the Team in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Team teamEs = teamSearchRepository.findOne(testTeam.getId());
         assertThat(teamEs).isEqualToComparingFieldByField(testTeam);
     }
@@ -129,6 +207,31 @@ public class TeamResourceIntTest {
                 .andExpect(jsonPath("$.[*].teamName").value(hasItem(DEFAULT_TEAM_NAME.toString())));
     }
 
+    @Test
+    @Transactional
+    public void getTeamsAfterCursor() throws Exception {
+        // Initialize the database with two teams
+        teamRepository.saveAndFlush(team);
+        Team nextTeam = new Team();
+        nextTeam.setTeamName(UPDATED_TEAM_NAME);
+        teamRepository.saveAndFlush(nextTeam);
+        referenceDataService.rebuild();
+        String cursor = PaginationUtil.encodeCursor(team.getId());
+
+        // The page after the first team starts with the second one
+        restTeamMockMvc.perform(get("/api/teams?after={cursor}&size=1", cursor))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(nextTeam.getId().intValue()))
+            .andExpect(header().doesNotExist("X-Total-Count"));
+
+        // A page that is not the last one links to the next one
+        restTeamMockMvc.perform(get("/api/teams?after=&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+    }
+
     @Test
     @Transactional
     public void getTeam() throws Exception {
@@ -152,6 +255,28 @@ public class TeamResourceIntTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    public void getTeamByTeamId() throws Exception {
+        // Initialize the database
+        teamRepository.saveAndFlush(team);
+
+        // Get the team by its external id
+        restTeamMockMvc.perform(get("/api/teams/by-team-id/{teamId}", DEFAULT_TEAM_ID))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.id").value(team.getId().intValue()))
+            .andExpect(jsonPath("$.teamId").value(DEFAULT_TEAM_ID.intValue()));
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingTeamByTeamId() throws Exception {
+        // Get the team by its external id
+        restTeamMockMvc.perform(get("/api/teams/by-team-id/{teamId}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void updateTeam() throws Exception {
@@ -179,7 +304,8 @@ public class TeamResourceIntTest {
         assertThat(testTeam.getTeamId()).isEqualTo(UPDATED_TEAM_ID);
         assertThat(testTeam.getTeamName()).isEqualTo(UPDATED_TEAM_NAME);
 
-        // Validate the Team in ElasticSearch
+        // Validate the Team in ElasticSearch, once the outbox is relayed
+        searchOutboxService.drain();
         Team teamEs = teamSearchRepository.findOne(testTeam.getId());
         assertThat(teamEs).isEqualToComparingFieldByField(testTeam);
     }
@@ -197,7 +323,8 @@ public class TeamResourceIntTest {
                 .accept(TestUtil.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
-        // Validate ElasticSearch is empty
+        // Validate ElasticSearch is empty, once the outbox is relayed
+        searchOutboxService.drain();
         boolean teamExistsInEs = teamSearchRepository.exists(team.getId());
         assertThat(teamExistsInEs).isFalse();
 
@@ -221,4 +348,134 @@ public class TeamResourceIntTest {
             .andExpect(jsonPath("$.[*].teamId").value(hasItem(DEFAULT_TEAM_ID.intValue())))
             .andExpect(jsonPath("$.[*].teamName").value(hasItem(DEFAULT_TEAM_NAME.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchTeamFromCache() throws Exception {
+        // Initialize the database
+        teamRepository.saveAndFlush(team);
+        teamSearchRepository.save(team);
+        long hits = metricRegistry.meter("search.cache.team.hits").getCount();
+
+        // The first search caches its page
+        restTeamMockMvc.perform(get("/api/_search/teams?query=id:" + team.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(team.getId().intValue())));
+
+        // Removing the document behind the cache's back: the cached page is still served
+        teamSearchRepository.delete(team.getId());
+        restTeamMockMvc.perform(get("/api/_search/teams?query=id:" + team.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(team.getId().intValue())));
+        assertThat(metricRegistry.meter("search.cache.team.hits").getCount()).isEqualTo(hits + 1);
+
+        // Once the index is invalidated, the search runs again
+        searchResultCacheService.invalidate(Team.class);
+        restTeamMockMvc.perform(get("/api/_search/teams?query=id:" + team.getId()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(team.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void suggestTeams() throws Exception {
+        // Initialize the database, and patch the suggestion index as the commit would
+        team.setTeamName("Atl\u00e9tico Madrid");
+        teamRepository.saveAndFlush(team);
+        teamSuggestService.update(team.getId());
+
+        // The prefix ignores case and accents
+        restTeamMockMvc.perform(get("/api/teams/_suggest?prefix=atle"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(team.getId().intValue())))
+            .andExpect(jsonPath("$.[*].teamName").value(hasItem("Atl\u00e9tico Madrid")));
+        restTeamMockMvc.perform(get("/api/teams/_suggest?prefix=madrid"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(team.getId().intValue()))));
+
+        // A deleted team is no longer suggested
+        teamRepository.delete(team.getId());
+        teamRepository.flush();
+        teamSuggestService.update(team.getId());
+        restTeamMockMvc.perform(get("/api/teams/_suggest?prefix=atle"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(team.getId().intValue()))));
+    }
+
+    @Test
+    @Transactional
+    public void searchTeamsAfterCursor() throws Exception {
+        // Initialize the database with two teams matching the query
+        teamRepository.saveAndFlush(team);
+        teamSearchRepository.save(team);
+        Team nextTeam = new Team();
+        nextTeam.setTeamName(DEFAULT_TEAM_NAME);
+        teamRepository.saveAndFlush(nextTeam);
+        teamSearchRepository.save(nextTeam);
+        String query = "teamName:" + DEFAULT_TEAM_NAME;
+
+        // The first page links to the next one
+        restTeamMockMvc.perform(get("/api/_search/teams?query={query}&after=&size=1", query))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(team.getId().intValue()))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+
+        // The page after the first team starts with the second one
+        restTeamMockMvc.perform(get("/api/_search/teams?query={query}&after={cursor}&size=1", query,
+                PaginationUtil.encodeCursor(team.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$.[0].id").value(nextTeam.getId().intValue()))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void searchTeamDocumentsByHierarchy() throws Exception {
+        // Initialize the database with a team and its whole hierarchy
+        Region region = new Region();
+        region.setRegionName("Europe");
+        regionRepository.saveAndFlush(region);
+        Country country = new Country();
+        country.setCountryName("Spain");
+        country.setRegion(region);
+        countryRepository.saveAndFlush(country);
+        Location location = new Location();
+        location.setCity("Madrid");
+        location.setCountry(country);
+        locationRepository.saveAndFlush(location);
+        League league = new League();
+        league.setLeagueName("Liga");
+        league.setLocation(location);
+        leagueRepository.saveAndFlush(league);
+        team.setLeague(league);
+        teamRepository.saveAndFlush(team);
+        searchOutboxService.index(Team.class, team.getId());
+        searchOutboxService.drain();
+
+        // A single query on the country finds the team, the names are analyzed
+        restTeamMockMvc.perform(get("/api/_search/team-documents?query=countryName:spain"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(team.getId().intValue())))
+            .andExpect(jsonPath("$.[*].teamName").value(hasItem(DEFAULT_TEAM_NAME)))
+            .andExpect(jsonPath("$.[*].leagueName").value(hasItem("Liga")))
+            .andExpect(jsonPath("$.[*].city").value(hasItem("Madrid")))
+            .andExpect(jsonPath("$.[*].regionName").value(hasItem("Europe")));
+
+        // Renaming the country re-indexes the documents of its teams
+        country.setCountryName("Espana");
+        countryRepository.saveAndFlush(country);
+        searchOutboxService.index(Country.class, country.getId());
+        searchOutboxService.drain();
+
+        restTeamMockMvc.perform(get("/api/_search/team-documents?query=countryName:Espana"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(hasItem(team.getId().intValue())));
+        restTeamMockMvc.perform(get("/api/_search/team-documents?query=countryName:Spain"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(not(hasItem(team.getId().intValue()))));
+    }
 }
@@ -0,0 +1,89 @@
+package com.socctrader.web.rest.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socctrader.web.rest.errors.CustomParameterizedException;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the multi-get requests, shared by the Region, Country, Location, League and Team resources.
+ *
+ * @see MultiGetUtil
+ */
+public class MultiGetUtilTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** The rows of the reference data snapshot. */
+    private final Map<Long, Row> snapshot = new HashMap<>();
+
+    /** The rows created since the snapshot was built. */
+    private final Map<Long, Row> database = new HashMap<>();
+
+    private final List<Collection<Long>> queries = new ArrayList<>();
+
+    @Test
+    public void writesEntitiesInTheOrderOfTheIds() throws Exception {
+        snapshot.put(1L, new Row(1L));
+        snapshot.put(2L, new Row(2L));
+
+        assertThat(writeAll(2L, 1L)).isEqualTo("[{\"id\":2},{\"id\":1}]");
+        assertThat(queries).isEmpty();
+    }
+
+    @Test
+    public void skipsUnknownAndRepeatedIds() throws Exception {
+        snapshot.put(1L, new Row(1L));
+
+        assertThat(writeAll(1L, Long.MAX_VALUE, 1L, null)).isEqualTo("[{\"id\":1}]");
+    }
+
+    @Test
+    public void queriesTheIdsMissingFromTheSnapshotAtOnce() throws Exception {
+        snapshot.put(1L, new Row(1L));
+        database.put(2L, new Row(2L));
+        database.put(3L, new Row(3L));
+
+        assertThat(writeAll(3L, 1L, 2L)).isEqualTo("[{\"id\":3},{\"id\":1},{\"id\":2}]");
+        assertThat(queries).containsExactly(Arrays.asList(3L, 2L));
+    }
+
+    @Test(expected = CustomParameterizedException.class)
+    public void rejectsTooManyIds() throws Exception {
+        writeAll(LongStream.rangeClosed(1, MultiGetUtil.MAX_IDS + 1).boxed().toArray(Long[]::new));
+    }
+
+    private String writeAll(Long... ids) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MultiGetUtil.writeAll(Arrays.asList(ids), snapshot::get, missing -> {
+            queries.add(missing);
+            return missing.stream().map(database::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }, Row::getId, objectMapper, response);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+        return response.getContentAsString();
+    }
+
+    /**
+     * An entity serialized as its id only.
+     */
+    static class Row {
+
+        private final Long id;
+
+        Row(Long id) {
+            this.id = id;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+}